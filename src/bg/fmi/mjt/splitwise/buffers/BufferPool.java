@@ -0,0 +1,178 @@
+package bg.fmi.mjt.splitwise.buffers;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers in a few size classes. Every thread keeps a small cache per class and falls back to
+ * a shared queue, so acquiring and releasing is mostly uncontended. Requests bigger than the largest class
+ * get a heap buffer that is not pooled, releasing it is a no-op.
+ * <p>
+ * Leaks are tracked by counting buffers that were acquired but never released, see {@link #outstanding()}.
+ */
+public final class BufferPool {
+
+    public static final int SMALL_BUFFER_SIZE = 4 * 1024;
+    public static final int MEDIUM_BUFFER_SIZE = 16 * 1024;
+    public static final int LARGE_BUFFER_SIZE = 64 * 1024;
+
+    private static final int[] SIZE_CLASSES = {SMALL_BUFFER_SIZE, MEDIUM_BUFFER_SIZE, LARGE_BUFFER_SIZE};
+    private static final int THREAD_CACHE_SIZE = 16;
+    private static final int SHARED_CACHE_SIZE = 256;
+
+    private static final BufferPool SHARED = new BufferPool();
+
+    private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASSES.length];
+    private final ThreadLocal<ThreadCache> threadCaches = ThreadLocal.withInitial(ThreadCache::new);
+
+    public BufferPool() {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            sizeClasses[i] = new SizeClass(SIZE_CLASSES[i]);
+        }
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a cleared buffer with capacity of at least minCapacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int index = sizeClassIndex(minCapacity);
+
+        if (index < 0) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+
+        SizeClass sizeClass = sizeClasses[index];
+        sizeClass.outstanding.incrementAndGet();
+
+        ByteBuffer buffer = threadCaches.get().buffers[index].poll();
+
+        if (buffer == null) {
+            buffer = sizeClass.shared.poll();
+
+            if (buffer != null) {
+                sizeClass.sharedCount.decrementAndGet();
+            }
+        }
+
+        if (buffer == null) {
+            sizeClass.allocated.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(sizeClass.capacity);
+        }
+
+        return buffer.clear();
+    }
+
+    public void release(ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer cannot be null");
+
+        int index = pooledSizeClassIndex(buffer);
+
+        if (index < 0) {
+            return;
+        }
+
+        SizeClass sizeClass = sizeClasses[index];
+        sizeClass.outstanding.decrementAndGet();
+
+        var threadCache = threadCaches.get().buffers[index];
+
+        if (threadCache.size() < THREAD_CACHE_SIZE) {
+            threadCache.add(buffer);
+        } else if (sizeClass.sharedCount.incrementAndGet() <= SHARED_CACHE_SIZE) {
+            sizeClass.shared.add(buffer);
+        } else {
+            // let the garbage collector free it
+            sizeClass.sharedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of pooled buffers that were acquired and not released yet
+     */
+    public long outstanding() {
+        long outstanding = 0;
+
+        for (SizeClass sizeClass : sizeClasses) {
+            outstanding += sizeClass.outstanding.get();
+        }
+
+        return outstanding;
+    }
+
+    /**
+     * @return the number of direct buffers allocated because no pooled buffer was available
+     */
+    public long allocated() {
+        long allocated = 0;
+
+        for (SizeClass sizeClass : sizeClasses) {
+            allocated += sizeClass.allocated.get();
+        }
+
+        return allocated;
+    }
+
+    public static int maxPooledCapacity() {
+        return LARGE_BUFFER_SIZE;
+    }
+
+    private static int sizeClassIndex(int capacity) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (capacity <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int pooledSizeClassIndex(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return -1;
+        }
+
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (buffer.capacity() == SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static final class SizeClass {
+
+        private final int capacity;
+        private final Queue<ByteBuffer> shared = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger sharedCount = new AtomicInteger();
+        private final AtomicLong outstanding = new AtomicLong();
+        private final AtomicLong allocated = new AtomicLong();
+
+        private SizeClass(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class ThreadCache {
+
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<ByteBuffer>[] buffers =
+            (ArrayDeque<ByteBuffer>[]) new ArrayDeque<?>[SIZE_CLASSES.length];
+
+        private ThreadCache() {
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = new ArrayDeque<>(THREAD_CACHE_SIZE);
+            }
+        }
+    }
+
+}
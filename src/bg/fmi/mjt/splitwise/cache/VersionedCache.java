@@ -0,0 +1,116 @@
+package bg.fmi.mjt.splitwise.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Least recently used cache of values tagged with the version of the data they were made from. An entry is only
+ * returned for the version it was put with. Every value has a weight, such as the length of a text, and the cache
+ * holds at most a fixed total weight, evicting the least recently used entries to make room. Thread-safe.
+ */
+public final class VersionedCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long usedWeight = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public VersionedCache(long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher, "weigher cannot be null");
+    }
+
+    /**
+     * @return a cache of text weighed by its length
+     */
+    public static <K> VersionedCache<K, String> ofText(long maxChars) {
+        return new VersionedCache<>(maxChars, String::length);
+    }
+
+    /**
+     * @return the cached value, null if there is none for this version
+     */
+    public synchronized V get(K key, long version) {
+        Entry<V> entry = entries.get(key);
+
+        if (entry == null || entry.version() != version) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Caches the value unless a newer version is already cached. A value heavier than the whole cache is not kept.
+     */
+    public synchronized void put(K key, long version, V value) {
+        Objects.requireNonNull(value, "value cannot be null");
+
+        Entry<V> previous = entries.get(key);
+
+        if (previous != null && previous.version() > version) {
+            return;
+        }
+
+        if (previous != null) {
+            remove(key, previous);
+        }
+
+        long weight = weigher.applyAsLong(value);
+
+        if (weight > maxWeight) {
+            return;
+        }
+
+        entries.put(key, new Entry<>(version, value, weight));
+        usedWeight += weight;
+
+        evict();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long usedWeight() {
+        return usedWeight;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        usedWeight -= entry.weight();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+
+        while (usedWeight > maxWeight) {
+            usedWeight -= eldest.next().getValue().weight();
+            eldest.remove();
+        }
+    }
+
+    private record Entry<V>(long version, V value, long weight) {
+    }
+
+}
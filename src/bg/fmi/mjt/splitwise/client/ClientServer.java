@@ -1,32 +1,82 @@
 package bg.fmi.mjt.splitwise.client;
 
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
 import bg.fmi.mjt.splitwise.logger.Level;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.Frame;
+import bg.fmi.mjt.splitwise.protocol.FrameDecoder;
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
+import bg.fmi.mjt.splitwise.protocol.PayloadDecompressor;
+import bg.fmi.mjt.splitwise.protocol.TextDecoder;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ClientServer implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientServer.class);
     private static final int BUFFER_SIZE = 8192;
-    private static final Charset TRANSPORTATION_CHARSET = StandardCharsets.UTF_8;
 
-    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
-    private final InetSocketAddress serverAddress;
+    private final BufferPool pool = BufferPool.shared();
+    private final FrameDecoder decoder = new FrameDecoder(pool, Frames.MAX_PAYLOAD_SIZE);
+    private final TextDecoder textDecoder = new TextDecoder();
+    private final SocketAddress serverAddress;
+    private final byte requestedFeatures;
+    private final Map<Integer, byte[]> pendingResponses = new HashMap<>();
+    private final List<String> notifications = new ArrayList<>();
 
     private SocketChannel server;
+    private ByteBuffer buffer;
 
     private boolean isConnected = false;
+    private int nextCorrelationId = 1;
+    private byte features = Handshake.NO_FEATURES;
+    private PayloadDecompressor decompressor;
 
     public ClientServer(String serverHostname, int serverPort) {
-        serverAddress = new InetSocketAddress(serverHostname, serverPort);
+        this(serverHostname, serverPort, false);
+    }
+
+    /**
+     * @param prefersBinary whether to ask the server for the binary protocol when connecting
+     */
+    public ClientServer(String serverHostname, int serverPort, boolean prefersBinary) {
+        this(serverHostname, serverPort, prefersBinary ? Handshake.FEATURE_BINARY : Handshake.NO_FEATURES);
+    }
+
+    /**
+     * @param requestedFeatures the {@link Handshake} features to ask the server for when connecting
+     */
+    public ClientServer(String serverHostname, int serverPort, byte requestedFeatures) {
+        this(new InetSocketAddress(serverHostname, serverPort), requestedFeatures);
+    }
+
+    /**
+     * Connects over the Unix domain socket of a server on the same host, skipping the TCP stack.
+     *
+     * @param requestedFeatures the {@link Handshake} features to ask the server for when connecting
+     */
+    public ClientServer(Path serverSocketPath, byte requestedFeatures) {
+        this(UnixDomainSocketAddress.of(serverSocketPath), requestedFeatures);
+    }
+
+    private ClientServer(SocketAddress serverAddress, byte requestedFeatures) {
+        this.serverAddress = serverAddress;
+        this.requestedFeatures = requestedFeatures;
     }
 
 
@@ -37,32 +87,233 @@ public class ClientServer implements Closeable {
 
         LOGGER.log(Level.INFO, "Connecting to the server...");
 
-        server = SocketChannel.open();
-        server.connect(serverAddress);
+        // the protocol family follows the address, TCP or Unix domain
+        server = SocketChannel.open(serverAddress);
+        buffer = pool.acquire(BUFFER_SIZE);
         isConnected = true;
 
+        if (requestedFeatures != Handshake.NO_FEATURES) {
+            handshake(requestedFeatures);
+        }
+
         LOGGER.log(Level.INFO, "Connected to the server");
     }
 
-    public void send(String message) throws IOException {
+    /**
+     * @return whether the server agreed to the binary protocol during the handshake
+     */
+    public boolean isBinary() {
+        return Handshake.hasFeature(features, Handshake.FEATURE_BINARY);
+    }
+
+    public boolean isCompressing() {
+        return Handshake.hasFeature(features, Handshake.FEATURE_COMPRESSION);
+    }
+
+    public boolean acceptsPushes() {
+        return Handshake.hasFeature(features, Handshake.FEATURE_PUSH);
+    }
+
+    private void handshake(byte requestedFeatures) throws IOException {
+        write(Handshake.encode(requestedFeatures));
+        features = Handshake.decode(readFrame());
+
+        if (isCompressing()) {
+            decompressor = new PayloadDecompressor();
+        }
+
+        LOGGER.log(Level.DEBUG, String.format("Agreed on features %d with the server", features));
+    }
+
+    /**
+     * Sends a request without waiting for its response.
+     *
+     * @return the correlation id the server will echo back in the response
+     */
+    public int send(String message) throws IOException {
+        int correlationId = nextCorrelationId();
+        write(Frames.encode(correlationId, message, pool));
+
+        return correlationId;
+    }
+
+    /**
+     * Sends a request already encoded in the agreed binary format, see {@link #send(String)}.
+     */
+    public int send(byte[] message) throws IOException {
+        int correlationId = nextCorrelationId();
+        write(Frames.encode(correlationId, Frames.NO_FLAGS, message, pool));
+
+        return correlationId;
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
         LOGGER.log(Level.DEBUG, "Sending data to server...");
 
-        buffer.clear();
-        buffer.put(message.getBytes(TRANSPORTATION_CHARSET));
-        buffer.flip();
-        server.write(buffer);
+        try {
+            while (frame.hasRemaining()) {
+                server.write(frame);
+            }
+        } finally {
+            pool.release(frame);
+        }
     }
 
+    /**
+     * Receives the response to the request with the given correlation id.
+     * Responses to other requests that arrive meanwhile are kept until they are asked for.
+     */
+    public String recv(int correlationId) throws IOException {
+        byte[] pending = pendingResponses.remove(correlationId);
+
+        if (pending != null) {
+            return textDecoder.decode(ByteBuffer.wrap(pending));
+        }
+
+        Frame frame;
+        while ((frame = readFrame()).correlationId() != correlationId) {
+            accept(frame);
+        }
+
+        // decoded straight from the decoder's bytes, without copying them first
+        return textDecoder.decode(payloadOf(frame));
+    }
+
+    /**
+     * Receives the raw payload of the response to the request with the given correlation id.
+     */
+    public byte[] recvBytes(int correlationId) throws IOException {
+        byte[] response;
+
+        while ((response = pendingResponses.remove(correlationId)) == null) {
+            accept(readFrame());
+        }
+
+        return response;
+    }
+
+    /**
+     * Receives the next response regardless of which request it answers.
+     */
     public String recv() throws IOException {
+        if (!pendingResponses.isEmpty()) {
+            byte[] response = pendingResponses.remove(pendingResponses.keySet().iterator().next());
+            return textDecoder.decode(ByteBuffer.wrap(response));
+        }
+
+        Frame frame;
+        while ((frame = readFrame()).correlationId() == Frames.PUSH_CORRELATION_ID) {
+            accept(frame);
+        }
+
+        return textDecoder.decode(payloadOf(frame));
+    }
+
+    /**
+     * Returns the notifications the server pushed so far, reading whatever already arrived without blocking.
+     */
+    public List<String> pollNotifications() throws IOException {
+        if (isConnected && acceptsPushes()) {
+            readAvailableFrames();
+        }
+
+        List<String> polled = List.copyOf(notifications);
+        notifications.clear();
+
+        return polled;
+    }
+
+    private void readAvailableFrames() throws IOException {
+        server.configureBlocking(false);
+
+        try {
+            int read;
+
+            do {
+                Frame frame;
+                while ((frame = decoder.next()) != null) {
+                    accept(frame);
+                }
+
+                buffer.clear();
+                read = server.read(buffer);
+                buffer.flip();
+                decoder.feed(buffer);
+            } while (read > 0);
+
+            if (read == -1) {
+                throw new EOFException("Server closed the connection");
+            }
+        } finally {
+            server.configureBlocking(true);
+        }
+    }
+
+    private void accept(Frame frame) {
+        if (frame.correlationId() == Frames.PUSH_CORRELATION_ID) {
+            notifications.add(textDecoder.decode(frame.payload()));
+        } else {
+            pendingResponses.put(frame.correlationId(), copyOf(payloadOf(frame)));
+        }
+    }
+
+    /**
+     * @return a view of the payload that is valid until the next frame is read
+     */
+    private ByteBuffer payloadOf(Frame frame) {
+        if (frame.hasFlag(Frames.FLAG_COMPRESSED)) {
+            if (decompressor == null) {
+                throw new ProtocolException("Received a compressed frame without agreeing to compression");
+            }
+
+            return ByteBuffer.wrap(decompressor.decompress(frame.payload()));
+        }
+
+        return frame.payload();
+    }
+
+    private static byte[] copyOf(ByteBuffer payload) {
+        if (payload.hasArray() && payload.arrayOffset() == 0 && payload.position() == 0
+            && payload.remaining() == payload.array().length) {
+            return payload.array();
+        }
+
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+
+        return bytes;
+    }
+
+    private Frame readFrame() throws IOException {
         LOGGER.log(Level.DEBUG, "Receiving data from server...");
 
-        buffer.clear();
-        server.read(buffer);
-        buffer.flip();
+        Frame frame;
+
+        while ((frame = decoder.next()) == null) {
+            buffer.clear();
+
+            if (server.read(buffer) == -1) {
+                throw new EOFException("Server closed the connection");
+            }
 
-        byte[] byteArray = new byte[buffer.remaining()];
-        buffer.get(byteArray);
-        return new String(byteArray, TRANSPORTATION_CHARSET);
+            buffer.flip();
+            decoder.feed(buffer);
+        }
+
+        return frame;
+    }
+
+    /**
+     * Correlation id 0 is reserved for frames the server sends on its own.
+     */
+    private int nextCorrelationId() {
+        int correlationId = nextCorrelationId++;
+
+        if (nextCorrelationId == 0) {
+            nextCorrelationId = 1;
+        }
+
+        return correlationId;
     }
 
     @Override
@@ -71,6 +322,16 @@ public class ClientServer implements Closeable {
 
         server.close();
 
+        decoder.release();
+        if (decompressor != null) {
+            decompressor.close();
+            decompressor = null;
+        }
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+
         LOGGER.log(Level.DEBUG, "Closed client...");
     }
 }
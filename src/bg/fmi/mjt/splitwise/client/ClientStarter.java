@@ -5,18 +5,27 @@ import bg.fmi.mjt.splitwise.commands.executors.ClientCommandExecutor;
 import bg.fmi.mjt.splitwise.commands.validators.DefaultCommandValidator;
 import bg.fmi.mjt.splitwise.client.gui.CLI;
 import bg.fmi.mjt.splitwise.handlers.DefaulClientInputHandler;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
 
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.file.Path;
 
 public class ClientStarter {
 
     private static final String HOST = "localhost";
     private static final int PORT = 7777;
 
+    private static final String BINARY_PROTOCOL_PROPERTY = "splitwise.binary";
+    private static final String COMPRESSION_PROPERTY = "splitwise.compression";
+    private static final String UNIX_SOCKET_PROPERTY = "splitwise.unixSocket";
+
     public static void main(String[] args) {
 
-        var clientServer = new ClientServer(HOST, PORT);
+        String unixSocket = System.getProperty(UNIX_SOCKET_PROPERTY);
+        var clientServer = unixSocket == null
+            ? new ClientServer(HOST, PORT, requestedFeatures())
+            : new ClientServer(Path.of(unixSocket), requestedFeatures());
 
         var validator = new DefaultCommandValidator();
         var executor = new ClientCommandExecutor(validator, clientServer);
@@ -28,4 +37,21 @@ public class ClientStarter {
 
         cli.run();
     }
+
+    /**
+     * The CLI shows pushed notifications, so it always asks for them.
+     */
+    private static byte requestedFeatures() {
+        byte features = Handshake.FEATURE_PUSH;
+
+        if (Boolean.getBoolean(BINARY_PROTOCOL_PROPERTY)) {
+            features |= Handshake.FEATURE_BINARY;
+        }
+
+        if (Boolean.getBoolean(COMPRESSION_PROPERTY)) {
+            features |= Handshake.FEATURE_COMPRESSION;
+        }
+
+        return features;
+    }
 }
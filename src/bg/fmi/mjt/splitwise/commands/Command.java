@@ -1,7 +1,10 @@
 package bg.fmi.mjt.splitwise.commands;
 
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments;
+
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 
 public final class Command {
 
@@ -9,6 +12,9 @@ public final class Command {
     private final String name;
     private final String[] args;
 
+    // parsed on first use, empty if the command is invalid
+    private transient Optional<Arguments> arguments;
+
     public static Command ofNewOwner(Command cmd, String owner) {
         return new Command(owner, cmd.name, cmd.args);
     }
@@ -38,6 +44,19 @@ public final class Command {
         return owner;
     }
 
+    /**
+     * Parses the arguments once, validating and executing the command share the result.
+     *
+     * @return the parsed arguments, null if the command is invalid
+     */
+    public Arguments arguments() {
+        if (arguments == null) {
+            arguments = Optional.ofNullable(Arguments.parse(this));
+        }
+
+        return arguments.orElse(null);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
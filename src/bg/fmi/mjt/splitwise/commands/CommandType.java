@@ -45,29 +45,5 @@ public enum CommandType {
         return usage;
     }
 
-    public static class Indexes {
-        public static final int ADD_FRIEND_FRIEND_USERNAME_INDEX = 0;
-
-        public static final int CREATE_CROUP_GROUP_NAME_INDEX = 0;
-        public static final  int CREATE_CROUP_USERNAMES_START_INDEX = 1;
-
-        public static final int LOGIN_USERNAME_INDEX = 0;
-        public static final  int LOGIN_PASSWORD_INDEX = 1;
-
-        public static final int REGISTER_USERNAME_INDEX = 0;
-        public static final int REGISTER_PASSWORD_INDEX = 1;
-
-        public static final int PAYED_AMOUNT_INDEX = 0;
-        public static final  int PAYED_FRIEND_USERNAME_INDEX = 1;
-
-        public static final int SPLIT_AMOUNT_INDEX = 0;
-        public static final int SPLIT_FRIEND_USERNAME_INDEX = 1;
-        public static final int SPLIT_REASON_FOR_PAYMENT_INDEX = 2;
-
-        public static final int SPLIT_GROUP_AMOUNT_INDEX = 0;
-        public static final int SPLIT_GROUP_NAME_INDEX = 1;
-        public static final int SPLIT_GROUP_REASON_FOR_PAYMENT_INDEX = 2;
-    }
-
 }
 
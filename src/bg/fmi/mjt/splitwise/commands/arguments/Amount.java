@@ -0,0 +1,83 @@
+package bg.fmi.mjt.splitwise.commands.arguments;
+
+/**
+ * An amount of money in stotinki, a hundredth of a lev, so it is exact however it was written.
+ */
+public record Amount(long stotinki) {
+
+    private static final int STOTINKI_PER_LEV = 100;
+    private static final int MAX_FRACTION_DIGITS = 2;
+
+    // any more and the amount would not be exact as a double
+    private static final int MAX_WHOLE_DIGITS = 13;
+
+    public Amount {
+        if (stotinki < 0) {
+            throw new IllegalArgumentException("An amount cannot be negative");
+        }
+    }
+
+    /**
+     * Parses levs written as digits, optionally followed by a point and one or two more digits.
+     *
+     * @return the amount, null if the text is not an amount
+     */
+    public static Amount parse(String text) {
+        int length = text.length();
+        int i = 0;
+        long levs = 0;
+
+        while (i < length && isDigit(text.charAt(i))) {
+            if (i == MAX_WHOLE_DIGITS) {
+                return null;
+            }
+
+            levs = levs * 10 + text.charAt(i++) - '0';
+        }
+
+        if (i == 0) {
+            return null;
+        }
+
+        if (i == length) {
+            return new Amount(levs * STOTINKI_PER_LEV);
+        }
+
+        if (text.charAt(i++) != '.') {
+            return null;
+        }
+
+        int fractionStart = i;
+        int stotinki = 0;
+
+        while (i < length && isDigit(text.charAt(i))) {
+            stotinki = stotinki * 10 + text.charAt(i++) - '0';
+        }
+
+        int fractionDigits = i - fractionStart;
+
+        if (i < length || fractionDigits == 0 || fractionDigits > MAX_FRACTION_DIGITS) {
+            return null;
+        }
+
+        if (fractionDigits == 1) {
+            stotinki *= 10;
+        }
+
+        return new Amount(levs * STOTINKI_PER_LEV + stotinki);
+    }
+
+    public double levs() {
+        return (double) stotinki / STOTINKI_PER_LEV;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d.%02d", stotinki / STOTINKI_PER_LEV, stotinki % STOTINKI_PER_LEV);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
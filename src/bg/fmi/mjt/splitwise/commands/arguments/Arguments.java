@@ -0,0 +1,97 @@
+package bg.fmi.mjt.splitwise.commands.arguments;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The arguments of a command, parsed once into the record of its {@link CommandType}. A command that cannot be
+ * parsed is invalid, so this is also where its arguments are validated.
+ */
+public sealed interface Arguments {
+
+    /**
+     * @return the parsed arguments, null if the command is invalid
+     */
+    static Arguments parse(Command cmd) {
+        CommandType type = CommandType.fromString(cmd.name());
+        String[] args = cmd.args();
+
+        if (type == null || args == null) {
+            return null;
+        }
+
+        for (var arg : args) {
+            if (arg == null || arg.isBlank()) {
+                return null;
+            }
+        }
+
+        return switch (type) {
+            case ADD_FRIEND -> args.length == 1 ? new AddFriend(args[0]) : null;
+            case CREATE_GROUP -> args.length >= 3
+                ? new CreateGroup(args[0], Set.copyOf(Arrays.asList(args).subList(1, args.length)))
+                : null;
+            case GET_STATUS -> args.length == 0 ? new GetStatus() : null;
+            case LOGIN -> args.length == 2 ? new Login(args[0], args[1]) : null;
+            case LOGOUT -> args.length == 0 ? new Logout() : null;
+            case PAYED -> args.length == 2 ? Payed.of(Amount.parse(args[0]), args[1]) : null;
+            case REGISTER -> args.length == 2 ? new Register(args[0], args[1]) : null;
+            case SPLIT -> args.length == 3 ? Split.of(Amount.parse(args[0]), args[1], args[2]) : null;
+            case SPLIT_GROUP -> args.length == 3 ? SplitGroup.of(Amount.parse(args[0]), args[1], args[2]) : null;
+            case GET_PAYMENT_HISTORY -> args.length == 0 ? new GetPaymentHistory() : null;
+            case HELP -> args.length == 0 ? new Help() : null;
+        };
+    }
+
+    record AddFriend(String friendUsername) implements Arguments {
+    }
+
+    record CreateGroup(String groupName, Set<String> usernames) implements Arguments {
+    }
+
+    record GetStatus() implements Arguments {
+    }
+
+    record Login(String username, String password) implements Arguments {
+    }
+
+    record Logout() implements Arguments {
+    }
+
+    record Payed(Amount amount, String friendUsername) implements Arguments {
+
+        static Payed of(Amount amount, String friendUsername) {
+            return amount == null ? null : new Payed(amount, friendUsername);
+        }
+
+    }
+
+    record Register(String username, String password) implements Arguments {
+    }
+
+    record Split(Amount amount, String friendUsername, String reason) implements Arguments {
+
+        static Split of(Amount amount, String friendUsername, String reason) {
+            return amount == null ? null : new Split(amount, friendUsername, reason);
+        }
+
+    }
+
+    record SplitGroup(Amount amount, String groupName, String reason) implements Arguments {
+
+        static SplitGroup of(Amount amount, String groupName, String reason) {
+            return amount == null ? null : new SplitGroup(amount, groupName, reason);
+        }
+
+    }
+
+    record GetPaymentHistory() implements Arguments {
+    }
+
+    record Help() implements Arguments {
+    }
+
+}
@@ -2,25 +2,72 @@ package bg.fmi.mjt.splitwise.commands.creators;
 
 import bg.fmi.mjt.splitwise.commands.Command;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class DefaultCommandCreator implements CommandCreator {
 
-    // Match me greedily at least one whitespaces that have even number(or 0) of quotes after them
-    private static final String IGNORE_QUOTED_SPLIT_REGEX = "\\s+(?=([^\"]*\"[^\"]*\"[^\"]*)*[^\"]*$)";
+    private static final char QUOTE = '"';
+    private static final char ESCAPE = '\\';
 
     @Override
     public Command create(String input) {
         Objects.requireNonNull(input, "input cannot be null");
 
-        var tokens = Arrays.stream(input.trim().split(IGNORE_QUOTED_SPLIT_REGEX))
-                           .map(s -> s.replace("\"", "").trim())
-                           .toArray(String[]::new);
+        List<String> tokens = tokenize(input);
 
         return new Command(
-            tokens[0],
-            Arrays.copyOfRange(tokens, 1, tokens.length)
+            tokens.get(0),
+            tokens.subList(1, tokens.size()).toArray(String[]::new)
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Splits the input on whitespace outside of quotes in a single pass. Quotes are dropped and every token is
+     * trimmed. A backslash makes the quote or backslash after it literal, and a quote left open runs to the end
+     * of the input.
+     */
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean isQuoted = false;
+        boolean hasToken = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+
+            if (c == ESCAPE && i + 1 < input.length() && isEscapable(input.charAt(i + 1))) {
+                token.append(input.charAt(++i));
+                hasToken = true;
+            } else if (c == QUOTE) {
+                isQuoted = !isQuoted;
+                hasToken = true;
+            } else if (!isQuoted && isSeparator(c)) {
+                if (hasToken) {
+                    tokens.add(token.toString().trim());
+                    token.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                token.append(c);
+                hasToken = true;
+            }
+        }
+
+        if (hasToken || tokens.isEmpty()) {
+            tokens.add(token.toString().trim());
+        }
+
+        return tokens;
+    }
+
+    private static boolean isEscapable(char c) {
+        return c == QUOTE || c == ESCAPE;
+    }
+
+    // the whitespace of \s in a regex
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,129 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.cache.VersionedCache;
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
+import bg.fmi.mjt.splitwise.service.Service;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Serves the JSON responses of read commands from a cache while the data of their owner has not changed.
+ * Responses are cached per auth token, so logging in again starts afresh, and the evicted ones are those read
+ * least recently. Results for other wire formats are cached apart from the responses, batches are not cached.
+ */
+public class CachingCommandExecutor implements ResultCommandExecutor {
+
+    private static final long NO_VERSION = -1;
+
+    private final ResultCommandExecutor executor;
+    private final Service service;
+    private final VersionedCache<Key, String> responses;
+    private final VersionedCache<Key, CommandResult> results;
+
+    public CachingCommandExecutor(ResultCommandExecutor executor, Service service,
+                                  VersionedCache<Key, String> responses, VersionedCache<Key, CommandResult> results) {
+        this.executor = executor;
+        this.service = service;
+        this.responses = responses;
+        this.results = results;
+    }
+
+    @Override
+    public String execute(Command cmd) {
+        long version = versionOf(cmd);
+
+        if (version == NO_VERSION) {
+            return executor.execute(cmd);
+        }
+
+        return cached(responses, Key.of(cmd, false), version, () -> executor.execute(cmd));
+    }
+
+    @Override
+    public void execute(Command cmd, boolean embedsData, JsonWriter out) throws IOException {
+        long version = versionOf(cmd);
+
+        if (version == NO_VERSION) {
+            executor.execute(cmd, embedsData, out);
+            return;
+        }
+
+        out.jsonValue(cached(responses, Key.of(cmd, embedsData), version,
+            () -> JsonResponses.of(executor.executeForResult(cmd), embedsData)));
+    }
+
+    @Override
+    public CommandResult executeForResult(Command cmd) {
+        long version = versionOf(cmd);
+
+        if (version == NO_VERSION) {
+            return executor.executeForResult(cmd);
+        }
+
+        return cached(results, Key.of(cmd, true), version, () -> executor.executeForResult(cmd));
+    }
+
+    @Override
+    public List<CommandResult> executeBatchForResults(List<Command> batch, boolean isAtomic) {
+        return executor.executeBatchForResults(batch, isAtomic);
+    }
+
+    @Override
+    public String executeBatch(List<Command> batch, boolean isAtomic) {
+        return executor.executeBatch(batch, isAtomic);
+    }
+
+    @Override
+    public void executeBatch(List<Command> batch, boolean isAtomic, boolean embedsData, JsonWriter out)
+        throws IOException {
+        executor.executeBatch(batch, isAtomic, embedsData, out);
+    }
+
+    private static <V> V cached(VersionedCache<Key, V> cache, Key key, long version, Supplier<V> execution) {
+        V value = cache.get(key, version);
+
+        if (value == null) {
+            value = execution.get();
+            cache.put(key, version, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * The version is read before the command runs, a write in between only makes the cached response
+     * unreachable.
+     */
+    private long versionOf(Command cmd) {
+        if (cmd == null || cmd.owner() == null || !isCacheable(CommandType.fromString(cmd.name()))) {
+            return NO_VERSION;
+        }
+
+        return service.versionOf(cmd.owner());
+    }
+
+    private static boolean isCacheable(CommandType type) {
+        return type == CommandType.GET_STATUS || type == CommandType.GET_PAYMENT_HISTORY;
+    }
+
+    /**
+     * The arguments are part of the key, an invalid command is answered differently.
+     */
+    public record Key(String owner, String name, List<String> args, boolean embedsData) {
+
+        static Key of(Command cmd, boolean embedsData) {
+            List<String> args = cmd.args() == null ? null : Arrays.asList(cmd.args().clone());
+
+            return new Key(cmd.owner(), cmd.name(), args, embedsData);
+        }
+
+    }
+
+}
@@ -4,21 +4,24 @@ import bg.fmi.mjt.splitwise.client.ClientServer;
 import bg.fmi.mjt.splitwise.commands.CommandType;
 import bg.fmi.mjt.splitwise.commands.Command;
 import bg.fmi.mjt.splitwise.commands.validators.CommandValidator;
-import bg.fmi.mjt.splitwise.gson.adapters.LocalDateTimeAdapter;
+import bg.fmi.mjt.splitwise.gson.Gsons;
 import bg.fmi.mjt.splitwise.logger.Level;
 import bg.fmi.mjt.splitwise.logger.LogUtils;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.binary.BinaryCodec;
 import bg.fmi.mjt.splitwise.requests.CommandRequest;
 import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
 import bg.fmi.mjt.splitwise.responses.LoginSuccessResponse;
 import bg.fmi.mjt.splitwise.responses.OwesResponse;
 import bg.fmi.mjt.splitwise.responses.PaymentHistoryResponse;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -40,8 +43,7 @@ public class ClientCommandExecutor implements CommandExecutor {
     private final static String NO_PAYMENT_HISTORY_MSG = "You haven't payed anyone";
     private final static String PAYMENT_TEMPLATE = "You payed %s an amount of %.2f levs on %tF";
 
-    private final Gson gson =
-        new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+    private final Gson gson = Gsons.shared();
     private final CommandValidator validator;
     private final ClientServer server;
 
@@ -71,13 +73,46 @@ public class ClientCommandExecutor implements CommandExecutor {
         }
 
         try {
-            return dispatch(cmd);
+            return withNotifications(dispatch(cmd));
         } catch (IOException e) {
             LOGGER.log(Level.ERROR, "Communication error: " + LogUtils.stringifyThrowable(e));
             return COMMUNICATION_ERROR_MSG;
         }
     }
 
+    /**
+     * Sends the commands in a single request, they run in order under the current login.
+     * Batches are only understood by the JSON protocol.
+     *
+     * @param isAtomic whether a failing command undoes the ones before it and skips the rest
+     * @return a response for every command, in the order of the batch
+     */
+    public List<CommandResponse> executeBatch(List<Command> batch, boolean isAtomic) throws IOException {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+
+        if (server.isBinary()) {
+            throw new IllegalStateException("Batches are not supported by the binary protocol");
+        }
+
+        var request = CommandRequest.ofBatch(batch, isAtomic, authToken).withEmbeddedData(true);
+        String responses = sendAndRecv(asJson(request));
+
+        return Arrays.asList(fromJson(responses, CommandResponse[].class));
+    }
+
+    /**
+     * Shows the notifications the server pushed since the last command before the result of this one.
+     */
+    private String withNotifications(String result) throws IOException {
+        List<String> notifications = server.pollNotifications();
+
+        if (notifications.isEmpty()) {
+            return result;
+        }
+
+        return String.join(System.lineSeparator(), notifications) + System.lineSeparator() + result;
+    }
+
     private String dispatch(Command cmd) throws IOException {
         return switch (CommandType.fromString(cmd.name())) {
             case ADD_FRIEND -> addFriend(cmd);
@@ -97,8 +132,9 @@ public class ClientCommandExecutor implements CommandExecutor {
     private String getPaymentHistory(Command cmd) throws IOException {
         return handle(
             cmd,
+            PaymentHistoryResponse.class,
             this::simpleErrorHandler,
-            response -> handlePaymentHistoryResponse(fromJson(response.getData(), PaymentHistoryResponse.class))
+            response -> handlePaymentHistoryResponse(response.data(PaymentHistoryResponse.class))
         );
     }
 
@@ -122,8 +158,9 @@ public class ClientCommandExecutor implements CommandExecutor {
     private String getStatus(Command cmd) throws IOException {
         return handle(
             cmd,
+            OwesResponse.class,
             this::simpleErrorHandler,
-            response -> handleOwesResponse(fromJson(response.getData(), OwesResponse.class))
+            response -> handleOwesResponse(response.data(OwesResponse.class))
         );
     }
 
@@ -157,20 +194,31 @@ public class ClientCommandExecutor implements CommandExecutor {
     private String login(Command cmd) throws IOException {
         return handle(
             cmd,
+            LoginSuccessResponse.class,
             this::simpleErrorHandler,
-            response -> handleLoginSuccessResponse(fromJson(response.getData(), LoginSuccessResponse.class))
+            response -> handleLoginSuccessResponse(response.data(LoginSuccessResponse.class))
         );
     }
 
     private String handle(Command cmd,
-                          Function<CommandResponse, String> errorHandler,
-                          Function<CommandResponse, String> successHandler) throws IOException {
+                          Function<CommandResult, String> errorHandler,
+                          Function<CommandResult, String> successHandler) throws IOException {
+        return handle(cmd, null, errorHandler, successHandler);
+    }
+
+    /**
+     * @param dataType type of the data of a successful response, null if it carries none
+     */
+    private String handle(Command cmd,
+                          Class<?> dataType,
+                          Function<CommandResult, String> errorHandler,
+                          Function<CommandResult, String> successHandler) throws IOException {
 
         var request = new CommandRequest(cmd, authToken);
 
-        CommandResponse response = sendAndRecv(request);
+        CommandResult result = sendAndRecv(request, dataType);
 
-        return response.wasSuccessful() ? successHandler.apply(response) : errorHandler.apply(response);
+        return result.wasSuccessful() ? successHandler.apply(result) : errorHandler.apply(result);
     }
 
     private String handleLoginSuccessResponse(LoginSuccessResponse data) {
@@ -219,11 +267,11 @@ public class ClientCommandExecutor implements CommandExecutor {
         return sb.toString();
     }
 
-    private String simpleErrorHandler(CommandResponse cr) {
-        return cr.getErrorMessage();
+    private String simpleErrorHandler(CommandResult cr) {
+        return cr.errorMessage();
     }
 
-    private String simpleSuccessHandler(CommandResponse cr) {
+    private String simpleSuccessHandler(CommandResult cr) {
         return SUCCESSFUL_OPERATION_MSG;
     }
 
@@ -236,13 +284,34 @@ public class ClientCommandExecutor implements CommandExecutor {
     }
 
     private String sendAndRecv(String message) throws IOException {
-        server.send(message);
-        return server.recv();
+        int correlationId = server.send(message);
+        return server.recv(correlationId);
+    }
+
+    private CommandResult sendAndRecv(CommandRequest request, Class<?> dataType) throws IOException {
+        if (server.isBinary()) {
+            int correlationId = server.send(BinaryCodec.encodeRequest(request));
+            return BinaryCodec.decodeResult(ByteBuffer.wrap(server.recvBytes(correlationId)));
+        }
+
+        var response = fromJson(sendAndRecv(asJson(request.withEmbeddedData(true))), CommandResponse.class);
+
+        if (!response.wasSuccessful()) {
+            return CommandResult.ofError(response.getErrorMessage());
+        }
+
+        return dataType == null || response.getData() == null
+            ? CommandResult.ofSuccess()
+            : CommandResult.ofSuccess(dataOf(response, dataType));
     }
 
-    private CommandResponse sendAndRecv(CommandRequest request) throws IOException {
-        var response =  sendAndRecv(asJson(request));
-        return fromJson(response, CommandResponse.class);
+    /**
+     * Servers that predate embedded data still send it as a JSON string.
+     */
+    private <T> T dataOf(CommandResponse response, Class<T> dataType) {
+        return response.isDataEmbedded()
+            ? gson.fromJson(response.getDataElement(), dataType)
+            : fromJson(response.getData(), dataType);
     }
 
 }
@@ -0,0 +1,107 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.metrics.Histogram;
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Records how long the commands of every {@link CommandType} take, the count of each histogram being the
+ * throughput. A batch is recorded as a whole, commands with an unknown name together.
+ */
+public class MeasuringCommandExecutor implements ResultCommandExecutor {
+
+    private static final String DURATION_METRIC = "splitwise_command_duration_seconds";
+    private static final String DURATION_HELP = "Time spent executing commands";
+    private static final String COMMAND_LABEL = "command";
+
+    private final ResultCommandExecutor executor;
+    private final Map<CommandType, Histogram> durations = new EnumMap<>(CommandType.class);
+    private final Histogram unknownDurations;
+    private final Histogram batchDurations;
+
+    public MeasuringCommandExecutor(ResultCommandExecutor executor, Metrics metrics) {
+        this.executor = executor;
+
+        for (CommandType type : CommandType.values()) {
+            durations.put(type, metrics.histogram(DURATION_METRIC, DURATION_HELP, COMMAND_LABEL, type.cmdName()));
+        }
+
+        unknownDurations = metrics.histogram(DURATION_METRIC, DURATION_HELP, COMMAND_LABEL, "unknown");
+        batchDurations = metrics.histogram(DURATION_METRIC, DURATION_HELP, COMMAND_LABEL, "batch");
+    }
+
+    @Override
+    public String execute(Command cmd) {
+        return measure(durationsOf(cmd), () -> executor.execute(cmd));
+    }
+
+    @Override
+    public CommandResult executeForResult(Command cmd) {
+        return measure(durationsOf(cmd), () -> executor.executeForResult(cmd));
+    }
+
+    @Override
+    public List<CommandResult> executeBatchForResults(List<Command> batch, boolean isAtomic) {
+        return measure(batchDurations, () -> executor.executeBatchForResults(batch, isAtomic));
+    }
+
+    @Override
+    public String executeBatch(List<Command> batch, boolean isAtomic) {
+        return measure(batchDurations, () -> executor.executeBatch(batch, isAtomic));
+    }
+
+    @Override
+    public void execute(Command cmd, boolean embedsData, JsonWriter out) throws IOException {
+        measureStreaming(durationsOf(cmd), () -> executor.execute(cmd, embedsData, out));
+    }
+
+    @Override
+    public void executeBatch(List<Command> batch, boolean isAtomic, boolean embedsData, JsonWriter out)
+        throws IOException {
+        measureStreaming(batchDurations, () -> executor.executeBatch(batch, isAtomic, embedsData, out));
+    }
+
+    private Histogram durationsOf(Command cmd) {
+        Objects.requireNonNull(cmd, "Command cannot be null");
+
+        CommandType type = CommandType.fromString(cmd.name());
+
+        return type == null ? unknownDurations : durations.get(type);
+    }
+
+    private static <T> T measure(Histogram histogram, Supplier<T> execution) {
+        long start = System.nanoTime();
+
+        try {
+            return execution.get();
+        } finally {
+            histogram.observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    private static void measureStreaming(Histogram histogram, StreamingExecution execution) throws IOException {
+        long start = System.nanoTime();
+
+        try {
+            execution.run();
+        } finally {
+            histogram.observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamingExecution {
+        void run() throws IOException;
+    }
+
+}
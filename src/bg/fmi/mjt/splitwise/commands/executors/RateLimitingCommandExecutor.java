@@ -0,0 +1,148 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimitedResponses;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimiter;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Answers commands of an auth token that exceeded its rate without running them.
+ * Commands without an owner are not limited here, they are still limited by the remote address in the server.
+ * Every command of a batch costs a token, and a batch is either run or rejected as a whole without costing any.
+ * A batch with more commands than the burst of the rate limit is always rejected.
+ */
+public class RateLimitingCommandExecutor implements ResultCommandExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitingCommandExecutor.class);
+
+    private static final String BATCH_OVER_BURST_FORMAT =
+        "A batch of %d commands is more than the %d the rate limit allows at once";
+
+    private final ResultCommandExecutor executor;
+    private final RateLimiter<String> ownerLimiter;
+
+    public RateLimitingCommandExecutor(ResultCommandExecutor executor, RateLimiter<String> ownerLimiter) {
+        this.executor = executor;
+        this.ownerLimiter = ownerLimiter;
+    }
+
+    @Override
+    public String execute(Command cmd) {
+        long retryAfterMillis = tryAcquire(cmd);
+
+        return retryAfterMillis > 0 ? RateLimitedResponses.of(retryAfterMillis) : executor.execute(cmd);
+    }
+
+    @Override
+    public CommandResult executeForResult(Command cmd) {
+        long retryAfterMillis = tryAcquire(cmd);
+
+        return retryAfterMillis > 0
+            ? CommandResult.ofError(RateLimitedResponses.message(retryAfterMillis))
+            : executor.executeForResult(cmd);
+    }
+
+    @Override
+    public List<CommandResult> executeBatchForResults(List<Command> batch, boolean isAtomic) {
+        CommandResult rejection = tryAcquire(batch);
+
+        return rejection == null
+            ? executor.executeBatchForResults(batch, isAtomic)
+            : Collections.nCopies(batch.size(), rejection);
+    }
+
+    @Override
+    public String executeBatch(List<Command> batch, boolean isAtomic) {
+        CommandResult rejection = tryAcquire(batch);
+
+        return rejection == null
+            ? executor.executeBatch(batch, isAtomic)
+            : JsonResponses.ofBatch(Collections.nCopies(batch.size(), rejection), false);
+    }
+
+    @Override
+    public void execute(Command cmd, boolean embedsData, JsonWriter out) throws IOException {
+        long retryAfterMillis = tryAcquire(cmd);
+
+        if (retryAfterMillis > 0) {
+            JsonResponses.write(out, CommandResult.ofError(RateLimitedResponses.message(retryAfterMillis)), embedsData);
+        } else {
+            executor.execute(cmd, embedsData, out);
+        }
+    }
+
+    @Override
+    public void executeBatch(List<Command> batch, boolean isAtomic, boolean embedsData, JsonWriter out)
+        throws IOException {
+        CommandResult rejection = tryAcquire(batch);
+
+        if (rejection == null) {
+            executor.executeBatch(batch, isAtomic, embedsData, out);
+        } else {
+            JsonResponses.writeBatch(out, Collections.nCopies(batch.size(), rejection), embedsData);
+        }
+    }
+
+    /**
+     * Charges the tokens of each owner's commands at once, so a rejected batch costs nothing. The commands of a
+     * batch request all have the owner of its auth token.
+     *
+     * @return the error every command of the batch is answered with, null if the batch may run
+     */
+    private CommandResult tryAcquire(List<Command> batch) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (Command cmd : batch) {
+            if (cmd != null && cmd.owner() != null) {
+                counts.merge(cmd.owner(), 1, Integer::sum);
+            }
+        }
+
+        for (int count : counts.values()) {
+            if (count > ownerLimiter.burst()) {
+                LOGGER.log(Level.DEBUG, String.format("Rejected a batch of %d commands over the burst", count));
+                return CommandResult.ofError(String.format(BATCH_OVER_BURST_FORMAT, count, ownerLimiter.burst()));
+            }
+        }
+
+        for (var entry : counts.entrySet()) {
+            long retryAfterMillis = ownerLimiter.tryAcquire(entry.getKey(), entry.getValue());
+
+            if (retryAfterMillis > 0) {
+                LOGGER.log(Level.DEBUG, String.format("Rate limited a batch of %d commands", entry.getValue()));
+                return CommandResult.ofError(RateLimitedResponses.message(retryAfterMillis));
+            }
+        }
+
+        return null;
+    }
+
+    private long tryAcquire(Command cmd) {
+        Objects.requireNonNull(cmd, "Command cannot be null");
+
+        if (cmd.owner() == null) {
+            return 0;
+        }
+
+        long retryAfterMillis = ownerLimiter.tryAcquire(cmd.owner());
+
+        if (retryAfterMillis > 0) {
+            LOGGER.log(Level.DEBUG, String.format("Rate limited a \"%s\" command", cmd.name()));
+        }
+
+        return retryAfterMillis;
+    }
+}
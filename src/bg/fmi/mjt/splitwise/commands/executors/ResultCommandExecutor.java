@@ -0,0 +1,47 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An executor that can also hand out the result before it is serialized, for wire formats other than JSON.
+ */
+public interface ResultCommandExecutor extends CommandExecutor {
+
+    CommandResult executeForResult(Command cmd);
+
+    /**
+     * Runs the commands in order. An atomic batch stops at the first failing command and undoes the ones before it.
+     *
+     * @return a result for every command of the batch, in its order
+     */
+    List<CommandResult> executeBatchForResults(List<Command> batch, boolean isAtomic);
+
+    /**
+     * Same as {@link #executeBatchForResults(List, boolean)}, serialized as a JSON array of responses.
+     */
+    String executeBatch(List<Command> batch, boolean isAtomic);
+
+    /**
+     * Same as {@link #execute(Command)}, streamed into the writer instead of built as a string.
+     *
+     * @param embedsData whether the data is nested as JSON rather than sent as a JSON string
+     */
+    default void execute(Command cmd, boolean embedsData, JsonWriter out) throws IOException {
+        JsonResponses.write(out, executeForResult(cmd), embedsData);
+    }
+
+    /**
+     * Same as {@link #executeBatch(List, boolean)}, streamed into the writer instead of built as a string.
+     */
+    default void executeBatch(List<Command> batch, boolean isAtomic, boolean embedsData, JsonWriter out)
+        throws IOException {
+        JsonResponses.writeBatch(out, executeBatchForResults(batch, isAtomic), embedsData);
+    }
+
+}
@@ -1,61 +1,51 @@
 package bg.fmi.mjt.splitwise.commands.executors;
 
 import bg.fmi.mjt.splitwise.commands.Command;
-import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.AddFriend;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.CreateGroup;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.GetPaymentHistory;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.GetStatus;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.Login;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.Logout;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.Payed;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.Register;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.Split;
+import bg.fmi.mjt.splitwise.commands.arguments.Arguments.SplitGroup;
 import bg.fmi.mjt.splitwise.commands.validators.CommandValidator;
-import bg.fmi.mjt.splitwise.gson.adapters.LocalDateTimeAdapter;
 import bg.fmi.mjt.splitwise.logger.Level;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
-import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
 import bg.fmi.mjt.splitwise.responses.LoginSuccessResponse;
 import bg.fmi.mjt.splitwise.responses.OwesResponse;
 import bg.fmi.mjt.splitwise.responses.Payment;
 import bg.fmi.mjt.splitwise.responses.PaymentHistoryResponse;
 import bg.fmi.mjt.splitwise.service.Service;
 import bg.fmi.mjt.splitwise.service.exceptions.ServiceException;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
-import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.ADD_FRIEND_FRIEND_USERNAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.CREATE_CROUP_GROUP_NAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.CREATE_CROUP_USERNAMES_START_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.LOGIN_PASSWORD_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.LOGIN_USERNAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.PAYED_AMOUNT_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.PAYED_FRIEND_USERNAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.REGISTER_PASSWORD_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.REGISTER_USERNAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_AMOUNT_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_FRIEND_USERNAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_GROUP_AMOUNT_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_GROUP_NAME_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_GROUP_REASON_FOR_PAYMENT_INDEX;
-import static bg.fmi.mjt.splitwise.commands.CommandType.Indexes.SPLIT_REASON_FOR_PAYMENT_INDEX;
-
-public class ServerCommandExecutor implements CommandExecutor {
-
-    private static final Gson GSON =
-        new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+
+
+public class ServerCommandExecutor implements ResultCommandExecutor {
 
     private static final String LOGGER_DEBUG_COMMAND_FORMAT = "Executing \"%s\" command...";
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerCommandExecutor.class);
 
     private static final String INVALID_COMMAND_MESSAGE = "This command is invalid!";
-    private static final String INVALID_COMMAND_RESPONSE = new Gson().toJson(
-        CommandResponse.ofError(INVALID_COMMAND_MESSAGE)
-    );
-    private static final String SUCCESSFUL_COMMAND_RESPONSE = new Gson().toJson(
-        CommandResponse.ofSuccess()
-    );
+    private static final CommandResult INVALID_COMMAND_RESULT = CommandResult.ofError(INVALID_COMMAND_MESSAGE);
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final CommandResult BATCH_TOO_LARGE_RESULT =
+        CommandResult.ofError("A batch can have at most " + MAX_BATCH_SIZE + " commands!");
+    private static final String NOT_BATCHABLE_FORMAT = "The \"%s\" command cannot be batched!";
+    private static final String ROLLED_BACK_FORMAT = "Rolled back because command %d of the batch failed";
+    private static final String NOT_EXECUTED_FORMAT = "Not executed because command %d of the batch failed";
 
     private final CommandValidator validator;
     private final Service service;
@@ -68,189 +58,228 @@ public class ServerCommandExecutor implements CommandExecutor {
 
     @Override
     public String execute(Command cmd) {
+        return JsonResponses.of(executeForResult(cmd), false);
+    }
+
+    @Override
+    public CommandResult executeForResult(Command cmd) {
         Objects.requireNonNull(cmd, "Command cannot be null");
 
         if (!validator.isValid(cmd)) {
-            return INVALID_COMMAND_RESPONSE;
+            return INVALID_COMMAND_RESULT;
         }
 
         return dispatch(cmd);
     }
 
-    private String dispatch(Command cmd) {
-        return switch (CommandType.fromString(cmd.name())) {
-            case ADD_FRIEND -> addFriend(cmd);
-            case CREATE_GROUP -> createGroup(cmd);
-            case GET_STATUS -> getStatus(cmd);
-            case LOGIN -> login(cmd);
-            case LOGOUT -> logout(cmd);
-            case PAYED -> payed(cmd);
-            case REGISTER -> register(cmd);
-            case SPLIT -> split(cmd);
-            case SPLIT_GROUP -> splitGroup(cmd);
-            case GET_PAYMENT_HISTORY -> getPaymentHistory(cmd);
-            default -> INVALID_COMMAND_RESPONSE;
-        };
+    @Override
+    public String executeBatch(List<Command> batch, boolean isAtomic) {
+        return JsonResponses.ofBatch(executeBatchForResults(batch, isAtomic), false);
     }
 
-    private String addFriend(Command cmd) {
-        LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "addFriend"));
+    @Override
+    public List<CommandResult> executeBatchForResults(List<Command> batch, boolean isAtomic) {
+        Objects.requireNonNull(batch, "Batch cannot be null");
+
+        if (batch.size() > MAX_BATCH_SIZE) {
+            return Collections.nCopies(batch.size(), BATCH_TOO_LARGE_RESULT);
+        }
+
+        LOGGER.log(Level.DEBUG, String.format("Executing a batch of %d commands...", batch.size()));
 
-        String friendUsername = cmd.args()[ADD_FRIEND_FRIEND_USERNAME_INDEX];
+        return isAtomic ? executeAtomically(batch) : batch.stream().map(this::executeInBatch).toList();
+    }
+
+    private List<CommandResult> executeAtomically(List<Command> batch) {
+        List<CommandResult> results = new ArrayList<>(batch.size());
+
+        boolean isCommitted = service.runAtomically(() -> {
+            for (Command cmd : batch) {
+                results.add(executeInBatch(cmd));
+
+                if (!results.get(results.size() - 1).wasSuccessful()) {
+                    return false;
+                }
+            }
+
+            return true;
+        });
+
+        return isCommitted ? results : failedBatchResults(results, batch.size());
+    }
+
+    /**
+     * The failing command keeps its own result, the commands around it are told why they had no effect.
+     */
+    private static List<CommandResult> failedBatchResults(List<CommandResult> executed, int batchSize) {
+        int failedIndex = executed.size() - 1;
+        var rolledBack = CommandResult.ofError(String.format(ROLLED_BACK_FORMAT, failedIndex + 1));
+        var notExecuted = CommandResult.ofError(String.format(NOT_EXECUTED_FORMAT, failedIndex + 1));
+
+        List<CommandResult> results = new ArrayList<>(Collections.nCopies(failedIndex, rolledBack));
+        results.add(executed.get(failedIndex));
+        results.addAll(Collections.nCopies(batchSize - failedIndex - 1, notExecuted));
+
+        return results;
+    }
+
+    /**
+     * Logging in and out change the session rather than the data, so they have no place in a batch.
+     */
+    private CommandResult executeInBatch(Command cmd) {
+        if (cmd == null || !validator.isValid(cmd)) {
+            return INVALID_COMMAND_RESULT;
+        }
+
+        if (cmd.arguments() instanceof Login || cmd.arguments() instanceof Logout) {
+            return CommandResult.ofError(String.format(NOT_BATCHABLE_FORMAT, cmd.name()));
+        }
+
+        return dispatch(cmd);
+    }
+
+    private CommandResult dispatch(Command cmd) {
+        Arguments args = cmd.arguments();
+        String owner = cmd.owner();
+
+        if (args instanceof AddFriend addFriend) {
+            return addFriend(owner, addFriend);
+        } else if (args instanceof CreateGroup createGroup) {
+            return createGroup(owner, createGroup);
+        } else if (args instanceof GetStatus) {
+            return getStatus(owner);
+        } else if (args instanceof Login login) {
+            return login(login);
+        } else if (args instanceof Logout) {
+            return logout(owner);
+        } else if (args instanceof Payed payed) {
+            return payed(owner, payed);
+        } else if (args instanceof Register register) {
+            return register(register);
+        } else if (args instanceof Split split) {
+            return split(owner, split);
+        } else if (args instanceof SplitGroup splitGroup) {
+            return splitGroup(owner, splitGroup);
+        } else if (args instanceof GetPaymentHistory) {
+            return getPaymentHistory(owner);
+        }
+
+        return INVALID_COMMAND_RESULT;
+    }
+
+    private CommandResult addFriend(String owner, AddFriend args) {
+        LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "addFriend"));
 
         try {
-            service.addFriend(cmd.owner(), friendUsername);
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.addFriend(owner, args.friendUsername());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String createGroup(Command cmd) {
+    private CommandResult createGroup(String owner, CreateGroup args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "createGroup"));
 
-        String groupName = cmd.args()[CREATE_CROUP_GROUP_NAME_INDEX];
-        Set<String> friendUsernames = Arrays.stream(cmd.args())
-                                            .skip(CREATE_CROUP_USERNAMES_START_INDEX)
-                                            .collect(Collectors.toSet());
         try {
-            service.createGroup(
-                cmd.owner(),
-                groupName,
-                friendUsernames
-            );
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.createGroup(owner, args.groupName(), args.usernames());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String getStatus(Command cmd) {
+    private CommandResult getStatus(String owner) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "getStatus"));
 
         try {
-            Map<String, Double> debts = service.getStatus(cmd.owner());
-
-            String data = GSON.toJson(new OwesResponse(debts));
+            Map<String, Double> debts = service.getStatus(owner);
 
-            return GSON.toJson(CommandResponse.ofSuccess(data));
+            return CommandResult.ofSuccess(new OwesResponse(debts));
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String login(Command cmd) {
+    private CommandResult login(Login args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "login"));
 
-        String username = cmd.args()[LOGIN_USERNAME_INDEX];
-        String password = cmd.args()[LOGIN_PASSWORD_INDEX];
-
-        String authToken;
-
         try {
-            authToken = service.login(username, password);
+            String authToken = service.login(args.username(), args.password());
 
             List<String> notifications = service.getAndDeleteNotifications(authToken);
 
-            var data = GSON.toJson(new LoginSuccessResponse(authToken, notifications));
-
-            return GSON.toJson(CommandResponse.ofSuccess(data));
+            return CommandResult.ofSuccess(new LoginSuccessResponse(authToken, notifications));
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String logout(Command cmd) {
+    private CommandResult logout(String owner) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "logout"));
 
-        service.logout(cmd.owner());
-        return SUCCESSFUL_COMMAND_RESPONSE;
+        service.logout(owner);
+        return CommandResult.ofSuccess();
     }
 
-    private String payed(Command cmd) {
+    private CommandResult payed(String owner, Payed args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "payed"));
 
-        double amount = Double.parseDouble(cmd.args()[PAYED_AMOUNT_INDEX]);
-        String friendUsername = cmd.args()[PAYED_FRIEND_USERNAME_INDEX];
-
         try {
-            service.payed(cmd.owner(), friendUsername, amount);
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.payed(owner, args.friendUsername(), args.amount().levs());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String register(Command cmd) {
+    private CommandResult register(Register args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "register"));
 
-        String username = cmd.args()[REGISTER_USERNAME_INDEX];
-        String password = cmd.args()[REGISTER_PASSWORD_INDEX];
-
         try {
-            service.register(username, password);
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.register(args.username(), args.password());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String split(Command cmd) {
+    private CommandResult split(String owner, Split args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "split"));
 
-        double amount = Double.parseDouble(cmd.args()[SPLIT_AMOUNT_INDEX]);
-        String friendUsername = cmd.args()[SPLIT_FRIEND_USERNAME_INDEX];
-        String reason = cmd.args()[SPLIT_REASON_FOR_PAYMENT_INDEX];
-
         try {
-            service.split(
-                cmd.owner(),
-                friendUsername,
-                amount,
-                reason
-            );
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.split(owner, args.friendUsername(), args.amount().levs(), args.reason());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String splitGroup(Command cmd) {
+    private CommandResult splitGroup(String owner, SplitGroup args) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "splitGroup"));
 
-        double amount = Double.parseDouble(cmd.args()[SPLIT_GROUP_AMOUNT_INDEX]);
-        String groupName = cmd.args()[SPLIT_GROUP_NAME_INDEX];
-        String reason = cmd.args()[SPLIT_GROUP_REASON_FOR_PAYMENT_INDEX];
-
         try {
-            service.splitGroup(
-                cmd.owner(),
-                groupName,
-                amount,
-                reason
-            );
-            return SUCCESSFUL_COMMAND_RESPONSE;
+            service.splitGroup(owner, args.groupName(), args.amount().levs(), args.reason());
+            return CommandResult.ofSuccess();
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
-    private String getPaymentHistory(Command cmd) {
+    private CommandResult getPaymentHistory(String owner) {
         LOGGER.log(Level.DEBUG, String.format(LOGGER_DEBUG_COMMAND_FORMAT, "getPaymentHistory"));
 
         try {
-            List<bg.fmi.mjt.splitwise.storage.models.Payment> payments = service.getPaymentHistory(cmd.owner());
+            List<bg.fmi.mjt.splitwise.storage.models.Payment> payments = service.getPaymentHistory(owner);
 
             var responsePayments =
                 payments.stream()
                         .map(payment -> new Payment(payment.toId(), payment.levs(), payment.datePayed()))
                         .toList();
 
-            var data = GSON.toJson(new PaymentHistoryResponse(responsePayments));
-
-            return GSON.toJson(CommandResponse.ofSuccess(data));
+            return CommandResult.ofSuccess(new PaymentHistoryResponse(responsePayments));
         } catch (ServiceException e) {
-            return GSON.toJson(CommandResponse.ofError(e.getMessage()));
+            return CommandResult.ofError(e.getMessage());
         }
     }
 
@@ -0,0 +1,50 @@
+package bg.fmi.mjt.splitwise.gson;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.gson.adapters.CommandAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.CommandRequestAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.CommandResponseAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.GroupAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.LocalDateTimeAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.PaymentAdapter;
+import bg.fmi.mjt.splitwise.gson.adapters.UserAdapter;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import bg.fmi.mjt.splitwise.storage.models.Group;
+import bg.fmi.mjt.splitwise.storage.models.Payment;
+import bg.fmi.mjt.splitwise.storage.models.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * The Gson shared by the protocol and the storage. Gson is thread-safe, so it is built once, with a streaming
+ * adapter for every type that goes over the wire or to the disk, so none of them is handled through reflection.
+ */
+public final class Gsons {
+
+    private static final Gson SHARED = create();
+
+    private Gsons() {
+    }
+
+    public static Gson shared() {
+        return SHARED;
+    }
+
+    private static Gson create() {
+        var commandAdapter = new CommandAdapter();
+
+        return new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Command.class, commandAdapter.nullSafe())
+            .registerTypeAdapter(CommandRequest.class, new CommandRequestAdapter(commandAdapter).nullSafe())
+            .registerTypeAdapter(CommandResponse.class, new CommandResponseAdapter().nullSafe())
+            .registerTypeAdapter(User.class, new UserAdapter().nullSafe())
+            .registerTypeAdapter(Group.class, new GroupAdapter().nullSafe())
+            .registerTypeAdapter(Payment.class, new PaymentAdapter().nullSafe())
+            .create();
+    }
+
+}
@@ -0,0 +1,41 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class CommandAdapter extends TypeAdapter<Command> {
+
+    @Override
+    public void write(JsonWriter out, Command command) throws IOException {
+        out.beginObject();
+        out.name("owner").value(command.owner());
+        out.name("name").value(command.name());
+        out.name("args");
+        JsonValues.writeStrings(out, command.args());
+        out.endObject();
+    }
+
+    @Override
+    public Command read(JsonReader in) throws IOException {
+        String owner = null;
+        String name = null;
+        String[] args = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "owner" -> owner = JsonValues.nextString(in);
+                case "name" -> name = JsonValues.nextString(in);
+                case "args" -> args = JsonValues.nextStringArray(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new Command(owner, name, args);
+    }
+}
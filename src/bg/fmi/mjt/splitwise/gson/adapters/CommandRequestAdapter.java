@@ -0,0 +1,92 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandRequestAdapter extends TypeAdapter<CommandRequest> {
+
+    private final TypeAdapter<Command> commandAdapter;
+
+    public CommandRequestAdapter(TypeAdapter<Command> commandAdapter) {
+        this.commandAdapter = commandAdapter.nullSafe();
+    }
+
+    @Override
+    public void write(JsonWriter out, CommandRequest request) throws IOException {
+        out.beginObject();
+        out.name("command");
+        commandAdapter.write(out, request.getCommand());
+        out.name("batch");
+        writeBatch(out, request.getBatch());
+        out.name("isAtomic").value(request.isAtomic());
+        out.name("embedsData").value(request.embedsData());
+        out.name("authToken").value(request.getAuthToken());
+        out.endObject();
+    }
+
+    @Override
+    public CommandRequest read(JsonReader in) throws IOException {
+        Command command = null;
+        List<Command> batch = null;
+        boolean isAtomic = false;
+        boolean embedsData = false;
+        String authToken = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "command" -> command = commandAdapter.read(in);
+                case "batch" -> batch = readBatch(in);
+                case "isAtomic" -> isAtomic = in.nextBoolean();
+                case "embedsData" -> embedsData = in.nextBoolean();
+                case "authToken" -> authToken = JsonValues.nextString(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        var request = batch == null
+            ? new CommandRequest(command, authToken)
+            : CommandRequest.ofBatch(batch, isAtomic, authToken);
+
+        return request.withEmbeddedData(embedsData);
+    }
+
+    private void writeBatch(JsonWriter out, List<Command> batch) throws IOException {
+        if (batch == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        for (Command command : batch) {
+            commandAdapter.write(out, command);
+        }
+        out.endArray();
+    }
+
+    private List<Command> readBatch(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        List<Command> batch = new ArrayList<>();
+
+        in.beginArray();
+        while (in.hasNext()) {
+            batch.add(commandAdapter.read(in));
+        }
+        in.endArray();
+
+        return batch;
+    }
+}
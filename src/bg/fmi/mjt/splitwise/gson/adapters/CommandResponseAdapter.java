@@ -0,0 +1,65 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+public class CommandResponseAdapter extends TypeAdapter<CommandResponse> {
+
+    @Override
+    public void write(JsonWriter out, CommandResponse response) throws IOException {
+        out.beginObject();
+        out.name("wasSuccessful").value(response.wasSuccessful());
+        out.name("errorMessage").value(response.getErrorMessage());
+        out.name("data");
+
+        if (response.isDataEmbedded()) {
+            out.jsonValue(response.getData());
+        } else {
+            out.value(response.getData());
+        }
+
+        out.endObject();
+    }
+
+    @Override
+    public CommandResponse read(JsonReader in) throws IOException {
+        boolean wasSuccessful = false;
+        String errorMessage = null;
+        JsonElement data = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "wasSuccessful" -> wasSuccessful = in.nextBoolean();
+                case "errorMessage" -> errorMessage = JsonValues.nextString(in);
+                case "data" -> data = nextData(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (!wasSuccessful) {
+            return CommandResponse.ofError(errorMessage);
+        }
+
+        return data != null && data.isJsonPrimitive()
+            ? CommandResponse.ofSuccess(data.getAsString())
+            : CommandResponse.ofEmbedded(data);
+    }
+
+    private static JsonElement nextData(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        return JsonParser.parseReader(in);
+    }
+}
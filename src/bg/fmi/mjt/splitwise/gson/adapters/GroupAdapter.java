@@ -0,0 +1,39 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.storage.models.Group;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Set;
+
+public class GroupAdapter extends TypeAdapter<Group> {
+
+    @Override
+    public void write(JsonWriter out, Group group) throws IOException {
+        out.beginObject();
+        out.name("groupName").value(group.groupName());
+        out.name("participantIds");
+        JsonValues.writeStrings(out, group.participantIds());
+        out.endObject();
+    }
+
+    @Override
+    public Group read(JsonReader in) throws IOException {
+        String groupName = null;
+        Set<String> participantIds = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "groupName" -> groupName = JsonValues.nextString(in);
+                case "participantIds" -> participantIds = JsonValues.nextStringSet(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new Group(groupName, participantIds);
+    }
+}
@@ -0,0 +1,121 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Reading and writing of the values the adapters share. Null values are read as null, like Gson's reflective
+ * adapters do, and written as null, which the writer drops from objects unless it serializes nulls.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        return in.nextString();
+    }
+
+    static void writeStrings(JsonWriter out, Collection<String> values) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    static void writeStrings(JsonWriter out, String[] values) throws IOException {
+        writeStrings(out, values == null ? null : List.of(values));
+    }
+
+    static Set<String> nextStringSet(JsonReader in) throws IOException {
+        return nextStrings(in, LinkedHashSet::new);
+    }
+
+    static List<String> nextStringList(JsonReader in) throws IOException {
+        return nextStrings(in, ArrayList::new);
+    }
+
+    static String[] nextStringArray(JsonReader in) throws IOException {
+        List<String> values = nextStringList(in);
+
+        return values == null ? null : values.toArray(String[]::new);
+    }
+
+    static void writeDoubles(JsonWriter out, Map<String, Double> values) throws IOException {
+        if (values == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        for (var entry : values.entrySet()) {
+            out.name(entry.getKey()).value(entry.getValue());
+        }
+        out.endObject();
+    }
+
+    static Map<String, Double> nextDoubles(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Map<String, Double> values = new LinkedHashMap<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                values.put(key, null);
+            } else {
+                values.put(key, in.nextDouble());
+            }
+        }
+        in.endObject();
+
+        return values;
+    }
+
+    private static <C extends Collection<String>> C nextStrings(JsonReader in, Supplier<C> factory)
+        throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        C values = factory.get();
+
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(nextString(in));
+        }
+        in.endArray();
+
+        return values;
+    }
+
+}
@@ -0,0 +1,50 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.storage.models.Payment;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+public class PaymentAdapter extends TypeAdapter<Payment> {
+
+    private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+
+    @Override
+    public void write(JsonWriter out, Payment payment) throws IOException {
+        out.beginObject();
+        out.name("id").value(payment.id());
+        out.name("fromId").value(payment.fromId());
+        out.name("toId").value(payment.toId());
+        out.name("levs").value(payment.levs());
+        out.name("datePayed");
+        dateAdapter.write(out, payment.datePayed());
+        out.endObject();
+    }
+
+    @Override
+    public Payment read(JsonReader in) throws IOException {
+        String id = null;
+        String fromId = null;
+        String toId = null;
+        double levs = 0;
+        LocalDateTime datePayed = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" -> id = JsonValues.nextString(in);
+                case "fromId" -> fromId = JsonValues.nextString(in);
+                case "toId" -> toId = JsonValues.nextString(in);
+                case "levs" -> levs = in.nextDouble();
+                case "datePayed" -> datePayed = dateAdapter.read(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new Payment(id, fromId, toId, levs, datePayed);
+    }
+}
@@ -0,0 +1,62 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.storage.models.User;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UserAdapter extends TypeAdapter<User> {
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        out.beginObject();
+        out.name("username").value(user.username());
+        out.name("password").value(user.password());
+        out.name("friendIds");
+        JsonValues.writeStrings(out, user.friendIds());
+        out.name("groupNames");
+        JsonValues.writeStrings(out, user.groupNames());
+        out.name("paymentIds");
+        JsonValues.writeStrings(out, user.paymentIds());
+        out.name("unreadNotifications");
+        JsonValues.writeStrings(out, user.unreadNotifications());
+        out.name("friendsIdsToLevsOwed");
+        JsonValues.writeDoubles(out, user.friendsIdsToLevsOwed());
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        String username = null;
+        String password = null;
+        Set<String> friendIds = null;
+        Set<String> groupNames = null;
+        Set<String> paymentIds = null;
+        List<String> unreadNotifications = null;
+        Map<String, Double> friendsIdsToLevsOwed = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "username" -> username = JsonValues.nextString(in);
+                case "password" -> password = JsonValues.nextString(in);
+                case "friendIds" -> friendIds = JsonValues.nextStringSet(in);
+                case "groupNames" -> groupNames = JsonValues.nextStringSet(in);
+                case "paymentIds" -> paymentIds = JsonValues.nextStringSet(in);
+                case "unreadNotifications" -> unreadNotifications = JsonValues.nextStringList(in);
+                case "friendsIdsToLevsOwed" -> friendsIdsToLevsOwed = JsonValues.nextDoubles(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return new User(
+            username, password, friendIds, groupNames, paymentIds, unreadNotifications, friendsIdsToLevsOwed
+        );
+    }
+}
@@ -1,20 +1,29 @@
 package bg.fmi.mjt.splitwise.handlers;
 
 import bg.fmi.mjt.splitwise.commands.Command;
-import bg.fmi.mjt.splitwise.commands.executors.CommandExecutor;
+import bg.fmi.mjt.splitwise.commands.executors.ResultCommandExecutor;
+import bg.fmi.mjt.splitwise.gson.Gsons;
 import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
 import java.util.Objects;
 
 
-public class DefaultServerInputHandler implements InputHander {
+public class DefaultServerInputHandler implements InputHander, RequestHandler, StreamingHandler {
 
-    private final Gson gson = new Gson();
+    private final Gson gson = Gsons.shared();
 
-    private final CommandExecutor executor;
+    private final ResultCommandExecutor executor;
 
-    public DefaultServerInputHandler(CommandExecutor executor) {
+    public DefaultServerInputHandler(ResultCommandExecutor executor) {
         this.executor = executor;
     }
 
@@ -24,6 +33,63 @@ public class DefaultServerInputHandler implements InputHander {
 
         CommandRequest request = gson.fromJson(input, CommandRequest.class);
 
-        return executor.execute(Command.ofNewOwner(request.getCommand(), request.getAuthToken()));
+        if (request.isBatch()) {
+            List<Command> batch = ownedBy(request.getBatch(), request.getAuthToken());
+
+            return request.embedsData()
+                ? JsonResponses.ofBatch(executor.executeBatchForResults(batch, request.isAtomic()), true)
+                : executor.executeBatch(batch, request.isAtomic());
+        }
+
+        Command cmd = Command.ofNewOwner(request.getCommand(), request.getAuthToken());
+
+        return request.embedsData() ? executeEmbeddingData(cmd) : executor.execute(cmd);
+    }
+
+    /**
+     * The response goes through a {@link JsonWriter}, it is never built as a string.
+     */
+    @Override
+    public void handle(String input, Writer out) throws IOException {
+        Objects.requireNonNull(input, "input cannot be null");
+
+        CommandRequest request = gson.fromJson(input, CommandRequest.class);
+        JsonWriter writer = gson.newJsonWriter(out);
+
+        if (request.isBatch()) {
+            List<Command> batch = ownedBy(request.getBatch(), request.getAuthToken());
+            executor.executeBatch(batch, request.isAtomic(), request.embedsData(), writer);
+        } else {
+            Command cmd = Command.ofNewOwner(request.getCommand(), request.getAuthToken());
+            executor.execute(cmd, request.embedsData(), writer);
+        }
+
+        writer.flush();
+    }
+
+    @Override
+    public CommandResult handleRequest(CommandRequest request) {
+        Objects.requireNonNull(request, "request cannot be null");
+
+        return executor.executeForResult(Command.ofNewOwner(request.getCommand(), request.getAuthToken()));
+    }
+
+    /**
+     * Goes through the streaming execution, so decorators such as a cache see the format of the response.
+     */
+    private String executeEmbeddingData(Command cmd) {
+        var out = new StringWriter();
+
+        try (JsonWriter writer = gson.newJsonWriter(out)) {
+            executor.execute(cmd, true, writer);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    private static List<Command> ownedBy(List<Command> batch, String authToken) {
+        return batch.stream().map(cmd -> cmd == null ? null : Command.ofNewOwner(cmd, authToken)).toList();
     }
 }
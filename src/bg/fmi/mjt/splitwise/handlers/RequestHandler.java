@@ -0,0 +1,14 @@
+package bg.fmi.mjt.splitwise.handlers;
+
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+
+/**
+ * Handles requests that were already decoded from a wire format other than JSON.
+ * An input handler that also implements this interface lets the server offer the binary protocol.
+ */
+public interface RequestHandler {
+
+    CommandResult handleRequest(CommandRequest request);
+
+}
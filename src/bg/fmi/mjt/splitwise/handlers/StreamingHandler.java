@@ -0,0 +1,14 @@
+package bg.fmi.mjt.splitwise.handlers;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Handles JSON input by writing the output as it is produced, rather than building it as a string first.
+ * The server streams the responses of an input handler that also implements this interface into their frames.
+ */
+public interface StreamingHandler {
+
+    void handle(String input, Writer out) throws IOException;
+
+}
@@ -0,0 +1,89 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.metrics.exceptions.MetricsException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An HTTP listener on its own port that serves the metrics to Prometheus on {@code GET /metrics}.
+ * It is meant for operators only, so it should be bound to a local address. Scrapes are answered one at a time
+ * by a single daemon thread.
+ */
+public class AdminEndpoint {
+
+    public static final String METRICS_PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int OK = 200;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int NO_BODY = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminEndpoint.class);
+
+    private final Metrics metrics;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    public AdminEndpoint(String hostname, int port, Metrics metrics) {
+        this.metrics = metrics;
+
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(hostname, port), 0);
+        } catch (IOException e) {
+            throw new MetricsException(String.format("Cannot bind the admin endpoint to %s:%d", hostname, port), e);
+        }
+
+        executor = Executors.newSingleThreadExecutor(r -> {
+            var thread = new Thread(r, "splitwise-admin");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        httpServer.setExecutor(executor);
+        httpServer.createContext(METRICS_PATH, this::handleMetrics);
+    }
+
+    public int port() {
+        return httpServer.getAddress().getPort();
+    }
+
+    public void start() {
+        httpServer.start();
+
+        LOGGER.log(Level.INFO, String.format("Admin endpoint listening on port %d", port()));
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, NO_BODY);
+                return;
+            }
+
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations into fixed buckets. Observing is lock-free, a scrape running at the same time may see
+ * an observation in the count but not yet in the sum. Thread-safe.
+ */
+public final class Histogram {
+
+    /**
+     * Upper bounds in seconds, from half a millisecond for in-memory commands to seconds for disk syncs.
+     */
+    static final double[] DEFAULT_BOUNDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5
+    };
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double[] bounds;
+    private final long[] boundsNanos;
+
+    // the last bucket counts the observations above every bound
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.boundsNanos = Arrays.stream(bounds).mapToLong(b -> (long) (b * NANOS_PER_SECOND)).toArray();
+        this.buckets = new LongAdder[bounds.length + 1];
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observeNanos(long nanos) {
+        int bucket = Arrays.binarySearch(boundsNanos, nanos);
+
+        buckets[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    public long count() {
+        long count = 0;
+
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    double sumSeconds() {
+        return sumNanos.sum() / NANOS_PER_SECOND;
+    }
+
+    double[] bounds() {
+        return bounds;
+    }
+
+    /**
+     * @return for every bound the observations at most that long, and last the count of all of them
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+
+        return counts;
+    }
+
+}
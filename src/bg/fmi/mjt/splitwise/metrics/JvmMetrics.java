@@ -0,0 +1,44 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Thread, heap and garbage collection statistics of the running JVM.
+ */
+public final class JvmMetrics {
+
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private JvmMetrics() {
+    }
+
+    public static void register(Metrics metrics) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        metrics.gauge("jvm_threads_live", "Live threads", threads::getThreadCount);
+        metrics.gauge("jvm_threads_daemon", "Live daemon threads", threads::getDaemonThreadCount);
+        metrics.gauge("jvm_threads_peak", "Most live threads since the start", threads::getPeakThreadCount);
+
+        metrics.gauge("jvm_memory_heap_used_bytes", "Used heap", () -> memory.getHeapMemoryUsage().getUsed());
+        metrics.gauge(
+            "jvm_memory_heap_committed_bytes", "Heap committed by the OS",
+            () -> memory.getHeapMemoryUsage().getCommitted()
+        );
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            metrics.gauge(
+                "jvm_gc_collections_total", "Collections run by the collector", collector::getCollectionCount,
+                "gc", collector.getName()
+            );
+            metrics.gauge(
+                "jvm_gc_collection_seconds_total", "Time spent in the collector",
+                () -> collector.getCollectionTime() / MILLIS_PER_SECOND, "gc", collector.getName()
+            );
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A registry of the server's metrics, scraped in the Prometheus text format.
+ * Metrics are identified by their name and labels, the labels given as alternating names and values.
+ * Asking twice for the same one returns the same instance. Thread-safe.
+ */
+public final class Metrics {
+
+    private static final String COUNTER = "counter";
+    private static final String GAUGE = "gauge";
+    private static final String HISTOGRAM = "histogram";
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, COUNTER).series().computeIfAbsent(render(labels), l -> new LongAdder());
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, HISTOGRAM).series()
+            .computeIfAbsent(render(labels), l -> new Histogram(Histogram.DEFAULT_BOUNDS));
+    }
+
+    /**
+     * @param value read on every scrape, from the scraping thread
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, GAUGE).series().put(render(labels), value);
+    }
+
+    /**
+     * @return every metric in the text exposition format, families sorted by name
+     */
+    public String scrape() {
+        var out = new StringBuilder();
+
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+
+            family.series().forEach((labels, metric) -> writeSeries(out, name, labels, metric));
+        });
+
+        return out.toString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException(String.format("%s is already registered as a %s", name, family.type()));
+        }
+
+        return family;
+    }
+
+    private static void writeSeries(StringBuilder out, String name, String labels, Object metric) {
+        if (metric instanceof LongAdder counter) {
+            writeSample(out, name, labels, counter.sum());
+        } else if (metric instanceof DoubleSupplier gauge) {
+            writeSample(out, name, labels, gauge.getAsDouble());
+        } else if (metric instanceof Histogram histogram) {
+            writeHistogram(out, name, labels, histogram);
+        }
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        double[] bounds = histogram.bounds();
+        long[] counts = histogram.cumulativeCounts();
+        String labelPrefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+
+        for (int i = 0; i < bounds.length; i++) {
+            String bound = BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString();
+            writeSample(out, name + "_bucket", labelPrefix + "le=\"" + bound + "\"}", counts[i]);
+        }
+
+        writeSample(out, name + "_bucket", labelPrefix + "le=\"+Inf\"}", counts[bounds.length]);
+        writeSample(out, name + "_sum", labels, histogram.sumSeconds());
+        writeSample(out, name + "_count", labels, counts[bounds.length]);
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+
+        out.append('\n');
+    }
+
+    private static String render(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must come in name and value pairs");
+        }
+
+        if (labels.length == 0) {
+            return "";
+        }
+
+        var out = new StringBuilder("{");
+
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+
+        return out.append('}').toString();
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private record Family(String type, String help, Map<String, Object> series) {
+
+        Family(String type, String help) {
+            this(type, help, new ConcurrentSkipListMap<>());
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package bg.fmi.mjt.splitwise.metrics.exceptions;
+
+public class MetricsException extends RuntimeException {
+
+    public MetricsException(String message) {
+        super(message);
+    }
+
+    public MetricsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
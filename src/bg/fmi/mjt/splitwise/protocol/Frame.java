@@ -0,0 +1,26 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @param correlationId the id the client gave the request, echoed back in its response
+ * @param flags         see the FLAG_ constants in {@link Frames}
+ * @param payload       view of the payload bytes, see {@link FrameDecoder#next()} for how long it stays valid
+ */
+public record Frame(int correlationId, byte flags, ByteBuffer payload) {
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * @return a copy of the payload that stays valid after the decoder moves on
+     */
+    public byte[] payloadBytes() {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+
+        return bytes;
+    }
+
+}
@@ -0,0 +1,152 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Accumulates bytes from consecutive reads of a single connection and cuts them into frames.
+ * A read may contain a partial frame, exactly one frame or several frames, so frames are polled
+ * with {@link #next()} until it returns null.
+ * <p>
+ * The accumulator is taken from a {@link BufferPool} only while there are buffered bytes, so idle
+ * connections hold no buffer. Call {@link #release()} when the connection is closed.
+ */
+public class FrameDecoder {
+
+    private final BufferPool pool;
+    private final int maxPayloadSize;
+
+    // write mode, the unread bytes are [readPosition, position)
+    private ByteBuffer accumulator;
+    private int readPosition = 0;
+
+    public FrameDecoder() {
+        this(BufferPool.shared(), Frames.MAX_PAYLOAD_SIZE);
+    }
+
+    public FrameDecoder(int maxPayloadSize) {
+        this(BufferPool.shared(), maxPayloadSize);
+    }
+
+    public FrameDecoder(BufferPool pool, int maxPayloadSize) {
+        this.pool = pool;
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    /**
+     * Appends the remaining bytes of input. Invalidates the payload returned by the last {@link #next()}.
+     */
+    public void feed(ByteBuffer input) {
+        Objects.requireNonNull(input, "input cannot be null");
+
+        if (!input.hasRemaining()) {
+            return;
+        }
+
+        compact();
+        ensureCapacity(input.remaining());
+        accumulator.put(input);
+    }
+
+    /**
+     * @return the next complete frame, whose payload is valid until the next call to {@link #next()}
+     *     or {@link #feed(ByteBuffer)}, or null if no complete frame was accumulated yet
+     * @throws ProtocolException if the announced payload length is negative or too big
+     */
+    public Frame next() {
+        int available = buffered();
+
+        if (available == 0) {
+            release();
+            return null;
+        }
+
+        if (available < Integer.BYTES) {
+            return null;
+        }
+
+        int length = accumulator.getInt(readPosition);
+
+        if (length < 0 || length > maxPayloadSize) {
+            throw new ProtocolException(String.format("Invalid frame length: %d", length));
+        }
+
+        if (available < Frames.HEADER_SIZE + length) {
+            return null;
+        }
+
+        int correlationId = accumulator.getInt(readPosition + Frames.CORRELATION_ID_OFFSET);
+        byte flags = accumulator.get(readPosition + Frames.FLAGS_OFFSET);
+        ByteBuffer payload = accumulator.slice(readPosition + Frames.HEADER_SIZE, length);
+        readPosition += Frames.HEADER_SIZE + length;
+
+        return new Frame(correlationId, flags, payload);
+    }
+
+    /**
+     * @return the size of the frame being received as announced by its header, or the buffered bytes while the
+     *     header is incomplete, so a partial frame can be accounted for before its payload arrives
+     */
+    public int pendingFrameSize() {
+        int available = buffered();
+
+        if (available < Integer.BYTES) {
+            return available;
+        }
+
+        int length = accumulator.getInt(readPosition);
+
+        return length < 0 || length > maxPayloadSize ? available : Math.max(available, Frames.HEADER_SIZE + length);
+    }
+
+    public int buffered() {
+        return accumulator == null ? 0 : accumulator.position() - readPosition;
+    }
+
+    /**
+     * Returns the accumulator to the pool, dropping any buffered bytes.
+     */
+    public void release() {
+        if (accumulator != null) {
+            pool.release(accumulator);
+            accumulator = null;
+        }
+
+        readPosition = 0;
+    }
+
+    private void compact() {
+        if (accumulator == null || readPosition == 0) {
+            return;
+        }
+
+        accumulator.limit(accumulator.position())
+                   .position(readPosition);
+        accumulator.compact();
+        readPosition = 0;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (accumulator == null) {
+            accumulator = pool.acquire(additional);
+            return;
+        }
+
+        if (accumulator.remaining() >= additional) {
+            return;
+        }
+
+        int required = accumulator.position() + additional;
+        ByteBuffer bigger = pool.acquire(Math.max(required, 2 * accumulator.capacity()));
+
+        accumulator.flip();
+        bigger.put(accumulator);
+
+        pool.release(accumulator);
+        accumulator = bigger;
+    }
+
+}
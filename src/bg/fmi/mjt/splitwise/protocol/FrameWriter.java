@@ -0,0 +1,180 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes text as UTF-8 straight into the payload of a frame, in a buffer from the pool that is swapped for
+ * a bigger one whenever it fills up. Unlike an {@link java.io.OutputStreamWriter} it has no buffer of its own,
+ * so writing a response costs no allocation besides the growth of the frame. Unpaired surrogates are replaced.
+ * Not thread-safe.
+ */
+public final class FrameWriter extends Writer {
+
+    private static final int INITIAL_CAPACITY = BufferPool.SMALL_BUFFER_SIZE;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    private static final byte REPLACEMENT = '?';
+
+    private final int correlationId;
+    private final BufferPool pool;
+
+    private ByteBuffer frame;
+    private char highSurrogate = 0;
+
+    public FrameWriter(int correlationId, BufferPool pool) {
+        this.correlationId = correlationId;
+        this.pool = pool;
+        this.frame = pool.acquire(INITIAL_CAPACITY);
+
+        frame.position(Frames.HEADER_SIZE);
+    }
+
+    @Override
+    public void write(int c) {
+        put((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            put(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String str) {
+        write(str, 0, str.length());
+    }
+
+    @Override
+    public void write(String str, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            put(str.charAt(i));
+        }
+    }
+
+    @Override
+    public FrameWriter append(CharSequence csq) {
+        CharSequence chars = csq == null ? "null" : csq;
+
+        for (int i = 0; i < chars.length(); i++) {
+            put(chars.charAt(i));
+        }
+
+        return this;
+    }
+
+    public int payloadSize() {
+        return frame.position() - Frames.HEADER_SIZE + (highSurrogate == 0 ? 0 : 1);
+    }
+
+    /**
+     * Fills in the header and hands the frame over, it should be released once it is written.
+     */
+    public ByteBuffer toFrame() {
+        flushSurrogate();
+
+        frame.putInt(0, frame.position() - Frames.HEADER_SIZE);
+        frame.putInt(Frames.CORRELATION_ID_OFFSET, correlationId);
+        frame.put(Frames.FLAGS_OFFSET, Frames.NO_FLAGS);
+        frame.flip();
+
+        ByteBuffer written = frame;
+        frame = null;
+
+        return written;
+    }
+
+    /**
+     * Copies the payload out, for when it has to be transformed before it is framed.
+     */
+    public byte[] toPayloadBytes() {
+        flushSurrogate();
+
+        byte[] payload = new byte[frame.position() - Frames.HEADER_SIZE];
+        frame.get(Frames.HEADER_SIZE, payload);
+
+        return payload;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Gives the buffer back to the pool unless it was already handed over by {@link #toFrame()}.
+     */
+    @Override
+    public void close() {
+        if (frame != null) {
+            pool.release(frame);
+            frame = null;
+        }
+    }
+
+    private void put(char c) {
+        ensureRemaining();
+
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                putCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+
+            frame.put(REPLACEMENT);
+            ensureRemaining();
+        }
+
+        if (c < 0x80) {
+            frame.put((byte) c);
+        } else if (c < 0x800) {
+            frame.put((byte) (0xC0 | c >> 6));
+            frame.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            frame.put(REPLACEMENT);
+        } else {
+            frame.put((byte) (0xE0 | c >> 12));
+            frame.put((byte) (0x80 | c >> 6 & 0x3F));
+            frame.put((byte) (0x80 | c & 0x3F));
+        }
+    }
+
+    private void putCodePoint(int codePoint) {
+        frame.put((byte) (0xF0 | codePoint >> 18));
+        frame.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+        frame.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+        frame.put((byte) (0x80 | codePoint & 0x3F));
+    }
+
+    private void flushSurrogate() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            ensureRemaining();
+            frame.put(REPLACEMENT);
+        }
+    }
+
+    private void ensureRemaining() {
+        if (frame == null) {
+            throw new IllegalStateException("The frame was already handed over");
+        }
+
+        if (frame.remaining() >= MAX_BYTES_PER_CHAR) {
+            return;
+        }
+
+        ByteBuffer bigger = pool.acquire(frame.capacity() * 2);
+        bigger.put(frame.flip());
+
+        pool.release(frame);
+        frame = bigger;
+    }
+
+}
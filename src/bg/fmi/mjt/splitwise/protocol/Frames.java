@@ -0,0 +1,110 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Every message on the wire is a frame: a 4-byte big-endian payload length, a 4-byte correlation id, a flags
+ * byte and the payload itself. A response carries the correlation id of its request, so a client may have several
+ * requests in flight on one connection and match their responses in whatever order they complete.
+ * <p>
+ * A frame flagged with {@link #FLAG_HANDSHAKE} is not a request but a {@link Handshake}. A payload flagged with
+ * {@link #FLAG_COMPRESSED} is deflated, see {@link PayloadCompressor}. Any other frame with
+ * {@link #PUSH_CORRELATION_ID} is a text notification the server sent on its own.
+ */
+public final class Frames {
+
+    public static final int HEADER_SIZE = 2 * Integer.BYTES + Byte.BYTES;
+    public static final int CORRELATION_ID_OFFSET = Integer.BYTES;
+    public static final int FLAGS_OFFSET = 2 * Integer.BYTES;
+    public static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+    public static final int PUSH_CORRELATION_ID = 0;
+    public static final Charset TRANSPORTATION_CHARSET = StandardCharsets.UTF_8;
+
+    public static final byte NO_FLAGS = 0;
+    public static final byte FLAG_HANDSHAKE = 0x01;
+    public static final byte FLAG_COMPRESSED = 0x02;
+
+    private static final ThreadLocal<CharsetEncoder> ENCODERS = ThreadLocal.withInitial(
+        () -> TRANSPORTATION_CHARSET.newEncoder()
+                                    .onMalformedInput(CodingErrorAction.REPLACE)
+                                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+    );
+
+    private Frames() {
+    }
+
+    /**
+     * Encodes the payload straight into a buffer from the pool, which should be released once it is written.
+     * Payloads that may not fit in the largest pooled buffer are encoded into a heap buffer of the exact size.
+     */
+    public static ByteBuffer encode(int correlationId, String payload, BufferPool pool) {
+        CharsetEncoder encoder = ENCODERS.get().reset();
+        long maxFrameSize = HEADER_SIZE + (long) Math.ceil(payload.length() * (double) encoder.maxBytesPerChar());
+
+        if (maxFrameSize > BufferPool.maxPooledCapacity()) {
+            return encode(correlationId, payload);
+        }
+
+        ByteBuffer frame = pool.acquire((int) maxFrameSize);
+        frame.position(HEADER_SIZE);
+
+        encoder.encode(CharBuffer.wrap(payload), frame, true);
+        encoder.flush(frame);
+
+        frame.putInt(0, frame.position() - HEADER_SIZE);
+        frame.putInt(CORRELATION_ID_OFFSET, correlationId);
+        frame.put(FLAGS_OFFSET, NO_FLAGS);
+        frame.flip();
+
+        return frame;
+    }
+
+    /**
+     * Copies the payload into a buffer from the pool, which should be released once it is written.
+     */
+    public static ByteBuffer encode(int correlationId, byte flags, byte[] payload, BufferPool pool) {
+        if (HEADER_SIZE + payload.length > BufferPool.maxPooledCapacity()) {
+            return encode(correlationId, flags, payload);
+        }
+
+        ByteBuffer frame = pool.acquire(HEADER_SIZE + payload.length);
+        putFrame(frame, correlationId, flags, payload);
+
+        return frame;
+    }
+
+    public static String decode(ByteBuffer payload) {
+        return TRANSPORTATION_CHARSET.decode(payload).toString();
+    }
+
+    public static ByteBuffer encode(int correlationId, String payload) {
+        return encode(correlationId, payload.getBytes(TRANSPORTATION_CHARSET));
+    }
+
+    public static ByteBuffer encode(int correlationId, byte[] payload) {
+        return encode(correlationId, NO_FLAGS, payload);
+    }
+
+    public static ByteBuffer encode(int correlationId, byte flags, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        putFrame(frame, correlationId, flags, payload);
+
+        return frame;
+    }
+
+    private static void putFrame(ByteBuffer frame, int correlationId, byte flags, byte[] payload) {
+        frame.putInt(payload.length);
+        frame.putInt(correlationId);
+        frame.put(flags);
+        frame.put(payload);
+        frame.flip();
+    }
+
+}
@@ -0,0 +1,41 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Optional first exchange on a connection. The client sends a frame flagged with {@link Frames#FLAG_HANDSHAKE},
+ * correlation id 0 and a single byte of features it would like to use, the server answers the same way with
+ * the subset it agrees to. The agreed features apply to every later frame of the connection.
+ * Clients that never send a handshake get the defaults, which is JSON without pushed notifications.
+ */
+public final class Handshake {
+
+    public static final byte NO_FEATURES = 0;
+    public static final byte FEATURE_BINARY = 0x01;
+    public static final byte FEATURE_COMPRESSION = 0x02;
+    public static final byte FEATURE_PUSH = 0x04;
+
+    private static final int HANDSHAKE_CORRELATION_ID = 0;
+
+    private Handshake() {
+    }
+
+    public static ByteBuffer encode(byte features) {
+        return Frames.encode(HANDSHAKE_CORRELATION_ID, Frames.FLAG_HANDSHAKE, new byte[] {features});
+    }
+
+    public static byte decode(Frame frame) {
+        if (!frame.hasFlag(Frames.FLAG_HANDSHAKE) || !frame.payload().hasRemaining()) {
+            throw new ProtocolException("Expected a handshake frame");
+        }
+
+        return frame.payload().get(frame.payload().position());
+    }
+
+    public static boolean hasFeature(byte features, byte feature) {
+        return (features & feature) != 0;
+    }
+
+}
@@ -0,0 +1,63 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates payloads of one connection, reusing a single {@link Deflater}. Every payload is compressed on its own,
+ * so the peer can inflate frames in whatever order they arrive. Thread-safe, calls are serialized.
+ * Call {@link #close()} to free the native memory of the deflater.
+ */
+public final class PayloadCompressor implements AutoCloseable {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final int threshold;
+
+    private boolean isClosed = false;
+
+    /**
+     * @param threshold payloads shorter than that are not worth compressing
+     */
+    public PayloadCompressor(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return whether a payload of that size is long enough to be compressed
+     */
+    public boolean isWorthCompressing(int payloadSize) {
+        return payloadSize >= threshold;
+    }
+
+    /**
+     * @return the compressed payload, or null if it is under the threshold or compressing would not make it smaller
+     */
+    public synchronized byte[] compress(byte[] payload) {
+        if (isClosed || !isWorthCompressing(payload.length)) {
+            return null;
+        }
+
+        deflater.reset();
+        deflater.setInput(payload);
+        deflater.finish();
+
+        // compressing into at most payload.length bytes, anything bigger is useless anyway
+        byte[] output = new byte[payload.length];
+        int size = 0;
+
+        while (!deflater.finished() && size < output.length) {
+            size += deflater.deflate(output, size, output.length - size);
+        }
+
+        return deflater.finished() && size < payload.length ? Arrays.copyOf(output, size) : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        isClosed = true;
+        deflater.end();
+    }
+
+}
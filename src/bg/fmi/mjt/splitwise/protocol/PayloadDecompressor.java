@@ -0,0 +1,65 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates what {@link PayloadCompressor} deflated, reusing a single {@link Inflater}. Not thread-safe.
+ * Call {@link #close()} to free the native memory of the inflater.
+ */
+public final class PayloadDecompressor implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Inflater inflater = new Inflater();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final int maxPayloadSize;
+
+    public PayloadDecompressor() {
+        this(Frames.MAX_PAYLOAD_SIZE);
+    }
+
+    public PayloadDecompressor(int maxPayloadSize) {
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    /**
+     * @throws ProtocolException if the payload is corrupt, truncated or inflates to more than the maximum size
+     */
+    public byte[] decompress(ByteBuffer payload) {
+        inflater.reset();
+        inflater.setInput(payload);
+
+        var output = new ByteArrayOutputStream();
+
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ProtocolException("Truncated compressed payload");
+                }
+
+                output.write(chunk, 0, inflated);
+
+                if (output.size() > maxPayloadSize) {
+                    throw new ProtocolException("Compressed payload inflates over the maximum payload size");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ProtocolException("Corrupt compressed payload", e);
+        }
+
+        return output.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+}
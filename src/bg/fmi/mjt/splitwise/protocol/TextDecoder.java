@@ -0,0 +1,115 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes payloads with one {@link CharsetDecoder} and one growing {@link CharBuffer}, instead of a new decoder,
+ * byte array and char array for every message. Bytes may be fed in chunks split anywhere, even inside
+ * a multi-byte character. Malformed input is replaced. Not thread-safe, it belongs to one connection.
+ * The buffer grows with the largest message, but is not kept above {@link #MAX_RETAINED_CAPACITY} chars.
+ */
+public final class TextDecoder {
+
+    private static final int DEFAULT_CAPACITY = 512;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final CharsetDecoder decoder =
+        Frames.TRANSPORTATION_CHARSET.newDecoder()
+                                     .onMalformedInput(CodingErrorAction.REPLACE)
+                                     .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer incompleteChar = ByteBuffer.allocate(MAX_BYTES_PER_CHAR);
+
+    private CharBuffer chars;
+
+    public TextDecoder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TextDecoder(int initialCapacity) {
+        this.chars = CharBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Decodes the whole payload at once, consuming it.
+     */
+    public String decode(ByteBuffer payload) {
+        feed(payload);
+        return finish();
+    }
+
+    /**
+     * Decodes the chunk, consuming it. A character cut off at its end is completed by the next chunk.
+     */
+    public void feed(ByteBuffer chunk) {
+        ensureCapacity(chunk.remaining() + incompleteChar.position());
+
+        if (incompleteChar.position() > 0) {
+            completeChar(chunk);
+        }
+
+        decode(chunk, false);
+
+        // an incomplete character stays in the chunk on underflow
+        incompleteChar.put(chunk);
+    }
+
+    /**
+     * @return the text decoded since the previous call, a character still incomplete is replaced
+     */
+    public String finish() {
+        incompleteChar.flip();
+        decode(incompleteChar, true);
+        decoder.flush(chars);
+        incompleteChar.clear();
+
+        chars.flip();
+        String text = chars.toString();
+
+        chars = chars.capacity() > MAX_RETAINED_CAPACITY ? CharBuffer.allocate(DEFAULT_CAPACITY) : chars.clear();
+        decoder.reset();
+
+        return text;
+    }
+
+    /**
+     * Moves bytes of the chunk over to the incomplete character one at a time, until it decodes.
+     */
+    private void completeChar(ByteBuffer chunk) {
+        while (incompleteChar.position() > 0 && chunk.hasRemaining()) {
+            incompleteChar.put(chunk.get());
+            incompleteChar.flip();
+            decode(incompleteChar, false);
+            incompleteChar.compact();
+        }
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+        CoderResult result = decoder.decode(input, chars, endOfInput);
+
+        if (result.isOverflow()) {
+            throw new IllegalStateException("The char buffer was sized for every byte");
+        }
+    }
+
+    /**
+     * UTF-8 never decodes into more chars than it has bytes.
+     */
+    private void ensureCapacity(int bytes) {
+        if (chars.remaining() >= bytes) {
+            return;
+        }
+
+        int capacity = Math.max(chars.capacity() * 2, chars.position() + bytes);
+        CharBuffer grown = CharBuffer.allocate(capacity);
+
+        chars.flip();
+        grown.put(chars);
+        chars = grown;
+    }
+
+}
@@ -0,0 +1,224 @@
+package bg.fmi.mjt.splitwise.protocol.binary;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.commands.arguments.Amount;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.LoginSuccessResponse;
+import bg.fmi.mjt.splitwise.responses.OwesResponse;
+import bg.fmi.mjt.splitwise.responses.Payment;
+import bg.fmi.mjt.splitwise.responses.PaymentHistoryResponse;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compact alternative to JSON, negotiated with {@link bg.fmi.mjt.splitwise.protocol.Handshake#FEATURE_BINARY}.
+ * <p>
+ * A request is the command type's ordinal plus one (0 is followed by the name of an unknown command),
+ * the auth token and the arguments. Amount arguments travel as signed varints of stotinki.
+ * A result is a status byte followed by either the error message or a data tag and the typed data,
+ * so there is no JSON nested in the response.
+ */
+public final class BinaryCodec {
+
+    private static final int AMOUNT_SCALE = 2;
+    private static final int STATUS_SUCCESS = 0;
+    private static final int STATUS_ERROR = 1;
+
+    private static final int NO_DATA = 0;
+    private static final int LOGIN_DATA = 1;
+    private static final int OWES_DATA = 2;
+    private static final int PAYMENT_HISTORY_DATA = 3;
+
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+
+    private BinaryCodec() {
+    }
+
+    public static byte[] encodeRequest(CommandRequest request) {
+        Command cmd = request.getCommand();
+        CommandType type = CommandType.fromString(cmd.name());
+        var writer = new BinaryWriter();
+
+        writer.writeVarLong(type == null ? 0 : type.ordinal() + 1);
+        if (type == null) {
+            writer.writeString(cmd.name());
+        }
+
+        writer.writeString(request.getAuthToken());
+        writer.writeVarLong(cmd.args().length);
+
+        for (int i = 0; i < cmd.args().length; i++) {
+            if (isAmount(type, i)) {
+                writer.writeSignedVarLong(toFixedPoint(cmd.args()[i]));
+            } else {
+                writer.writeString(cmd.args()[i]);
+            }
+        }
+
+        return writer.toByteArray();
+    }
+
+    public static CommandRequest decodeRequest(ByteBuffer payload) {
+        var reader = new BinaryReader(payload);
+
+        int typeCode = reader.readVarInt();
+        if (typeCode > COMMAND_TYPES.length) {
+            throw new ProtocolException(String.format("Unknown command type %d", typeCode));
+        }
+
+        CommandType type = typeCode == 0 ? null : COMMAND_TYPES[typeCode - 1];
+        String name = type == null ? reader.readString() : type.cmdName();
+        String authToken = reader.readString();
+
+        String[] args = new String[reader.readCount()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = isAmount(type, i) ? fromFixedPoint(reader.readSignedVarLong()) : reader.readString();
+        }
+
+        return new CommandRequest(new Command(name, args), authToken);
+    }
+
+    public static byte[] encodeResult(CommandResult result) {
+        var writer = new BinaryWriter();
+
+        if (!result.wasSuccessful()) {
+            writer.writeByte(STATUS_ERROR).writeString(result.errorMessage());
+            return writer.toByteArray();
+        }
+
+        writer.writeByte(STATUS_SUCCESS);
+
+        if (result.data() instanceof LoginSuccessResponse login) {
+            writeLogin(writer.writeByte(LOGIN_DATA), login);
+        } else if (result.data() instanceof OwesResponse owes) {
+            writeOwes(writer.writeByte(OWES_DATA), owes);
+        } else if (result.data() instanceof PaymentHistoryResponse history) {
+            writePaymentHistory(writer.writeByte(PAYMENT_HISTORY_DATA), history);
+        } else if (result.data() == null) {
+            writer.writeByte(NO_DATA);
+        } else {
+            throw new IllegalArgumentException("Cannot encode data of type " + result.data().getClass());
+        }
+
+        return writer.toByteArray();
+    }
+
+    public static CommandResult decodeResult(ByteBuffer payload) {
+        var reader = new BinaryReader(payload);
+
+        if (reader.readByte() == STATUS_ERROR) {
+            return CommandResult.ofError(reader.readString());
+        }
+
+        return switch (reader.readByte()) {
+            case NO_DATA -> CommandResult.ofSuccess();
+            case LOGIN_DATA -> CommandResult.ofSuccess(readLogin(reader));
+            case OWES_DATA -> CommandResult.ofSuccess(readOwes(reader));
+            case PAYMENT_HISTORY_DATA -> CommandResult.ofSuccess(readPaymentHistory(reader));
+            default -> throw new ProtocolException("Unknown result data tag");
+        };
+    }
+
+    private static void writeLogin(BinaryWriter writer, LoginSuccessResponse login) {
+        List<String> notifications = login.getNotifications() == null ? List.of() : login.getNotifications();
+
+        writer.writeString(login.getAuthToken()).writeVarLong(notifications.size());
+        notifications.forEach(writer::writeString);
+    }
+
+    private static LoginSuccessResponse readLogin(BinaryReader reader) {
+        String authToken = reader.readString();
+        List<String> notifications = new ArrayList<>();
+
+        for (int count = reader.readVarInt(); count > 0; count--) {
+            notifications.add(reader.readString());
+        }
+
+        return new LoginSuccessResponse(authToken, notifications);
+    }
+
+    private static void writeOwes(BinaryWriter writer, OwesResponse owes) {
+        Map<String, Double> userToLevs = owes.getUserToLevs() == null ? Map.of() : owes.getUserToLevs();
+
+        writer.writeVarLong(userToLevs.size());
+        userToLevs.forEach((user, levs) -> writer.writeString(user).writeSignedVarLong(toFixedPoint(levs)));
+    }
+
+    private static OwesResponse readOwes(BinaryReader reader) {
+        Map<String, Double> userToLevs = new HashMap<>();
+
+        for (int count = reader.readVarInt(); count > 0; count--) {
+            userToLevs.put(reader.readString(), fromFixedPointDouble(reader.readSignedVarLong()));
+        }
+
+        return new OwesResponse(userToLevs);
+    }
+
+    private static void writePaymentHistory(BinaryWriter writer, PaymentHistoryResponse history) {
+        List<Payment> payments = history.getPaymentHistory() == null ? List.of() : history.getPaymentHistory();
+
+        writer.writeVarLong(payments.size());
+        for (Payment payment : payments) {
+            writer.writeString(payment.getPayedTo())
+                  .writeSignedVarLong(toFixedPoint(payment.getLevs()))
+                  .writeSignedVarLong(payment.getPayedOn().toEpochSecond(ZoneOffset.UTC))
+                  .writeVarLong(payment.getPayedOn().getNano());
+        }
+    }
+
+    private static PaymentHistoryResponse readPaymentHistory(BinaryReader reader) {
+        List<Payment> payments = new ArrayList<>();
+
+        for (int count = reader.readVarInt(); count > 0; count--) {
+            String payedTo = reader.readString();
+            double levs = fromFixedPointDouble(reader.readSignedVarLong());
+            LocalDateTime payedOn =
+                LocalDateTime.ofEpochSecond(reader.readSignedVarLong(), reader.readVarInt(), ZoneOffset.UTC);
+
+            payments.add(new Payment(payedTo, levs, payedOn));
+        }
+
+        return new PaymentHistoryResponse(payments);
+    }
+
+    private static boolean isAmount(CommandType type, int argIndex) {
+        return argIndex == 0 && (type == CommandType.PAYED || type == CommandType.SPLIT
+            || type == CommandType.SPLIT_GROUP);
+    }
+
+    private static long toFixedPoint(String amount) {
+        Amount parsed = amount == null ? null : Amount.parse(amount);
+
+        if (parsed == null) {
+            throw new ProtocolException(
+                String.format("Amount '%s' is not a number with %d decimals", amount, AMOUNT_SCALE)
+            );
+        }
+
+        return parsed.stotinki();
+    }
+
+    private static long toFixedPoint(double amount) {
+        return BigDecimal.valueOf(amount).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static String fromFixedPoint(long amount) {
+        return BigDecimal.valueOf(amount, AMOUNT_SCALE).toPlainString();
+    }
+
+    private static double fromFixedPointDouble(long amount) {
+        return BigDecimal.valueOf(amount, AMOUNT_SCALE).doubleValue();
+    }
+
+}
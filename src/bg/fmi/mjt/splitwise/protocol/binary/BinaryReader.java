@@ -0,0 +1,101 @@
+package bg.fmi.mjt.splitwise.protocol.binary;
+
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads what {@link BinaryWriter} wrote. Truncated or malformed input ends in a {@link ProtocolException}.
+ */
+public final class BinaryReader {
+
+    private static final int MAX_VAR_LONG_SHIFT = 63;
+
+    private final ByteBuffer input;
+
+    public BinaryReader(ByteBuffer input) {
+        this.input = input;
+    }
+
+    public BinaryReader(byte[] input) {
+        this(ByteBuffer.wrap(input));
+    }
+
+    public int readByte() {
+        ensureRemaining(1);
+        return input.get() & 0xFF;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+
+        for (int shift = 0; shift <= MAX_VAR_LONG_SHIFT; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new ProtocolException("Malformed varint");
+    }
+
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public int readVarInt() {
+        long value = readVarLong();
+
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new ProtocolException(String.format("Value %d does not fit an int", value));
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Reads the number of elements that follow, each taking at least one byte, so a count bigger than what is
+     * left of the input is rejected before anything is allocated for it.
+     */
+    public int readCount() {
+        int count = readVarInt();
+
+        if (count > input.remaining()) {
+            throw new ProtocolException(
+                String.format("Count %d is more than the %d bytes left", count, input.remaining())
+            );
+        }
+
+        return count;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+
+        if (length == 0) {
+            return null;
+        }
+
+        ensureRemaining(length - 1);
+
+        ByteBuffer encoded = input.slice(input.position(), length - 1);
+        input.position(input.position() + length - 1);
+
+        return Frames.TRANSPORTATION_CHARSET.decode(encoded).toString();
+    }
+
+    public boolean hasRemaining() {
+        return input.hasRemaining();
+    }
+
+    private void ensureRemaining(int count) {
+        if (input.remaining() < count) {
+            throw new ProtocolException("Unexpected end of a binary message");
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package bg.fmi.mjt.splitwise.protocol.binary;
+
+import bg.fmi.mjt.splitwise.protocol.Frames;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte sink for the binary format. Integers are written as LEB128 varints, signed ones zigzag encoded
+ * first, and strings as a varint length followed by their UTF-8 bytes.
+ */
+public final class BinaryWriter {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public BinaryWriter writeByte(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+
+        return this;
+    }
+
+    public BinaryWriter writeVarLong(long value) {
+        ensureCapacity(Long.BYTES + 2);
+
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+
+        return this;
+    }
+
+    public BinaryWriter writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> (Long.SIZE - 1)));
+    }
+
+    /**
+     * Null is written as length 0, every other length is shifted by one.
+     */
+    public BinaryWriter writeString(String value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+
+        byte[] encoded = value.getBytes(Frames.TRANSPORTATION_CHARSET);
+        writeVarLong(encoded.length + 1L);
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + extra));
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package bg.fmi.mjt.splitwise.protocol.exceptions;
+
+public class ProtocolException extends RuntimeException {
+
+    public ProtocolException(String message) {
+        super(message);
+    }
+
+    public ProtocolException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
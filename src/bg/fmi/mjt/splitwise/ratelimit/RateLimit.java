@@ -0,0 +1,19 @@
+package bg.fmi.mjt.splitwise.ratelimit;
+
+/**
+ * @param burst             requests allowed at once after a quiet period
+ * @param requestsPerSecond sustained rate at which the allowance refills
+ */
+public record RateLimit(int burst, double requestsPerSecond) {
+
+    public RateLimit {
+        if (burst <= 0 || requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("burst and requestsPerSecond must be positive");
+        }
+    }
+
+    public static RateLimit perSecond(int requestsPerSecond) {
+        return new RateLimit(requestsPerSecond, requestsPerSecond);
+    }
+
+}
@@ -0,0 +1,27 @@
+package bg.fmi.mjt.splitwise.ratelimit;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.responses.CommandResponse;
+
+/**
+ * The rejection is serialized once, answering a rate limited request only formats the retry delay into it.
+ */
+public final class RateLimitedResponses {
+
+    private static final String RATE_LIMITED_MESSAGE_FORMAT = "Rate limited, retry after %d ms";
+    private static final String RATE_LIMITED_RESPONSE_FORMAT = Gsons.shared().toJson(
+        CommandResponse.ofError(RATE_LIMITED_MESSAGE_FORMAT)
+    );
+
+    private RateLimitedResponses() {
+    }
+
+    public static String of(long retryAfterMillis) {
+        return String.format(RATE_LIMITED_RESPONSE_FORMAT, retryAfterMillis);
+    }
+
+    public static String message(long retryAfterMillis) {
+        return String.format(RATE_LIMITED_MESSAGE_FORMAT, retryAfterMillis);
+    }
+
+}
@@ -0,0 +1,102 @@
+package bg.fmi.mjt.splitwise.ratelimit;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per key. Buckets that have refilled completely are indistinguishable from new ones, so they
+ * are dropped once there are too many keys, at most once per eviction interval. Thread-safe.
+ */
+public final class RateLimiter<K> {
+
+    private static final int EVICTION_THRESHOLD = 10_000;
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimit limit;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<K, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastEvictionNanos;
+
+    public RateLimiter(RateLimit limit) {
+        this(limit, System::nanoTime);
+    }
+
+    RateLimiter(RateLimit limit, LongSupplier nanoClock) {
+        this.limit = Objects.requireNonNull(limit, "limit cannot be null");
+        this.nanoClock = nanoClock;
+        this.lastEvictionNanos = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return 0 if the key may proceed, otherwise milliseconds after which it should retry
+     */
+    public long tryAcquire(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Takes the tokens of several requests at once, either all of them or none.
+     *
+     * @param count number of requests, at most the {@link #burst()}, as no wait would let more through at once
+     * @return 0 if the key may proceed, otherwise milliseconds after which it should retry
+     */
+    public long tryAcquire(K key, int count) {
+        Objects.requireNonNull(key, "key cannot be null");
+
+        if (count <= 0 || count > limit.burst()) {
+            throw new IllegalArgumentException(
+                String.format("count must be between 1 and the burst of %d, was %d", limit.burst(), count)
+            );
+        }
+
+        long now = nanoClock.getAsLong();
+        long waitNanos;
+
+        // an evicted bucket is already out of the map, the next lookup gets a new one
+        do {
+            waitNanos = buckets.computeIfAbsent(key, k -> new TokenBucket(limit, now)).tryAcquire(now, count);
+        } while (waitNanos == TokenBucket.EVICTED);
+
+        if (buckets.size() > EVICTION_THRESHOLD) {
+            evictFullBuckets(now);
+        }
+
+        if (waitNanos == 0) {
+            return 0;
+        }
+
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    public int burst() {
+        return limit.burst();
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private void evictFullBuckets(long now) {
+        long last = lastEvictionNanos.get();
+
+        // keys that are all active would otherwise be scanned on every call
+        if (now - last < EVICTION_INTERVAL_NANOS || !lastEvictionNanos.compareAndSet(last, now)) {
+            return;
+        }
+
+        // a caller may still hold the bucket, it is told so and looks it up again rather than taking the tokens
+        buckets.forEach((key, bucket) -> {
+            synchronized (bucket) {
+                if (bucket.tryEvict(now)) {
+                    buckets.remove(key, bucket);
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,74 @@
+package bg.fmi.mjt.splitwise.ratelimit;
+
+/**
+ * Refills lazily from the elapsed time on every call, so an idle bucket costs nothing.
+ */
+final class TokenBucket {
+
+    static final long EVICTED = -1;
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private boolean isEvicted = false;
+
+    TokenBucket(RateLimit limit, long nowNanos) {
+        this.capacity = limit.burst();
+        this.tokensPerNano = limit.requestsPerSecond() / 1_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Takes all the tokens or none of them.
+     *
+     * @param count tokens to take, at most the capacity
+     * @return 0 if the tokens were taken, {@link #EVICTED} if the bucket was evicted and takes none anymore,
+     *         otherwise nanoseconds until enough become available
+     */
+    synchronized long tryAcquire(long nowNanos, int count) {
+        if (isEvicted) {
+            return EVICTED;
+        }
+
+        refill(nowNanos);
+
+        if (tokens >= count) {
+            tokens -= count;
+            return 0;
+        }
+
+        return (long) Math.ceil((count - tokens) / tokensPerNano);
+    }
+
+    synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+
+        return tokens >= capacity;
+    }
+
+    /**
+     * Evicts the bucket if it is full, from then on it takes no tokens.
+     *
+     * @return whether the bucket was evicted
+     */
+    synchronized boolean tryEvict(long nowNanos) {
+        if (!isEvicted && isFull(nowNanos)) {
+            isEvicted = true;
+        }
+
+        return isEvicted;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+
+}
@@ -2,20 +2,70 @@ package bg.fmi.mjt.splitwise.requests;
 
 import bg.fmi.mjt.splitwise.commands.Command;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class CommandRequest {
 
     private final Command command;
+    private final List<Command> batch;
+    private final boolean isAtomic;
+    private final boolean embedsData;
     private final String authToken;
 
+    /**
+     * A request that runs the commands in order, all of them under the auth token.
+     *
+     * @param isAtomic whether a failing command undoes the ones before it and skips the rest
+     */
+    public static CommandRequest ofBatch(List<Command> batch, boolean isAtomic, String authToken) {
+        List<Command> commands = Collections.unmodifiableList(new ArrayList<>(batch));
+
+        return new CommandRequest(null, commands, isAtomic, false, authToken);
+    }
+
     public CommandRequest(Command command, String authToken) {
+        this(command, null, false, false, authToken);
+    }
+
+    private CommandRequest(Command command, List<Command> batch, boolean isAtomic, boolean embedsData,
+                           String authToken) {
         this.command = command;
+        this.batch = batch;
+        this.isAtomic = isAtomic;
+        this.embedsData = embedsData;
         this.authToken = authToken;
     }
 
+    /**
+     * @param embedsData whether the data of the responses is nested as JSON rather than sent as a JSON string,
+     *                   which clients that predate it expect
+     */
+    public CommandRequest withEmbeddedData(boolean embedsData) {
+        return new CommandRequest(command, batch, isAtomic, embedsData, authToken);
+    }
+
     public Command getCommand() {
         return command;
     }
 
+    public List<Command> getBatch() {
+        return batch;
+    }
+
+    public boolean isBatch() {
+        return batch != null;
+    }
+
+    public boolean isAtomic() {
+        return isAtomic;
+    }
+
+    public boolean embedsData() {
+        return embedsData;
+    }
+
     public String getAuthToken() {
         return authToken;
     }
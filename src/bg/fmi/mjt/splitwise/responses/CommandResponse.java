@@ -1,24 +1,35 @@
 package bg.fmi.mjt.splitwise.responses;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The JSON response to a command. Its data is either embedded as a nested JSON value or, for clients that
+ * predate embedding, a JSON string holding the serialized data.
+ */
 public class CommandResponse {
 
     private final boolean wasSuccessful;
     private final String errorMessage;
-    private final String data;
+    private final JsonElement data;
 
     public static CommandResponse ofError(String message) {
         return new CommandResponse(false, message, null);
     }
 
     public static CommandResponse ofSuccess(String data) {
-        return new CommandResponse(true, null, data);
+        return new CommandResponse(true, null, data == null ? null : new JsonPrimitive(data));
     }
 
     public static CommandResponse ofSuccess() {
         return new CommandResponse(true, null, null);
     }
 
-    private CommandResponse(boolean wasSuccessful, String errorMessage, String data) {
+    public static CommandResponse ofEmbedded(JsonElement data) {
+        return new CommandResponse(true, null, data);
+    }
+
+    private CommandResponse(boolean wasSuccessful, String errorMessage, JsonElement data) {
         this.wasSuccessful = wasSuccessful;
         this.errorMessage = errorMessage;
         this.data = data;
@@ -32,7 +43,22 @@ public class CommandResponse {
         return errorMessage;
     }
 
+    /**
+     * @return the data as JSON text, however it was sent
+     */
     public String getData() {
+        if (data == null) {
+            return null;
+        }
+
+        return isDataEmbedded() ? data.toString() : data.getAsString();
+    }
+
+    public JsonElement getDataElement() {
         return data;
     }
+
+    public boolean isDataEmbedded() {
+        return data != null && !data.isJsonPrimitive();
+    }
 }
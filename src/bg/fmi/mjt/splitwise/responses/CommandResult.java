@@ -0,0 +1,28 @@
+package bg.fmi.mjt.splitwise.responses;
+
+/**
+ * The outcome of a command before it is serialized. Unlike {@link CommandResponse}, whose data is already
+ * a JSON string, the data here is one of the response objects of this package, so each wire format
+ * can encode it its own way.
+ */
+public record CommandResult(boolean wasSuccessful, String errorMessage, Object data) {
+
+    private static final CommandResult SUCCESS = new CommandResult(true, null, null);
+
+    public static CommandResult ofSuccess() {
+        return SUCCESS;
+    }
+
+    public static CommandResult ofSuccess(Object data) {
+        return new CommandResult(true, null, data);
+    }
+
+    public static CommandResult ofError(String message) {
+        return new CommandResult(false, message, null);
+    }
+
+    public <T> T data(Class<T> type) {
+        return type.cast(data);
+    }
+
+}
@@ -0,0 +1,90 @@
+package bg.fmi.mjt.splitwise.responses;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Serializes results as {@link CommandResponse}s. The data is streamed straight from the result into the
+ * response, nested as JSON when the client embeds data and as a JSON string for the clients that predate it.
+ */
+public final class JsonResponses {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final String SUCCESSFUL_RESPONSE = GSON.toJson(CommandResponse.ofSuccess());
+
+    private JsonResponses() {
+    }
+
+    public static String of(CommandResult result, boolean embedsData) {
+        if (result == CommandResult.ofSuccess()) {
+            return SUCCESSFUL_RESPONSE;
+        }
+
+        var out = new StringWriter();
+
+        try (JsonWriter writer = GSON.newJsonWriter(out)) {
+            write(writer, result, embedsData);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * @return a JSON array with the response to every result, in their order
+     */
+    public static String ofBatch(List<CommandResult> results, boolean embedsData) {
+        var out = new StringWriter();
+
+        try (JsonWriter writer = GSON.newJsonWriter(out)) {
+            writeBatch(writer, results, embedsData);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Same as {@link #ofBatch(List, boolean)}, streamed into the writer.
+     */
+    public static void writeBatch(JsonWriter out, List<CommandResult> results, boolean embedsData)
+        throws IOException {
+        out.beginArray();
+        for (CommandResult result : results) {
+            write(out, result, embedsData);
+        }
+        out.endArray();
+    }
+
+    /**
+     * Same as {@link #of(CommandResult, boolean)}, streamed into the writer.
+     */
+    public static void write(JsonWriter out, CommandResult result, boolean embedsData) throws IOException {
+        Object data = result.data();
+
+        out.beginObject();
+        out.name("wasSuccessful").value(result.wasSuccessful());
+        out.name("errorMessage").value(result.errorMessage());
+        out.name("data");
+
+        if (data == null) {
+            out.nullValue();
+        } else if (embedsData) {
+            GSON.toJson(data, data.getClass(), out);
+        } else {
+            out.value(GSON.toJson(data));
+        }
+
+        out.endObject();
+    }
+
+}
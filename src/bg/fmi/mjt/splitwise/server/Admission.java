@@ -0,0 +1,61 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.ratelimit.RateLimiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits shared by all reactors of a server: how many connections may be open at once and how often a single
+ * remote host may send requests. Thread-safe.
+ */
+final class Admission {
+
+    private final int maxConnections;
+    private final RateLimiter<String> hostLimiter;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+
+    Admission(ServerOptions options) {
+        this.maxConnections = options.maxConnections();
+        this.hostLimiter = options.hostRateLimit() == null ? null : new RateLimiter<>(options.hostRateLimit());
+    }
+
+    /**
+     * @return whether a new connection may be opened, if so {@link #connectionClosed()} must follow its closing
+     */
+    boolean tryAdmitConnection() {
+        int open;
+
+        do {
+            open = openConnections.get();
+
+            if (open >= maxConnections) {
+                rejectedConnections.incrementAndGet();
+                return false;
+            }
+        } while (!openConnections.compareAndSet(open, open + 1));
+
+        return true;
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    /**
+     * @return 0 if the host may send another request, otherwise milliseconds after which it should retry
+     */
+    long tryAcquireRequest(String remoteHost) {
+        return hostLimiter == null ? 0 : hostLimiter.tryAcquire(remoteHost);
+    }
+
+    int openConnections() {
+        return openConnections.get();
+    }
+
+    long rejectedConnections() {
+        return rejectedConnections.get();
+    }
+
+}
@@ -0,0 +1,392 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.handlers.InputHander;
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.LogUtils;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
+import bg.fmi.mjt.splitwise.protocol.PayloadCompressor;
+import bg.fmi.mjt.splitwise.protocol.TextDecoder;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimitedResponses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves every connection with blocking I/O on a thread of its own and calls the input handler on that
+ * same thread. Connection threads are virtual when the runtime supports them (JDK 21+) and platform
+ * threads otherwise. Notifications are never pushed, a write from another thread could block on a slow client.
+ */
+public class BlockingServer implements ServerEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingServer.class);
+
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+    private static final long DRAIN_POLL_MILLIS = 10;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final String hostname;
+    private final int port;
+    private final ServerProtocol protocol;
+    private final int maxPayloadSize;
+    private final int compressionThreshold;
+    private final Admission admission;
+
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+
+    private ServerSocketChannel serverChannel;
+    private ExecutorService connectionThreads;
+    private volatile boolean isRunning = true;
+    private volatile long drainDeadlineNanos;
+    private volatile boolean isDraining = false;
+
+    public BlockingServer(String hostname, int port, InputHander inputHander) {
+        this(hostname, port, inputHander, ServerOptions.defaults());
+    }
+
+    /**
+     * @param options only the options of the listening channel, the admission limits, the compression threshold
+     *                and the connection memory budget, which bounds the size of a request, apply. There are no
+     *                reactors or workers.
+     */
+    public BlockingServer(String hostname, int port, InputHander inputHander, ServerOptions options) {
+        this.hostname = hostname;
+        this.port = port;
+        this.protocol = new ServerProtocol(inputHander, false);
+        this.maxPayloadSize = options.maxPayloadSize();
+        this.compressionThreshold = options.compressionThreshold();
+        this.admission = new Admission(options);
+
+        init(options);
+    }
+
+    private void init(ServerOptions options) {
+        LOGGER.log(
+            Level.INFO,
+            String.format("Starting a blocking server with hostname '%s' and port '%d'...", hostname, port)
+        );
+
+        serverChannel = Listeners.open(hostname, port, options);
+
+        if (options.unixSocketPath() != null) {
+            LOGGER.log(Level.WARN, "The blocking server listens on TCP only, the Unix domain socket is not bound");
+        }
+
+        connectionThreads = newConnectionExecutor();
+
+        LOGGER.log(
+            Level.INFO,
+            String.format("Blocking server with hostname '%s' and port '%d' successfully started", hostname, port)
+        );
+    }
+
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            var factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+            LOGGER.log(Level.INFO, "Serving connections on virtual threads");
+
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.INFO, "Virtual threads are not supported, serving connections on platform threads");
+
+            var threadNumber = new AtomicInteger();
+            return Executors.newCachedThreadPool(
+                r -> new Thread(r, "splitwise-connection-" + threadNumber.incrementAndGet())
+            );
+        }
+    }
+
+    @Override
+    public void run() {
+        long acceptBackoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+
+        while (isRunning) {
+            SocketChannel client;
+
+            try {
+                client = serverChannel.accept();
+                acceptBackoffMillis = MIN_ACCEPT_BACKOFF_MILLIS;
+            } catch (IOException e) {
+                if (isRunning) {
+                    LOGGER.log(Level.INFO, "Could not accept a client connection. " + LogUtils.stringifyThrowable(e));
+
+                    // failures such as running out of file descriptors last a while, retrying at once only spins
+                    backOff(acceptBackoffMillis);
+                    acceptBackoffMillis = Math.min(2 * acceptBackoffMillis, MAX_ACCEPT_BACKOFF_MILLIS);
+                }
+
+                continue;
+            }
+
+            if (!admission.tryAdmitConnection()) {
+                LOGGER.log(
+                    Level.WARN,
+                    String.format("Refusing a client, already %d connections are open", admission.openConnections())
+                );
+                close(client);
+                continue;
+            }
+
+            try {
+                clients.add(client);
+                connectionThreads.execute(() -> serve(client));
+            } catch (RejectedExecutionException e) {
+                clients.remove(client);
+                close(client);
+                admission.connectionClosed();
+            }
+        }
+
+        shutDown();
+
+        LOGGER.log(Level.INFO, "Server shutdown was successful");
+    }
+
+    private void backOff(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        LOGGER.log(Level.INFO, "A client successfully connected with address: " + remoteAddress(client));
+
+        try (var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+             var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            exchange(in, out, remoteHost(client));
+        } catch (EOFException e) {
+            LOGGER.log(Level.INFO, String.format("Client with address: %s disconnected", remoteAddress(client)));
+        } catch (IOException | RuntimeException e) {
+            if (isRunning) {
+                LOGGER.log(
+                    Level.WARN,
+                    String.format(
+                        "Communicating with client: %s failed. Disconnecting client... %s",
+                        remoteAddress(client),
+                        LogUtils.stringifyThrowable(e)
+                    )
+                );
+            }
+        } finally {
+            clients.remove(client);
+            close(client);
+            admission.connectionClosed();
+        }
+    }
+
+    private void exchange(DataInputStream in, DataOutputStream out, String remoteHost) throws IOException {
+        byte features = Handshake.NO_FEATURES;
+        PayloadCompressor compressor = null;
+        TextDecoder textDecoder = new TextDecoder();
+
+        try {
+            while (isRunning) {
+                int length = readLength(in);
+                int correlationId = in.readInt();
+                byte flags = in.readByte();
+
+                byte[] request = new byte[length];
+                in.readFully(request);
+
+                if ((flags & Frames.FLAG_HANDSHAKE) != 0) {
+                    features = protocol.negotiate(request.length > 0 ? request[0] : Handshake.NO_FEATURES);
+                    writeFrame(out, correlationId, Frames.FLAG_HANDSHAKE, new byte[] {features});
+
+                    if (compressor == null && Handshake.hasFeature(features, Handshake.FEATURE_COMPRESSION)) {
+                        compressor = new PayloadCompressor(compressionThreshold);
+                    }
+                    continue;
+                }
+
+                long retryAfterMillis = admission.tryAcquireRequest(remoteHost);
+                if (retryAfterMillis > 0) {
+                    rejectRequest(out, correlationId, retryAfterMillis, remoteHost);
+                    continue;
+                }
+
+                requestsInFlight.incrementAndGet();
+
+                // counted before checking, so a drain either waits for this request or the request sees the drain
+                if (!isRunning) {
+                    requestsInFlight.decrementAndGet();
+                    return;
+                }
+
+                try {
+                    respond(out, correlationId, handle(request, features, textDecoder), compressor);
+                } finally {
+                    requestsInFlight.decrementAndGet();
+                }
+            }
+        } finally {
+            if (compressor != null) {
+                compressor.close();
+            }
+        }
+    }
+
+    private static void rejectRequest(DataOutputStream out, int correlationId, long retryAfterMillis,
+                                      String remoteHost) throws IOException {
+        LOGGER.log(Level.DEBUG, String.format("Rate limited a request from %s", remoteHost));
+
+        byte[] rejection = RateLimitedResponses.of(retryAfterMillis).getBytes(Frames.TRANSPORTATION_CHARSET);
+        writeFrame(out, correlationId, Frames.NO_FLAGS, rejection);
+    }
+
+    private static void respond(DataOutputStream out, int correlationId, byte[] response,
+                                PayloadCompressor compressor) throws IOException {
+        byte[] compressed = compressor == null ? null : compressor.compress(response);
+
+        if (compressed == null) {
+            writeFrame(out, correlationId, Frames.NO_FLAGS, response);
+        } else {
+            writeFrame(out, correlationId, Frames.FLAG_COMPRESSED, compressed);
+        }
+    }
+
+    private byte[] handle(byte[] request, byte features, TextDecoder textDecoder) {
+        if (Handshake.hasFeature(features, Handshake.FEATURE_BINARY)) {
+            return protocol.handleBinary(request);
+        }
+
+        return protocol.handle(textDecoder.decode(ByteBuffer.wrap(request)))
+                       .getBytes(Frames.TRANSPORTATION_CHARSET);
+    }
+
+    private static void writeFrame(DataOutputStream out, int correlationId, byte flags, byte[] payload)
+        throws IOException {
+        out.writeInt(payload.length);
+        out.writeInt(correlationId);
+        out.writeByte(flags);
+        out.write(payload);
+        out.flush();
+    }
+
+    private int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length < 0 || length > maxPayloadSize) {
+            throw new ProtocolException(String.format("Invalid frame length: %d", length));
+        }
+
+        return length;
+    }
+
+    private static String remoteHost(SocketChannel client) {
+        try {
+            return client.getRemoteAddress() instanceof InetSocketAddress inet
+                ? inet.getAddress().getHostAddress()
+                : String.valueOf(client.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private static String remoteAddress(SocketChannel client) {
+        try {
+            return String.valueOf(client.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    @Override
+    public int openConnections() {
+        return clients.size();
+    }
+
+    /**
+     * @return number of clients closed right after accepting them because too many connections were open
+     */
+    public long rejectedConnections() {
+        return admission.rejectedConnections();
+    }
+
+    @Override
+    public void stop() {
+        LOGGER.log(Level.INFO, "Shutting down server...");
+        isRunning = false;
+
+        // unblocks the accept call in run()
+        close(serverChannel);
+    }
+
+    /**
+     * A connection thread exits after writing the response it is working on. Threads waiting for a request
+     * are closed once no response is pending anymore.
+     */
+    @Override
+    public void drain(Duration timeout) {
+        LOGGER.log(Level.INFO, "Draining server...");
+
+        drainDeadlineNanos = System.nanoTime() + timeout.toNanos();
+        isDraining = true;
+
+        stop();
+    }
+
+    private void shutDown() {
+        if (isDraining) {
+            awaitRequestsInFlight();
+        }
+
+        connectionThreads.shutdownNow();
+
+        for (var client : clients) {
+            close(client);
+        }
+    }
+
+    private void awaitRequestsInFlight() {
+        while (requestsInFlight.get() > 0) {
+            if (System.nanoTime() - drainDeadlineNanos >= 0) {
+                LOGGER.log(
+                    Level.WARN,
+                    String.format("Drain deadline passed with %d requests still in flight", requestsInFlight.get())
+                );
+                return;
+            }
+
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void close(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARN, "Closing a resource failed. " + LogUtils.stringifyThrowable(e));
+        }
+    }
+
+}
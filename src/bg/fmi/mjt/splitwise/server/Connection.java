@@ -0,0 +1,267 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+import bg.fmi.mjt.splitwise.protocol.FrameDecoder;
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
+import bg.fmi.mjt.splitwise.protocol.PayloadCompressor;
+import bg.fmi.mjt.splitwise.protocol.TextDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Per-client state. Only the thread of the owning reactor touches it, workers hand their results back
+ * through {@link Reactor#complete} and their notifications through {@link #push}.
+ */
+class Connection implements Session {
+
+    private final SocketChannel channel;
+    private final Reactor reactor;
+    private final String remoteHost;
+    private final BufferPool pool;
+    private final MemoryBudget memory;
+    private final FrameDecoder decoder;
+    private final TextDecoder textDecoder = new TextDecoder();
+    private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+
+    private SelectionKey key;
+    private long outboundBytes = 0;
+    private long accountedBytes = 0;
+    private boolean isReadingSuspended = false;
+    private boolean isReadingStopped = false;
+    private int requestsInFlight = 0;
+    private long lastActivityMillis;
+    private volatile boolean isClosed = false;
+    private byte features = Handshake.NO_FEATURES;
+    private PayloadCompressor compressor;
+
+    /**
+     * @param maxPayloadSize size of the largest request accepted from the client
+     */
+    Connection(SocketChannel channel, Reactor reactor, BufferPool pool, MemoryBudget memory, int maxPayloadSize,
+               String remoteHost) {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.remoteHost = remoteHost;
+        this.pool = pool;
+        this.memory = memory;
+        this.decoder = new FrameDecoder(pool, maxPayloadSize);
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    Reactor reactor() {
+        return reactor;
+    }
+
+    String remoteHost() {
+        return remoteHost;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    /**
+     * Thread-safe. A notification pushed right before the connection closes may still be lost.
+     */
+    @Override
+    public boolean push(String message) {
+        if (isClosed) {
+            return false;
+        }
+
+        reactor.push(this, Frames.encode(Frames.PUSH_CORRELATION_ID, message, pool));
+        return true;
+    }
+
+    /**
+     * @param features             the features agreed during the handshake
+     * @param compressionThreshold responses shorter than that are sent uncompressed even if compression was agreed
+     */
+    void setFeatures(byte features, int compressionThreshold) {
+        this.features = features;
+
+        if (compressor == null && Handshake.hasFeature(features, Handshake.FEATURE_COMPRESSION)) {
+            compressor = new PayloadCompressor(compressionThreshold);
+        }
+    }
+
+    /**
+     * @return the compressor shared by the workers answering this connection, null if compression was not agreed
+     */
+    PayloadCompressor compressor() {
+        return compressor;
+    }
+
+    boolean isBinary() {
+        return Handshake.hasFeature(features, Handshake.FEATURE_BINARY);
+    }
+
+    boolean acceptsPushes() {
+        return Handshake.hasFeature(features, Handshake.FEATURE_PUSH);
+    }
+
+    SelectionKey key() {
+        return key;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+        key.attach(this);
+    }
+
+    FrameDecoder decoder() {
+        return decoder;
+    }
+
+    TextDecoder textDecoder() {
+        return textDecoder;
+    }
+
+    void enqueue(ByteBuffer frame) {
+        outbound.addLast(frame);
+        outboundBytes += frame.remaining();
+    }
+
+    boolean hasPendingWrites() {
+        return !outbound.isEmpty();
+    }
+
+    long outboundBytes() {
+        return outboundBytes;
+    }
+
+    /**
+     * Accounts the bytes held by the connection right now into the memory budget. A partial request counts with
+     * the size its header announced, the connection will have to hold all of it.
+     *
+     * @return the bytes of partial requests and queued responses
+     */
+    long updateMemoryUsage() {
+        long usage = isClosed ? 0 : decoder.pendingFrameSize() + outboundBytes;
+
+        memory.add(usage - accountedBytes);
+        accountedBytes = usage;
+
+        return usage;
+    }
+
+    /**
+     * A partial request with nothing left to send can only be released by reading the rest of it.
+     */
+    boolean isAwaitingRestOfRequest() {
+        return !hasPendingWrites() && decoder.buffered() > 0;
+    }
+
+    long lastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    void touch(long nowMillis) {
+        lastActivityMillis = nowMillis;
+    }
+
+    void requestStarted() {
+        requestsInFlight++;
+    }
+
+    void requestCompleted() {
+        requestsInFlight--;
+    }
+
+    /**
+     * A connection waiting for a response or still sending one is not idle, however long the command takes.
+     */
+    boolean isBusy() {
+        return requestsInFlight > 0 || hasPendingWrites();
+    }
+
+    boolean isReadingSuspended() {
+        return isReadingSuspended;
+    }
+
+    void setReadingSuspended(boolean isReadingSuspended) {
+        this.isReadingSuspended = isReadingSuspended;
+    }
+
+    /**
+     * Unlike a suspension, stopping is for good: no request is read from the connection anymore.
+     */
+    void stopReading() {
+        isReadingStopped = true;
+    }
+
+    /**
+     * Recomputes the interest set: OP_WRITE while there are queued bytes and OP_READ unless reading is suspended
+     * or stopped.
+     */
+    void updateInterest() {
+        int ops = 0;
+
+        if (!isReadingSuspended && !isReadingStopped) {
+            ops |= SelectionKey.OP_READ;
+        }
+
+        if (hasPendingWrites()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+
+        key.interestOps(ops);
+    }
+
+    /**
+     * Writes queued frames until the queue is empty or the socket stops accepting bytes.
+     * Written frames are returned to the pool.
+     */
+    void flush() throws IOException {
+        while (!outbound.isEmpty()) {
+            ByteBuffer frame = outbound.peekFirst();
+            outboundBytes -= channel.write(frame);
+
+            if (frame.hasRemaining()) {
+                return;
+            }
+
+            pool.release(outbound.removeFirst());
+        }
+    }
+
+    /**
+     * Closes the channel and returns every buffer held by the connection to the pool. Closing twice does nothing.
+     */
+    void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+
+        // the budget is given back before the client can see the connection closed
+        updateMemoryUsage();
+
+        try {
+            channel.close();
+        } finally {
+            decoder.release();
+
+            if (compressor != null) {
+                compressor.close();
+            }
+
+            while (!outbound.isEmpty()) {
+                pool.release(outbound.removeFirst());
+            }
+            outboundBytes = 0;
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.LogUtils;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.server.exceptions.ServerException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates a restart without a window in which the port is closed. Every server process sharing the ready file
+ * writes its pid into it once it listens, and a process that finds the pid of another one in it has been
+ * succeeded and should drain. Listening at the same time needs {@link ServerOptions#withReusePort(boolean)}
+ * or a listening channel inherited from the same parent.
+ */
+public class Handover {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Handover.class);
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(500);
+
+    private final Path readyFile;
+    private final long pid;
+    private final Duration pollInterval;
+
+    private ScheduledExecutorService watcher;
+
+    public Handover(Path readyFile) {
+        this(readyFile, ProcessHandle.current().pid(), DEFAULT_POLL_INTERVAL);
+    }
+
+    Handover(Path readyFile, long pid, Duration pollInterval) {
+        this.readyFile = readyFile;
+        this.pid = pid;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Writes the pid of this process into the ready file, replacing it atomically.
+     */
+    public void announceReady() {
+        Path temporary = readyFile.resolveSibling(readyFile.getFileName() + "." + pid);
+
+        try {
+            Files.writeString(temporary, Long.toString(pid));
+            Files.move(temporary, readyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ServerException("Cannot announce that the server is ready", e);
+        }
+
+        LOGGER.log(Level.INFO, String.format("Announced process %d as ready in %s", pid, readyFile));
+    }
+
+    /**
+     * Polls the ready file on a daemon thread and runs the action once, when another process announces itself.
+     */
+    public synchronized void onSuccessor(Runnable action) {
+        if (watcher != null) {
+            throw new IllegalStateException("Already watching for a successor");
+        }
+
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "splitwise-handover");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watcher.scheduleWithFixedDelay(
+            () -> checkForSuccessor(action), pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    private void checkForSuccessor(Runnable action) {
+        Long announced = announcedPid();
+
+        if (announced == null || announced == pid) {
+            return;
+        }
+
+        LOGGER.log(Level.INFO, String.format("Process %d took over, handing over to it", announced));
+
+        stopWatching();
+        action.run();
+    }
+
+    private Long announcedPid() {
+        try {
+            return Long.parseLong(Files.readString(readyFile).strip());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.log(Level.WARN, "Reading the ready file failed. " + LogUtils.stringifyThrowable(e));
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package bg.fmi.mjt.splitwise.server;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel: timeouts are hashed by their deadline tick into a fixed ring of buckets, so scheduling
+ * is O(1) and every tick only looks at the timeouts of one bucket. Deadlines further than one revolution away
+ * stay in their bucket until the wheel has turned enough times.
+ * Not thread-safe, it is driven by the thread of its reactor.
+ */
+final class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final Deque<Timeout<T>>[] buckets;
+    private final int mask;
+
+    private long currentTick;
+    private int size = 0;
+
+    /**
+     * @param wheelSize  number of buckets, rounded up to a power of two
+     * @param tickMillis duration of a single tick
+     * @param nowMillis  the current time, the wheel starts at its tick
+     */
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(int wheelSize, long tickMillis, long nowMillis) {
+        if (wheelSize <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("wheelSize and tickMillis must be positive");
+        }
+
+        int bucketCount = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+
+        this.tickMillis = tickMillis;
+        this.buckets = (Deque<Timeout<T>>[]) new Deque<?>[bucketCount];
+        this.mask = bucketCount - 1;
+        this.currentTick = nowMillis / tickMillis;
+
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    long tickMillis() {
+        return tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the item to expire on the first tick at or after the deadline, but never on the current one.
+     */
+    void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+
+        buckets[(int) (deadlineTick & mask)].addLast(new Timeout<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Turns the wheel up to the current time and passes every expired item to the consumer, which may schedule
+     * it again.
+     */
+    void advance(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+
+        if (targetTick <= currentTick) {
+            return;
+        }
+
+        // after a full revolution every bucket has been visited
+        long ticks = Math.min(targetTick - currentTick, buckets.length);
+        Deque<T> expired = new ArrayDeque<>();
+
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            collectExpired(buckets[(int) (tick & mask)], targetTick, expired);
+        }
+
+        currentTick = targetTick;
+        expired.forEach(onExpired);
+    }
+
+    private void collectExpired(Deque<Timeout<T>> bucket, long targetTick, Deque<T> expired) {
+        Iterator<Timeout<T>> iterator = bucket.iterator();
+
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+
+            if (timeout.deadlineTick() <= targetTick) {
+                iterator.remove();
+                size--;
+                expired.addLast(timeout.item());
+            }
+        }
+    }
+
+    private record Timeout<T>(T item, long deadlineTick) {
+    }
+
+}
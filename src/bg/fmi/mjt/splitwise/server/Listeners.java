@@ -0,0 +1,94 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.server.exceptions.ServerException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Opens the channels a server listens on: either the one the process inherited or a newly bound one,
+ * and optionally a Unix domain socket for clients on the same host.
+ */
+final class Listeners {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Listeners.class);
+
+    private Listeners() {
+    }
+
+    static ServerSocketChannel open(String hostname, int port, ServerOptions options) {
+        try {
+            ServerSocketChannel inherited = options.inheritsChannel() ? inheritedChannel() : null;
+
+            return inherited != null ? inherited : bind(hostname, port, options.reusesPort());
+        } catch (IOException e) {
+            throw new ServerException("Cannot initialize the server", e);
+        }
+    }
+
+    /**
+     * A socket file is left behind by a process that did not stop cleanly, and one that is handing over to this
+     * process keeps accepting on its already open channel. Either way the file is replaced.
+     */
+    static ServerSocketChannel openUnix(Path socketPath) {
+        try {
+            Files.deleteIfExists(socketPath);
+
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+
+            try {
+                channel.bind(UnixDomainSocketAddress.of(socketPath));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+
+            LOGGER.log(Level.INFO, String.format("Listening on the Unix domain socket %s", socketPath));
+            return channel;
+        } catch (IOException e) {
+            throw new ServerException("Cannot bind the Unix domain socket " + socketPath, e);
+        }
+    }
+
+    private static ServerSocketChannel inheritedChannel() throws IOException {
+        Channel inherited = System.inheritedChannel();
+
+        if (inherited instanceof ServerSocketChannel channel) {
+            LOGGER.log(Level.INFO, String.format("Listening on the inherited channel %s", channel.getLocalAddress()));
+            return channel;
+        }
+
+        LOGGER.log(Level.INFO, "No listening channel was inherited, binding a new one");
+        return null;
+    }
+
+    private static ServerSocketChannel bind(String hostname, int port, boolean reusePort) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+
+        try {
+            if (reusePort && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            } else if (reusePort) {
+                LOGGER.log(Level.WARN, "SO_REUSEPORT is not supported, the port cannot be shared with a successor");
+            }
+
+            channel.bind(new InetSocketAddress(hostname, port));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return channel;
+    }
+
+}
@@ -0,0 +1,46 @@
+package bg.fmi.mjt.splitwise.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes the server holds for its connections: partially received requests and responses queued for sending.
+ * A connection is over budget when it holds more than its own share or when all connections together hold more
+ * than the global budget, and relieved once both drop to half of their budget. Thread-safe.
+ */
+final class MemoryBudget {
+
+    private final long connectionBudget;
+    private final long globalBudget;
+    private final AtomicLong used = new AtomicLong();
+
+    MemoryBudget(ServerOptions options) {
+        this.connectionBudget = options.connectionMemoryBudget();
+        this.globalBudget = options.globalMemoryBudget();
+    }
+
+    /**
+     * @param delta change of the bytes held by a connection, negative when it released some
+     */
+    void add(long delta) {
+        if (delta != 0) {
+            used.addAndGet(delta);
+        }
+    }
+
+    long used() {
+        return used.get();
+    }
+
+    boolean isGloballyExceeded() {
+        return used.get() > globalBudget;
+    }
+
+    boolean isExceeded(long connectionUsage) {
+        return connectionUsage > connectionBudget || used.get() > globalBudget;
+    }
+
+    boolean isRelieved(long connectionUsage) {
+        return connectionUsage <= connectionBudget / 2 && used.get() <= globalBudget / 2;
+    }
+
+}
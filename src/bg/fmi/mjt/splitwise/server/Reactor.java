@@ -0,0 +1,733 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+import bg.fmi.mjt.splitwise.handlers.InputHander;
+import bg.fmi.mjt.splitwise.logger.Level;
+import bg.fmi.mjt.splitwise.logger.LogUtils;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.Frame;
+import bg.fmi.mjt.splitwise.protocol.FrameWriter;
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
+import bg.fmi.mjt.splitwise.protocol.PayloadCompressor;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimitedResponses;
+import bg.fmi.mjt.splitwise.server.exceptions.ServerException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An event loop with its own selector. It owns the connections registered into it and does all of their I/O,
+ * while the commands themselves are executed by the workers. A reactor that listens on a server channel
+ * hands every accepted client to the reactor returned by its target supplier, which may be itself.
+ * Connections without traffic for longer than the idle timeout are reaped through a timing wheel.
+ * Requests of connections that accept pushed notifications are executed as their session.
+ * Connections over their memory budget, or while the server is over its global one, are not read from.
+ * A draining reactor stops accepting and reading, and stops itself once every response is written or its drain
+ * timeout passes.
+ */
+class Reactor implements Runnable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int WHEEL_SIZE = 512;
+    private static final int TICKS_PER_IDLE_TIMEOUT = 8;
+    private static final long MIN_TICK_MILLIS = 10;
+    private static final long MAX_TICK_MILLIS = 1000;
+    private static final long MEMORY_RECHECK_MILLIS = 50;
+    private static final String UNIX_DOMAIN_HOST = "local";
+    private static final Logger LOGGER = LoggerFactory.getLogger(Reactor.class);
+
+    private final String name;
+    private final ServerProtocol protocol;
+    private final Executor workers;
+    private final ServerOptions options;
+    private final Admission admission;
+    private final MemoryBudget memory;
+    private final Sessions sessions;
+    private final BufferPool pool = BufferPool.shared();
+    private final Selector selector;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final long startNanos = System.nanoTime();
+    private final long idleTimeoutMillis;
+    private final HashedTimingWheel<Connection> idleConnections;
+    private final AtomicLong reapedConnections = new AtomicLong();
+    private final Set<Connection> suspendedConnections = new HashSet<>();
+
+    // filled by other threads, drained by the reactor's own thread
+    private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<Completion> completions = new ConcurrentLinkedQueue<>();
+
+    private Supplier<Reactor> acceptTargets;
+    private volatile boolean isRunning = true;
+    private volatile long drainTimeoutMillis = -1;
+    private boolean isDraining = false;
+    private long drainDeadlineMillis;
+
+    /**
+     * @param sessions the sessions to bind logged in users to, null if notifications are not pushed
+     */
+    Reactor(String name, InputHander inputHander, Executor workers, ServerOptions options, Admission admission,
+            MemoryBudget memory, Sessions sessions) {
+        this.name = name;
+        this.protocol = new ServerProtocol(inputHander, sessions != null);
+        this.workers = workers;
+        this.options = options;
+        this.admission = admission;
+        this.memory = memory;
+        this.sessions = sessions;
+        this.idleTimeoutMillis = options.idleTimeout().toMillis();
+        this.idleConnections = idleTimeoutMillis > 0 ? createWheel(idleTimeoutMillis) : null;
+
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new ServerException("Cannot open a selector", e);
+        }
+    }
+
+    private HashedTimingWheel<Connection> createWheel(long idleTimeoutMillis) {
+        long tickMillis = Math.max(
+            MIN_TICK_MILLIS, Math.min(MAX_TICK_MILLIS, idleTimeoutMillis / TICKS_PER_IDLE_TIMEOUT)
+        );
+
+        return new HashedTimingWheel<>(WHEEL_SIZE, tickMillis, now());
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Thread-safe.
+     */
+    long reapedConnections() {
+        return reapedConnections.get();
+    }
+
+    void listen(ServerSocketChannel serverChannel, Supplier<Reactor> acceptTargets) {
+        this.acceptTargets = acceptTargets;
+
+        try {
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (ClosedChannelException e) {
+            LOGGER.log(Level.INFO, "Tried to register an already closed channel.");
+        }
+    }
+
+    /**
+     * Thread-safe. The channel is registered by the reactor's own thread on its next iteration.
+     */
+    void register(SocketChannel client) {
+        registrations.add(client);
+        selector.wakeup();
+    }
+
+    /**
+     * Thread-safe. Called by the workers when a response is ready, a null frame closes the connection.
+     */
+    void complete(Connection connection, ByteBuffer frame) {
+        completions.add(new Completion(connection, frame, true));
+        selector.wakeup();
+    }
+
+    /**
+     * Thread-safe. Queues a frame the client did not ask for.
+     */
+    void push(Connection connection, ByteBuffer frame) {
+        completions.add(new Completion(connection, frame, false));
+        selector.wakeup();
+    }
+
+    /**
+     * Thread-safe. The reactor starts draining on its next iteration.
+     */
+    void drain(long timeoutMillis) {
+        drainTimeoutMillis = timeoutMillis;
+        selector.wakeup();
+    }
+
+    void stop() {
+        isRunning = false;
+
+        if (selector.isOpen()) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (isRunning) {
+            int readyChannelsCount;
+
+            try {
+                readyChannelsCount = selector.select(selectTimeout());
+            } catch (IOException e) {
+                throw new ServerException("Selector's select method failed", e);
+            }
+
+            if (!isDraining && drainTimeoutMillis >= 0) {
+                startDraining();
+            }
+
+            handleRegistrations();
+            handleCompletions();
+            reapIdleConnections();
+            recheckSuspendedReads();
+
+            if (readyChannelsCount > 0) {
+                handleSelectedKeys();
+            }
+
+            if (isDraining && isDrained()) {
+                isRunning = false;
+            }
+        }
+
+        shutDown();
+    }
+
+    /**
+     * Wakes up for the next tick of the idle connection wheel, while draining for the drain deadline and while
+     * reading is suspended to see whether the other reactors released memory.
+     */
+    private long selectTimeout() {
+        long timeout = idleConnections == null ? 0 : idleConnections.tickMillis();
+
+        if (!suspendedConnections.isEmpty()) {
+            timeout = timeout == 0 ? MEMORY_RECHECK_MILLIS : Math.min(timeout, MEMORY_RECHECK_MILLIS);
+        }
+
+        if (isDraining) {
+            long untilDeadline = Math.max(1, drainDeadlineMillis - now());
+            timeout = timeout == 0 ? untilDeadline : Math.min(timeout, untilDeadline);
+        }
+
+        return timeout;
+    }
+
+    private void startDraining() {
+        LOGGER.log(Level.INFO, String.format("Draining %s within %d ms...", name, drainTimeoutMillis));
+
+        isDraining = true;
+        drainDeadlineMillis = now() + drainTimeoutMillis;
+
+        for (var key : selector.keys()) {
+            if (!key.isValid()) {
+                continue;
+            }
+
+            if (key.attachment() instanceof Connection connection) {
+                connection.stopReading();
+                connection.updateInterest();
+            } else {
+                close(key.channel());
+            }
+        }
+    }
+
+    /**
+     * @return whether no connection waits for a response anymore or the drain deadline passed
+     */
+    private boolean isDrained() {
+        int busyConnections = 0;
+
+        for (var key : selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Connection connection && connection.isBusy()) {
+                busyConnections++;
+            }
+        }
+
+        if (busyConnections > 0 && now() >= drainDeadlineMillis) {
+            LOGGER.log(
+                Level.WARN,
+                String.format("Drain deadline of %s passed with %d connections still busy", name, busyConnections)
+            );
+            return true;
+        }
+
+        return busyConnections == 0;
+    }
+
+    private void handleSelectedKeys() {
+        var keyIter = selector.selectedKeys()
+                              .iterator();
+
+        while (keyIter.hasNext()) {
+            SelectionKey key = keyIter.next();
+            keyIter.remove();
+
+            if (!key.isValid()) {
+                continue;
+            }
+
+            if (key.isAcceptable()) {
+                handleAccept((ServerSocketChannel) key.channel());
+                continue;
+            }
+
+            if (key.isReadable()) {
+                handleRead((Connection) key.attachment());
+            }
+
+            if (key.isValid() && key.isWritable()) {
+                handleWrite((Connection) key.attachment());
+            }
+        }
+    }
+
+    private void handleAccept(ServerSocketChannel server) {
+        SocketChannel client;
+
+        LOGGER.log(Level.INFO, "Attempting to accept a client...");
+
+        try {
+            client = server.accept();
+        } catch (IOException e) {
+            LOGGER.log(
+                Level.INFO,
+                String.format(
+                    "Could not accept a client connection. %s",
+                    LogUtils.stringifyThrowable(e)
+                )
+            );
+
+            return;
+        }
+
+        if (client == null) {
+            return;
+        }
+
+        if (!admission.tryAdmitConnection()) {
+            LOGGER.log(
+                Level.WARN,
+                String.format("Refusing a client, already %d connections are open", admission.openConnections())
+            );
+            close(client);
+            return;
+        }
+
+        acceptTargets.get().register(client);
+    }
+
+    private void handleRegistrations() {
+        SocketChannel client;
+
+        while ((client = registrations.poll()) != null) {
+            if (isDraining) {
+                close(client);
+                admission.connectionClosed();
+                continue;
+            }
+
+            LOGGER.log(Level.DEBUG, String.format("Attempting to register a client into %s...", name));
+
+            try {
+                client.configureBlocking(false);
+
+                var connection = new Connection(
+                    client, this, pool, memory, options.maxPayloadSize(), remoteHost(client)
+                );
+                connection.attach(client.register(selector, SelectionKey.OP_READ));
+                watchIdleness(connection);
+
+                LOGGER.log(
+                    Level.INFO,
+                    String.format("A client successfully connected with address: %s", connection.remoteHost())
+                );
+            } catch (IOException e) {
+                LOGGER.log(
+                    Level.WARN,
+                    "Registering a client channel into the selector failed. " + LogUtils.stringifyThrowable(e)
+                );
+                close(client);
+                admission.connectionClosed();
+            }
+        }
+    }
+
+    private void handleRead(Connection connection) {
+        SocketChannel client = connection.channel();
+
+        try {
+            buffer.clear();
+            int r = client.read(buffer);
+
+            if (r == -1) {
+                LOGGER.log(
+                    Level.INFO,
+                    String.format("Client with address: %s disconnected", connection.remoteHost())
+                );
+
+                close(connection);
+            } else if (r > 0) {
+                connection.touch(now());
+                buffer.flip();
+                connection.decoder().feed(buffer);
+
+                dispatchFrames(connection);
+
+                if (!connection.isClosed()) {
+                    applyBackpressure(connection);
+                }
+
+                if (!connection.isClosed()) {
+                    connection.updateInterest();
+                }
+            }
+        } catch (IOException | ProtocolException e) {
+            disconnect(connection, e);
+        }
+    }
+
+    private void dispatchFrames(Connection connection) {
+        Frame frame;
+
+        while ((frame = connection.decoder().next()) != null) {
+            if (frame.hasFlag(Frames.FLAG_HANDSHAKE)) {
+                handshake(connection, frame);
+                continue;
+            }
+
+            int correlationId = frame.correlationId();
+            long retryAfterMillis = admission.tryAcquireRequest(connection.remoteHost());
+
+            if (retryAfterMillis > 0) {
+                rejectRequest(connection, correlationId, retryAfterMillis);
+                continue;
+            }
+
+            try {
+                workers.execute(requestTask(connection, frame));
+                connection.requestStarted();
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.WARN, "Dropping a request because the server is shutting down");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Answers right away on the reactor's thread, a rate limited request never occupies a worker.
+     */
+    private void rejectRequest(Connection connection, int correlationId, long retryAfterMillis) {
+        LOGGER.log(Level.DEBUG, String.format("Rate limited a request from %s", connection.remoteHost()));
+
+        connection.enqueue(Frames.encode(correlationId, RateLimitedResponses.of(retryAfterMillis), pool));
+        handleWrite(connection);
+    }
+
+    private void handshake(Connection connection, Frame frame) {
+        byte features = protocol.negotiate(Handshake.decode(frame));
+
+        LOGGER.log(Level.DEBUG, String.format("Agreed on features %d with %s", features, connection.remoteHost()));
+
+        connection.setFeatures(features, options.compressionThreshold());
+        connection.enqueue(Handshake.encode(features));
+        handleWrite(connection);
+    }
+
+    /**
+     * The payload is copied here, on the reactor's thread, because the decoder reuses its bytes.
+     */
+    private Runnable requestTask(Connection connection, Frame frame) {
+        int correlationId = frame.correlationId();
+        PayloadCompressor compressor = connection.compressor();
+        Session session = sessions != null && connection.acceptsPushes() ? connection : null;
+
+        if (connection.isBinary()) {
+            byte[] request = frame.payloadBytes();
+            return () -> execute(
+                connection, session, () -> encodeResponse(correlationId, protocol.handleBinary(request), compressor)
+            );
+        }
+
+        String input = connection.textDecoder().decode(frame.payload());
+        return () -> execute(connection, session, () -> handleText(correlationId, input, compressor));
+    }
+
+    /**
+     * Runs on a worker thread. The response is written straight into its frame, only a response that is long
+     * enough to be compressed is copied out of it.
+     */
+    private ByteBuffer handleText(int correlationId, String input, PayloadCompressor compressor) {
+        try (var out = new FrameWriter(correlationId, pool)) {
+            protocol.handle(input, out);
+
+            if (compressor == null || !compressor.isWorthCompressing(out.payloadSize())) {
+                return out.toFrame();
+            }
+
+            return encodeResponse(correlationId, out.toPayloadBytes(), compressor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer encodeResponse(int correlationId, byte[] response, PayloadCompressor compressor) {
+        byte[] compressed = compressor == null ? null : compressor.compress(response);
+
+        return compressed == null
+            ? Frames.encode(correlationId, Frames.NO_FLAGS, response, pool)
+            : Frames.encode(correlationId, Frames.FLAG_COMPRESSED, compressed, pool);
+    }
+
+    /**
+     * Runs on a worker thread. Requests of one connection may complete in any order.
+     */
+    private void execute(Connection connection, Session session, Supplier<ByteBuffer> response) {
+        ByteBuffer frame;
+
+        try {
+            frame = session == null ? response.get() : sessions.runAs(session, response);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.ERROR, "Handling a request failed. " + LogUtils.stringifyThrowable(e));
+            frame = null;
+        }
+
+        complete(connection, frame);
+    }
+
+    private void handleCompletions() {
+        Completion completion;
+
+        while ((completion = completions.poll()) != null) {
+            Connection connection = completion.connection();
+
+            if (!connection.key().isValid()) {
+                if (completion.frame() != null) {
+                    pool.release(completion.frame());
+                }
+
+                continue;
+            }
+
+            if (completion.frame() == null) {
+                close(connection);
+                continue;
+            }
+
+            if (completion.isResponse()) {
+                connection.requestCompleted();
+                connection.touch(now());
+            }
+
+            connection.enqueue(completion.frame());
+            handleWrite(connection);
+        }
+    }
+
+    private void handleWrite(Connection connection) {
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            disconnect(connection, e);
+            return;
+        }
+
+        applyBackpressure(connection);
+
+        if (!connection.isClosed()) {
+            connection.updateInterest();
+        }
+    }
+
+    /**
+     * A client that does not read its responses, or that makes the server hold more than its memory budget,
+     * stops being read from, so it cannot make the server buffer an unbounded amount of bytes for it.
+     * A partial request is never stuck this way, reading the rest of it is the only way to release it. Instead
+     * it is accounted with its announced size, and the connection is closed if that does not fit the global budget.
+     */
+    private void applyBackpressure(Connection connection) {
+        long queued = connection.outboundBytes();
+        long usage = connection.updateMemoryUsage();
+        boolean isAwaitingRequest = connection.isAwaitingRestOfRequest();
+
+        if (isAwaitingRequest && memory.isGloballyExceeded()) {
+            LOGGER.log(
+                Level.WARN,
+                String.format("Closing %s, its partial request of %d bytes is over the global memory budget",
+                    connection.remoteHost(), usage)
+            );
+            close(connection);
+            return;
+        }
+
+        if (!connection.isReadingSuspended() && !isAwaitingRequest
+            && (queued > options.outboundHighWaterMark() || memory.isExceeded(usage))) {
+            LOGGER.log(
+                Level.DEBUG,
+                String.format("Suspending reads from %s, holding %d bytes for it", connection.remoteHost(), usage)
+            );
+            connection.setReadingSuspended(true);
+            suspendedConnections.add(connection);
+        } else if (connection.isReadingSuspended() && (isAwaitingRequest
+            || queued <= options.outboundLowWaterMark() && memory.isRelieved(usage))) {
+            LOGGER.log(Level.DEBUG, String.format("Resuming reads from %s", connection.remoteHost()));
+            connection.setReadingSuspended(false);
+        }
+    }
+
+    /**
+     * The global budget is relieved by the writes of every reactor, so suspended connections are not only resumed
+     * by their own writes.
+     */
+    private void recheckSuspendedReads() {
+        suspendedConnections.removeIf(connection -> {
+            if (connection.isClosed() || !connection.isReadingSuspended()) {
+                return true;
+            }
+
+            applyBackpressure(connection);
+
+            if (connection.isClosed()) {
+                return true;
+            }
+
+            connection.updateInterest();
+
+            return !connection.isReadingSuspended();
+        });
+    }
+
+    private void watchIdleness(Connection connection) {
+        long now = now();
+        connection.touch(now);
+
+        if (idleConnections != null) {
+            idleConnections.schedule(connection, now + idleTimeoutMillis);
+        }
+    }
+
+    private void reapIdleConnections() {
+        if (idleConnections != null) {
+            idleConnections.advance(now(), this::expire);
+        }
+    }
+
+    /**
+     * Activity does not touch the wheel, instead a connection that was active since it was scheduled is
+     * scheduled again for the rest of its timeout when its old deadline comes.
+     */
+    private void expire(Connection connection) {
+        if (!connection.key().isValid()) {
+            return;
+        }
+
+        long now = now();
+        long deadline = connection.lastActivityMillis() + idleTimeoutMillis;
+
+        if (connection.isBusy()) {
+            idleConnections.schedule(connection, now + idleTimeoutMillis);
+        } else if (deadline > now) {
+            idleConnections.schedule(connection, deadline);
+        } else {
+            LOGGER.log(
+                Level.INFO,
+                String.format("Closing connection with %s after %d ms of inactivity", connection.remoteHost(),
+                    now - connection.lastActivityMillis())
+            );
+
+            close(connection);
+            reapedConnections.incrementAndGet();
+        }
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Clients of the Unix domain socket have no address of their own, they all share the server's host.
+     */
+    private static String remoteHost(SocketChannel client) throws IOException {
+        return client.getRemoteAddress() instanceof InetSocketAddress inet
+            ? inet.getAddress().getHostAddress()
+            : UNIX_DOMAIN_HOST;
+    }
+
+    private void disconnect(Connection connection, Exception cause) {
+        String inet = connection.remoteHost();
+        LOGGER.log(
+            Level.WARN,
+            String.format(
+                "Communicating with client: %s failed. Disconnecting client... %s",
+                inet,
+                LogUtils.stringifyThrowable(cause)
+            )
+        );
+
+        close(connection);
+
+        LOGGER.log(
+            Level.INFO, String.format("Successfully disconnected client: %s", inet)
+        );
+    }
+
+    private void close(Connection connection) {
+        if (connection.isClosed()) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARN, "Closing a connection failed. " + LogUtils.stringifyThrowable(e));
+        } finally {
+            admission.connectionClosed();
+
+            if (sessions != null) {
+                sessions.closed(connection);
+            }
+        }
+    }
+
+    private void close(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARN, "Closing a resource failed. " + LogUtils.stringifyThrowable(e));
+        }
+    }
+
+    private void shutDown() {
+        for (var key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                close(connection);
+            } else {
+                close(key.channel());
+            }
+        }
+
+        SocketChannel pending;
+        while ((pending = registrations.poll()) != null) {
+            close(pending);
+            admission.connectionClosed();
+        }
+
+        close(selector);
+    }
+
+    private record Completion(Connection connection, ByteBuffer frame, boolean isResponse) {
+    }
+
+}
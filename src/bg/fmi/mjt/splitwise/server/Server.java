@@ -1,44 +1,74 @@
 package bg.fmi.mjt.splitwise.server;
 
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
 import bg.fmi.mjt.splitwise.logger.Level;
-import bg.fmi.mjt.splitwise.logger.LogUtils;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
 import bg.fmi.mjt.splitwise.handlers.InputHander;
 import bg.fmi.mjt.splitwise.server.exceptions.ServerException;
 
-import java.io.Closeable;
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.channels.ClosedChannelException;
-import java.nio.channels.SelectableChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
-import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * With zero sub-reactors a single reactor accepts clients and does their I/O on the thread calling
+ * {@link #run()}. Otherwise that thread only accepts and hands the clients round-robin to the sub-reactors,
+ * each running its own event loop on a separate thread.
+ */
+public class Server implements ServerEngine {
 
-public class Server implements Runnable {
-
-    private static final int BUFFER_SIZE = 8192;
     private static final Logger LOGGER = LoggerFactory.getLogger(Server.class);
-    private static final Charset TRANSPORTATION_CHARSET = StandardCharsets.UTF_8;
+
+    // how long a stop without draining waits for the commands that are still running
+    private static final long STOP_GRACE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     private final String hostname;
     private final int port;
     private final InputHander inputHander;
-    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ServerOptions options;
+    private final Admission admission;
+    private final MemoryBudget memory;
+    private final Sessions sessions;
+
+    private final List<Reactor> subReactors = new ArrayList<>();
+    private final List<Thread> subReactorThreads = new ArrayList<>();
 
-    private Selector selector;
+    private Reactor mainReactor;
     private ServerSocketChannel serverChannel;
-    private boolean isRunning = false;
+    private ServerSocketChannel unixChannel;
+    private ExecutorService workers;
+    private int nextSubReactor = 0;
+    private volatile long drainDeadlineNanos;
+    private volatile boolean isDraining = false;
 
     public Server(String hostname, int port, InputHander inputHander) {
+        this(hostname, port, inputHander, ServerOptions.defaults());
+    }
+
+    public Server(String hostname, int port, InputHander inputHander, ServerOptions options) {
+        this(hostname, port, inputHander, options, null);
+    }
+
+    /**
+     * @param sessions where logged in users are bound to their connections so notifications can be pushed to them,
+     *                 null if notifications are not pushed
+     */
+    public Server(String hostname, int port, InputHander inputHander, ServerOptions options, Sessions sessions) {
         this.hostname = hostname;
         this.port = port;
         this.inputHander = inputHander;
+        this.options = options;
+        this.admission = new Admission(options);
+        this.memory = new MemoryBudget(options);
+        this.sessions = sessions;
 
         init();
     }
@@ -47,36 +77,60 @@ public class Server implements Runnable {
         LOGGER.log(
             Level.INFO, String.format("Starting a server with hostname '%s' and port '%d'...", hostname, port)
         );
+        LOGGER.log(Level.DEBUG, "Server options: " + options);
 
-        initSelector();
+        initWorkers();
+        initReactors();
         initServer();
 
-        registerInSelector(serverChannel, SelectionKey.OP_ACCEPT);
+        Supplier<Reactor> acceptTargets = subReactors.isEmpty() ? () -> mainReactor : this::nextSubReactor;
+        mainReactor.listen(serverChannel, acceptTargets);
+
+        if (unixChannel != null) {
+            mainReactor.listen(unixChannel, acceptTargets);
+        }
 
         LOGGER.log(
             Level.INFO, String.format("Server with hostname '%s' and port '%d' successfully started", hostname, port)
         );
     }
 
-    private void initSelector() {
-        LOGGER.log(Level.DEBUG, "Initializing selector...");
+    private void initWorkers() {
+        var threadNumber = new AtomicInteger();
 
-        try {
-            selector = Selector.open();
-        } catch (IOException e) {
-            throw new ServerException("Cannot open a selector", e);
+        workers = Executors.newFixedThreadPool(
+            options.workerCount(),
+            r -> new Thread(r, "splitwise-worker-" + threadNumber.incrementAndGet())
+        );
+    }
+
+    private void initReactors() {
+        LOGGER.log(Level.DEBUG, String.format("Initializing %d sub-reactors...", options.reactorCount()));
+
+        mainReactor = new Reactor("main-reactor", inputHander, workers, options, admission, memory, sessions);
+
+        for (int i = 1; i <= options.reactorCount(); i++) {
+            var reactor = new Reactor("sub-reactor-" + i, inputHander, workers, options, admission, memory, sessions);
+
+            subReactors.add(reactor);
+            subReactorThreads.add(new Thread(reactor, "splitwise-" + reactor.name()));
         }
 
-        LOGGER.log(Level.DEBUG, "Selector finished initializing.");
+        LOGGER.log(Level.DEBUG, "Reactors finished initializing.");
     }
 
     private void initServer() {
         LOGGER.log(Level.DEBUG, "Starting server socket...");
 
+        serverChannel = Listeners.open(hostname, port, options);
+
         try {
-            serverChannel = ServerSocketChannel.open();
-            serverChannel.bind(new InetSocketAddress(hostname, port));
             serverChannel.configureBlocking(false);
+
+            if (options.unixSocketPath() != null) {
+                unixChannel = Listeners.openUnix(options.unixSocketPath());
+                unixChannel.configureBlocking(false);
+            }
         } catch (IOException e) {
             throw new ServerException("Cannot initialize the server", e);
         }
@@ -84,148 +138,120 @@ public class Server implements Runnable {
         LOGGER.log(Level.DEBUG, "Server socket successfully started");
     }
 
-    private void registerInSelector(SelectableChannel channel, int operations) {
-        try {
-            channel.register(selector, operations);
-        } catch (ClosedChannelException e) {
-            LOGGER.log(Level.INFO, "Tried to register an already closed channel.");
-        }
-    }
+    // only called from the main reactor's thread
+    private Reactor nextSubReactor() {
+        Reactor reactor = subReactors.get(nextSubReactor);
+        nextSubReactor = (nextSubReactor + 1) % subReactors.size();
 
-    private void close(Closeable c) {
-        try {
-            c.close();
-        } catch (IOException e) {
-            LOGGER.log(Level.WARN, "Closing a resource failed. " + LogUtils.stringifyThrowable(e));
-        }
+        return reactor;
     }
 
     @Override
-    public void run() {
-        isRunning = true;
-
-        while (isRunning) {
+    public int openConnections() {
+        return admission.openConnections();
+    }
 
-            int readyChannelsCount;
+    /**
+     * @return number of clients closed right after accepting them because too many connections were open
+     */
+    public long rejectedConnections() {
+        return admission.rejectedConnections();
+    }
 
-            try {
-                readyChannelsCount = selector.select();
-            } catch (IOException e) {
-                throw new ServerException("Selector's select method failed", e);
-            }
+    /**
+     * @return bytes of partial requests and queued responses the server holds for its connections
+     */
+    public long heldBytes() {
+        return memory.used();
+    }
 
-            if (readyChannelsCount == 0) {
-                continue;
-            }
+    /**
+     * @return number of connections closed so far for being idle longer than the idle timeout
+     */
+    public long reapedConnections() {
+        long reaped = mainReactor.reapedConnections();
 
-            var keyIter = selector.selectedKeys()
-                                  .iterator();
+        for (Reactor reactor : subReactors) {
+            reaped += reactor.reapedConnections();
+        }
 
-            while (keyIter.hasNext()) {
-                SelectionKey key = keyIter.next();
+        return reaped;
+    }
 
-                if (key.isAcceptable()) {
-                    handleAccept((ServerSocketChannel) key.channel());
-                } else if (key.isReadable()) {
-                    handleRead((SocketChannel) key.channel());
-                }
+    @Override
+    public void run() {
+        subReactorThreads.forEach(Thread::start);
 
-                keyIter.remove();
-            }
-        }
+        mainReactor.run();
 
         shutDown();
 
         LOGGER.log(Level.INFO, "Server shutdown was successful");
     }
 
-    private void handleAccept(ServerSocketChannel server) {
-        SocketChannel client;
-
-        LOGGER.log(Level.INFO, "Attempting to accept a client...");
+    @Override
+    public void stop() {
+        LOGGER.log(Level.INFO, "Shutting down server...");
 
-        try {
-            client = server.accept();
-        } catch (IOException e) {
-            LOGGER.log(
-                Level.INFO,
-                String.format(
-                    "Could not accept a client connection. %s",
-                    LogUtils.stringifyThrowable(e)
-                )
-            );
-
-            return;
-        }
+        mainReactor.stop();
+    }
 
-        LOGGER.log(Level.DEBUG, "Attempting to register a client into selector...");
+    /**
+     * Every reactor drains its own connections and stops on its own, the main one first stops accepting.
+     */
+    @Override
+    public void drain(Duration timeout) {
+        LOGGER.log(Level.INFO, "Draining server...");
 
-        try {
-            client.configureBlocking(false);
-            client.register(selector, SelectionKey.OP_READ);
-        } catch (IOException e) {
-            throw new ServerException("Registering a client channel into the selector failed", e);
-        }
+        drainDeadlineNanos = System.nanoTime() + timeout.toNanos();
+        isDraining = true;
 
-        LOGGER.log(
-            Level.INFO,
-            String.format("A client successfully connected with address: %s", client.socket().getInetAddress())
-        );
+        long timeoutMillis = timeout.toMillis();
+        subReactors.forEach(reactor -> reactor.drain(timeoutMillis));
+        mainReactor.drain(timeoutMillis);
     }
 
-    private void handleRead(SocketChannel client) {
-        try {
-            buffer.clear();
-            int r = client.read(buffer);
-
-            if (r == -1) {
-                LOGGER.log(
-                    Level.INFO,
-                    String.format("Client with address: %s disconnected", client.socket().getInetAddress())
-                );
-
-                close(client);
-            } else if (r > 0) {
-                buffer.flip();
-                byte[] bytes = new byte[buffer.remaining()];
-                buffer.get(bytes);
-
-                String input = new String(bytes, TRANSPORTATION_CHARSET);
-                String result = inputHander.handle(input);
-
-                buffer.clear();
-                buffer.put(result.getBytes(TRANSPORTATION_CHARSET));
-                buffer.flip();
-                client.write(buffer);
+    private void shutDown() {
+        if (!isDraining) {
+            subReactors.forEach(Reactor::stop);
+        }
+
+        for (Thread thread : subReactorThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        } catch (IOException e) {
-            String inet = client.socket().getInetAddress().toString();
-            LOGGER.log(
-                Level.WARN,
-                String.format("Communicating with client: %s failed. Disconnecting client...", inet)
-            );
+        }
 
-            close(client);
+        awaitWorkers();
 
-            LOGGER.log(
-                Level.INFO, String.format("Successfully disconnected client: %s", inet)
-            );
+        long outstandingBuffers = BufferPool.shared().outstanding();
+        if (outstandingBuffers > 0) {
+            LOGGER.log(Level.WARN, String.format("%d pooled buffers were never released", outstandingBuffers));
         }
     }
 
-    public void stop() {
-        LOGGER.log(Level.INFO, "Shutting down server...");
-        isRunning = false;
+    /**
+     * Lets the commands that are still running finish, so none is interrupted in the middle of a write to the
+     * storage, and only interrupts the ones still running at the drain deadline.
+     */
+    private void awaitWorkers() {
+        workers.shutdown();
 
-        if (selector.isOpen()) {
-            selector.wakeup();
-        }
-    }
+        long timeoutNanos = isDraining
+            ? Math.max(0, drainDeadlineNanos - System.nanoTime())
+            : STOP_GRACE_PERIOD_NANOS;
 
-    private void shutDown() {
-        for (var key : selector.keys()) {
-            close(key.channel());
+        try {
+            if (!workers.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                LOGGER.log(Level.WARN, "Interrupting the commands still running after the drain deadline");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        workers.shutdownNow();
     }
 
 }
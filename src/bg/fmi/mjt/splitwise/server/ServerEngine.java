@@ -0,0 +1,26 @@
+package bg.fmi.mjt.splitwise.server;
+
+import java.time.Duration;
+
+/**
+ * A network front end serving clients until {@link #stop()} or {@link #drain(Duration)} is called.
+ */
+public interface ServerEngine extends Runnable {
+
+    /**
+     * Closes every connection right away, requests that are being executed are never answered.
+     */
+    void stop();
+
+    /**
+     * Stops accepting clients and reading requests, answers the requests already read and then stops.
+     * Connections still waiting for a response when the timeout passes are closed without one.
+     */
+    void drain(Duration timeout);
+
+    /**
+     * Thread-safe.
+     */
+    int openConnections();
+
+}
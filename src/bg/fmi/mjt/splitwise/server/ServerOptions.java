@@ -0,0 +1,275 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.protocol.Frames;
+import bg.fmi.mjt.splitwise.protocol.PayloadCompressor;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public final class ServerOptions {
+
+    private static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final long DEFAULT_OUTBOUND_HIGH_WATER_MARK = 1024 * 1024;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    private static final long DEFAULT_CONNECTION_MEMORY_BUDGET = 4 * 1024 * 1024;
+    private static final long DEFAULT_GLOBAL_MEMORY_BUDGET = 256 * 1024 * 1024;
+
+    private int workerCount = DEFAULT_WORKER_COUNT;
+    private int reactorCount = 0;
+    private long outboundHighWaterMark = DEFAULT_OUTBOUND_HIGH_WATER_MARK;
+    private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private RateLimit hostRateLimit = null;
+    private int compressionThreshold = PayloadCompressor.DEFAULT_THRESHOLD;
+    private boolean inheritsChannel = false;
+    private boolean reusesPort = false;
+    private long connectionMemoryBudget = DEFAULT_CONNECTION_MEMORY_BUDGET;
+    private long globalMemoryBudget = DEFAULT_GLOBAL_MEMORY_BUDGET;
+    private Path unixSocketPath = null;
+
+    private ServerOptions() {
+    }
+
+    private ServerOptions(ServerOptions other) {
+        this.workerCount = other.workerCount;
+        this.reactorCount = other.reactorCount;
+        this.outboundHighWaterMark = other.outboundHighWaterMark;
+        this.idleTimeout = other.idleTimeout;
+        this.maxConnections = other.maxConnections;
+        this.hostRateLimit = other.hostRateLimit;
+        this.compressionThreshold = other.compressionThreshold;
+        this.inheritsChannel = other.inheritsChannel;
+        this.reusesPort = other.reusesPort;
+        this.connectionMemoryBudget = other.connectionMemoryBudget;
+        this.globalMemoryBudget = other.globalMemoryBudget;
+        this.unixSocketPath = other.unixSocketPath;
+    }
+
+    public static ServerOptions defaults() {
+        return new ServerOptions();
+    }
+
+    public ServerOptions withWorkerCount(int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.workerCount = workerCount;
+        return copy;
+    }
+
+    /**
+     * @param reactorCount number of sub-reactors doing client I/O, 0 means accepting and I/O share one reactor
+     */
+    public ServerOptions withReactorCount(int reactorCount) {
+        if (reactorCount < 0) {
+            throw new IllegalArgumentException("reactorCount cannot be negative");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.reactorCount = reactorCount;
+        return copy;
+    }
+
+    /**
+     * @param outboundHighWaterMark queued response bytes above which the server stops reading from a connection.
+     *                              Reading resumes once the queue drains to half of that.
+     */
+    public ServerOptions withOutboundHighWaterMark(long outboundHighWaterMark) {
+        if (outboundHighWaterMark <= 0) {
+            throw new IllegalArgumentException("outboundHighWaterMark must be positive");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.outboundHighWaterMark = outboundHighWaterMark;
+        return copy;
+    }
+
+    /**
+     * @param idleTimeout time without any traffic after which a connection is closed, {@link Duration#ZERO}
+     *                    keeps idle connections open forever
+     */
+    public ServerOptions withIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout == null || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("idleTimeout cannot be null or negative");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.idleTimeout = idleTimeout;
+        return copy;
+    }
+
+    /**
+     * @param maxConnections number of open connections above which newly accepted clients are closed right away
+     */
+    public ServerOptions withMaxConnections(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.maxConnections = maxConnections;
+        return copy;
+    }
+
+    /**
+     * @param hostRateLimit rate of requests allowed from a single remote host, null means unlimited
+     */
+    public ServerOptions withHostRateLimit(RateLimit hostRateLimit) {
+        var copy = new ServerOptions(this);
+        copy.hostRateLimit = hostRateLimit;
+        return copy;
+    }
+
+    /**
+     * @param compressionThreshold size in bytes from which responses are compressed on connections that agreed to it
+     */
+    public ServerOptions withCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("compressionThreshold cannot be negative");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.compressionThreshold = compressionThreshold;
+        return copy;
+    }
+
+    /**
+     * @param inheritsChannel whether to listen on the channel inherited from the parent process
+     *                        ({@link System#inheritedChannel()}) if there is one, instead of binding a new one
+     */
+    public ServerOptions withInheritedChannel(boolean inheritsChannel) {
+        var copy = new ServerOptions(this);
+        copy.inheritsChannel = inheritsChannel;
+        return copy;
+    }
+
+    /**
+     * @param reusesPort whether to bind with SO_REUSEPORT, so a successor process can listen on the same port
+     *                   before this one stops
+     */
+    public ServerOptions withReusePort(boolean reusesPort) {
+        var copy = new ServerOptions(this);
+        copy.reusesPort = reusesPort;
+        return copy;
+    }
+
+    /**
+     * @param connectionMemoryBudget bytes of partial requests and queued responses a single connection may hold
+     *                               before the server stops reading from it. A request frame has to fit into it,
+     *                               bigger ones are rejected as soon as their header arrives.
+     */
+    public ServerOptions withConnectionMemoryBudget(long connectionMemoryBudget) {
+        if (connectionMemoryBudget <= Frames.HEADER_SIZE) {
+            throw new IllegalArgumentException("connectionMemoryBudget must be larger than a frame header");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.connectionMemoryBudget = connectionMemoryBudget;
+        return copy;
+    }
+
+    /**
+     * @param globalMemoryBudget bytes all connections together may hold before the server stops reading new
+     *                           requests
+     */
+    public ServerOptions withGlobalMemoryBudget(long globalMemoryBudget) {
+        if (globalMemoryBudget <= 0) {
+            throw new IllegalArgumentException("globalMemoryBudget must be positive");
+        }
+
+        var copy = new ServerOptions(this);
+        copy.globalMemoryBudget = globalMemoryBudget;
+        return copy;
+    }
+
+    /**
+     * @param unixSocketPath where to also listen on a Unix domain socket for clients on the same host,
+     *                       null means only TCP
+     */
+    public ServerOptions withUnixSocket(Path unixSocketPath) {
+        var copy = new ServerOptions(this);
+        copy.unixSocketPath = unixSocketPath;
+        return copy;
+    }
+
+    public int workerCount() {
+        return workerCount;
+    }
+
+    public int reactorCount() {
+        return reactorCount;
+    }
+
+    public long outboundHighWaterMark() {
+        return outboundHighWaterMark;
+    }
+
+    public long outboundLowWaterMark() {
+        return outboundHighWaterMark / 2;
+    }
+
+    public Duration idleTimeout() {
+        return idleTimeout;
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    public RateLimit hostRateLimit() {
+        return hostRateLimit;
+    }
+
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public boolean inheritsChannel() {
+        return inheritsChannel;
+    }
+
+    public boolean reusesPort() {
+        return reusesPort;
+    }
+
+    public long connectionMemoryBudget() {
+        return connectionMemoryBudget;
+    }
+
+    public long globalMemoryBudget() {
+        return globalMemoryBudget;
+    }
+
+    public Path unixSocketPath() {
+        return unixSocketPath;
+    }
+
+    /**
+     * @return the largest request payload, so that a whole request frame fits into the connection's memory budget
+     */
+    public int maxPayloadSize() {
+        return (int) Math.min(Frames.MAX_PAYLOAD_SIZE, connectionMemoryBudget - Frames.HEADER_SIZE);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerOptions{" +
+            "workerCount=" + workerCount +
+            ", reactorCount=" + reactorCount +
+            ", outboundHighWaterMark=" + outboundHighWaterMark +
+            ", idleTimeout=" + idleTimeout +
+            ", maxConnections=" + maxConnections +
+            ", hostRateLimit=" + hostRateLimit +
+            ", compressionThreshold=" + compressionThreshold +
+            ", inheritsChannel=" + inheritsChannel +
+            ", reusesPort=" + reusesPort +
+            ", connectionMemoryBudget=" + connectionMemoryBudget +
+            ", globalMemoryBudget=" + globalMemoryBudget +
+            ", unixSocketPath=" + unixSocketPath +
+            '}';
+    }
+}
@@ -0,0 +1,73 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.handlers.InputHander;
+import bg.fmi.mjt.splitwise.handlers.RequestHandler;
+import bg.fmi.mjt.splitwise.handlers.StreamingHandler;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
+import bg.fmi.mjt.splitwise.protocol.binary.BinaryCodec;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+
+/**
+ * What both server engines do with the payload of a frame: agree on the features of a connection during the
+ * handshake and pass requests in the agreed format to the handler. Compression is always offered, the binary
+ * format only if the input handler is also a {@link RequestHandler} and pushed notifications only if the engine
+ * can deliver them.
+ */
+final class ServerProtocol {
+
+    private final InputHander inputHander;
+    private final RequestHandler requestHandler;
+    private final StreamingHandler streamingHandler;
+    private final boolean supportsPush;
+
+    ServerProtocol(InputHander inputHander, boolean supportsPush) {
+        this.inputHander = inputHander;
+        this.requestHandler = inputHander instanceof RequestHandler handler ? handler : null;
+        this.streamingHandler = inputHander instanceof StreamingHandler handler ? handler : null;
+        this.supportsPush = supportsPush;
+    }
+
+    byte supportedFeatures() {
+        byte features = Handshake.FEATURE_COMPRESSION;
+
+        if (requestHandler != null) {
+            features |= Handshake.FEATURE_BINARY;
+        }
+
+        if (supportsPush) {
+            features |= Handshake.FEATURE_PUSH;
+        }
+
+        return features;
+    }
+
+    /**
+     * @return the features both sides support
+     */
+    byte negotiate(byte requestedFeatures) {
+        return (byte) (requestedFeatures & supportedFeatures());
+    }
+
+    String handle(String input) {
+        return inputHander.handle(input);
+    }
+
+    void handle(String input, Writer out) throws IOException {
+        if (streamingHandler != null) {
+            streamingHandler.handle(input, out);
+        } else {
+            out.write(inputHander.handle(input));
+        }
+    }
+
+    byte[] handleBinary(byte[] request) {
+        CommandRequest decoded = BinaryCodec.decodeRequest(ByteBuffer.wrap(request));
+
+        return BinaryCodec.encodeResult(requestHandler.handleRequest(decoded));
+    }
+
+}
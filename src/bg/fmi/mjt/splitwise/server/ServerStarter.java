@@ -1,20 +1,36 @@
 package bg.fmi.mjt.splitwise.server;
 
+import bg.fmi.mjt.splitwise.cache.VersionedCache;
+import bg.fmi.mjt.splitwise.commands.executors.CachingCommandExecutor;
+import bg.fmi.mjt.splitwise.commands.executors.MeasuringCommandExecutor;
+import bg.fmi.mjt.splitwise.commands.executors.RateLimitingCommandExecutor;
+import bg.fmi.mjt.splitwise.commands.executors.ResultCommandExecutor;
 import bg.fmi.mjt.splitwise.commands.executors.ServerCommandExecutor;
 import bg.fmi.mjt.splitwise.commands.validators.DefaultCommandValidator;
-import bg.fmi.mjt.splitwise.gson.adapters.LocalDateTimeAdapter;
 import bg.fmi.mjt.splitwise.handlers.DefaultServerInputHandler;
+import bg.fmi.mjt.splitwise.metrics.AdminEndpoint;
+import bg.fmi.mjt.splitwise.metrics.JvmMetrics;
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimit;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimiter;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.JsonResponses;
+import bg.fmi.mjt.splitwise.service.NotificationChannel;
 import bg.fmi.mjt.splitwise.service.Service;
+import bg.fmi.mjt.splitwise.storage.dao.Dao;
 import bg.fmi.mjt.splitwise.storage.dao.FileDao;
+import bg.fmi.mjt.splitwise.storage.dao.Identifiable;
+import bg.fmi.mjt.splitwise.storage.dao.MeasuringDao;
 import bg.fmi.mjt.splitwise.storage.models.Group;
 import bg.fmi.mjt.splitwise.storage.models.Payment;
 import bg.fmi.mjt.splitwise.storage.models.User;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import java.nio.file.Path;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
 public class ServerStarter {
@@ -26,29 +42,193 @@ public class ServerStarter {
     private static final String HOST = "localhost";
     private static final int PORT = 7777;
 
-    private static final Gson GSON =
-        new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+    private static final String WORKER_COUNT_PROPERTY = "splitwise.workers";
+    private static final String REACTOR_COUNT_PROPERTY = "splitwise.reactors";
+    private static final String IDLE_TIMEOUT_SECONDS_PROPERTY = "splitwise.idleTimeoutSeconds";
+    private static final String MAX_CONNECTIONS_PROPERTY = "splitwise.maxConnections";
+    private static final String HOST_RATE_LIMIT_PROPERTY = "splitwise.hostRequestsPerSecond";
+    private static final String TOKEN_RATE_LIMIT_PROPERTY = "splitwise.tokenRequestsPerSecond";
+    private static final String COMPRESSION_THRESHOLD_PROPERTY = "splitwise.compressionThreshold";
+    private static final String DRAIN_TIMEOUT_SECONDS_PROPERTY = "splitwise.drainTimeoutSeconds";
+    private static final String CONNECTION_MEMORY_BUDGET_PROPERTY = "splitwise.connectionMemoryBudget";
+    private static final String GLOBAL_MEMORY_BUDGET_PROPERTY = "splitwise.globalMemoryBudget";
+    private static final String ENGINE_PROPERTY = "splitwise.engine";
+    private static final String INHERIT_CHANNEL_PROPERTY = "splitwise.inheritChannel";
+    private static final String HANDOVER_FILE_PROPERTY = "splitwise.handoverFile";
+    private static final String ADMIN_PORT_PROPERTY = "splitwise.adminPort";
+    private static final String UNIX_SOCKET_PROPERTY = "splitwise.unixSocket";
+    private static final String RESPONSE_CACHE_CHARS_PROPERTY = "splitwise.responseCacheChars";
+
+    private static final int DEFAULT_DRAIN_TIMEOUT_SECONDS = 10;
+    private static final long DEFAULT_RESPONSE_CACHE_CHARS = 4 * 1024 * 1024;
+    private static final Duration FLUSH_GRACE_PERIOD = Duration.ofSeconds(5);
+
+    private static final String BLOCKING_ENGINE = "blocking";
 
     public static void main(String[] args) {
-        var userDao = new FileDao<>(PATH_TO_USER_DB, User.class);
-        var groupDao = new FileDao<>(PATH_TO_GROUP_DB, Group.class);
-        var paymentDao = new FileDao<>(PATH_TO_PAYMENT_DB, GSON, Payment.class);
+        // nothing is measured unless an operator can scrape it
+        Integer adminPort = Integer.getInteger(ADMIN_PORT_PROPERTY);
+        Metrics metrics = adminPort == null ? null : new Metrics();
+
+        var userDao = measured(new FileDao<>(PATH_TO_USER_DB, User.class), "users", metrics);
+        var groupDao = measured(new FileDao<>(PATH_TO_GROUP_DB, Group.class), "groups", metrics);
+        var paymentDao = measured(new FileDao<>(PATH_TO_PAYMENT_DB, Payment.class), "payments", metrics);
 
         Supplier<String> idSupplier = () -> UUID.randomUUID().toString();
         Supplier<String> authTokenSupplier = () -> UUID.randomUUID().toString();
 
-        var service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier);
+        boolean isBlocking = BLOCKING_ENGINE.equals(System.getProperty(ENGINE_PROPERTY));
+
+        // the blocking engine cannot push, so every notification is stored for it
+        Sessions sessions = isBlocking ? null : new Sessions();
+        NotificationChannel channel = isBlocking ? NotificationChannel.NONE : sessions;
+
+        var service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, channel);
 
         var validator = new DefaultCommandValidator();
 
-        var executor = new ServerCommandExecutor(validator, service);
+        ResultCommandExecutor executor = new ServerCommandExecutor(validator, service);
+
+        long responseCacheChars = Long.getLong(RESPONSE_CACHE_CHARS_PROPERTY, DEFAULT_RESPONSE_CACHE_CHARS);
+        if (responseCacheChars > 0) {
+            // a result is weighed by the length of its response, so both caches hold about as much
+            VersionedCache<CachingCommandExecutor.Key, CommandResult> results =
+                new VersionedCache<>(responseCacheChars, result -> JsonResponses.of(result, true).length());
+            VersionedCache<CachingCommandExecutor.Key, String> responses = VersionedCache.ofText(responseCacheChars);
+            executor = new CachingCommandExecutor(executor, service, responses, results);
+        }
+
+        if (metrics != null) {
+            executor = new MeasuringCommandExecutor(executor, metrics);
+        }
+
+        Integer tokenRateLimit = Integer.getInteger(TOKEN_RATE_LIMIT_PROPERTY);
+        if (tokenRateLimit != null) {
+            var tokenLimiter = new RateLimiter<String>(RateLimit.perSecond(tokenRateLimit));
+            executor = new RateLimitingCommandExecutor(executor, tokenLimiter);
+        }
 
         var handler = new DefaultServerInputHandler(executor);
 
-        var server = new Server(HOST, PORT, handler);
+        var options = readOptions();
+        ServerEngine server = isBlocking
+            ? new BlockingServer(HOST, PORT, handler, options)
+            : new Server(HOST, PORT, handler, options, sessions);
+
+        var stopped = new CountDownLatch(1);
+        var drainTimeout = Duration.ofSeconds(
+            Integer.getInteger(DRAIN_TIMEOUT_SECONDS_PROPERTY, DEFAULT_DRAIN_TIMEOUT_SECONDS)
+        );
+
+        String handoverFile = System.getProperty(HANDOVER_FILE_PROPERTY);
+        if (handoverFile != null) {
+            var handover = new Handover(Path.of(handoverFile));
+            handover.announceReady();
+            handover.onSuccessor(() -> server.drain(drainTimeout));
+        }
+
+        AdminEndpoint admin = metrics == null ? null : startAdmin(adminPort, metrics, server);
+
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(() -> drain(server, drainTimeout, stopped), "splitwise-shutdown")
+        );
+
+        try {
+            server.run();
+            service.flush();
+        } finally {
+            if (admin != null) {
+                admin.stop();
+            }
+
+            stopped.countDown();
+        }
+    }
+
+    private static <T extends Identifiable> Dao<T> measured(Dao<T> dao, String name, Metrics metrics) {
+        return metrics == null ? dao : new MeasuringDao<>(dao, name, metrics);
+    }
+
+    private static AdminEndpoint startAdmin(int port, Metrics metrics, ServerEngine server) {
+        JvmMetrics.register(metrics);
+        metrics.gauge("splitwise_open_connections", "Open client connections", server::openConnections);
+
+        if (server instanceof Server nonBlocking) {
+            metrics.gauge(
+                "splitwise_rejected_connections_total", "Clients refused over the connection limit",
+                nonBlocking::rejectedConnections
+            );
+            metrics.gauge(
+                "splitwise_reaped_connections_total", "Connections closed for being idle",
+                nonBlocking::reapedConnections
+            );
+            metrics.gauge(
+                "splitwise_held_bytes", "Bytes of partial requests and queued responses", nonBlocking::heldBytes
+            );
+        }
+
+        var admin = new AdminEndpoint(HOST, port, metrics);
+        admin.start();
+
+        return admin;
+    }
+
+    /**
+     * Runs in the shutdown hook. The JVM exits once the hook returns, so it waits for the main thread to finish
+     * serving and flush the storage.
+     */
+    private static void drain(ServerEngine server, Duration drainTimeout, CountDownLatch stopped) {
+        server.drain(drainTimeout);
+
+        try {
+            stopped.await(drainTimeout.plus(FLUSH_GRACE_PERIOD).toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ServerOptions readOptions() {
+        var options = ServerOptions.defaults();
+
+        options = withProperty(options, WORKER_COUNT_PROPERTY, ServerOptions::withWorkerCount);
+        options = withProperty(options, REACTOR_COUNT_PROPERTY, ServerOptions::withReactorCount);
+        options = withProperty(
+            options, IDLE_TIMEOUT_SECONDS_PROPERTY, (o, seconds) -> o.withIdleTimeout(Duration.ofSeconds(seconds))
+        );
+        options = withProperty(options, MAX_CONNECTIONS_PROPERTY, ServerOptions::withMaxConnections);
+        options = withProperty(
+            options, HOST_RATE_LIMIT_PROPERTY, (o, limit) -> o.withHostRateLimit(RateLimit.perSecond(limit))
+        );
+        options = withProperty(options, COMPRESSION_THRESHOLD_PROPERTY, ServerOptions::withCompressionThreshold);
+        options = withLongProperty(
+            options, CONNECTION_MEMORY_BUDGET_PROPERTY, ServerOptions::withConnectionMemoryBudget
+        );
+        options = withLongProperty(options, GLOBAL_MEMORY_BUDGET_PROPERTY, ServerOptions::withGlobalMemoryBudget);
+
+        // a successor binds the port while this process still listens on it
+        options = options.withInheritedChannel(Boolean.getBoolean(INHERIT_CHANNEL_PROPERTY))
+                         .withReusePort(System.getProperty(HANDOVER_FILE_PROPERTY) != null);
+
+        String unixSocket = System.getProperty(UNIX_SOCKET_PROPERTY);
+        if (unixSocket != null) {
+            options = options.withUnixSocket(Path.of(unixSocket));
+        }
+
+        return options;
+    }
+
+    private static ServerOptions withProperty(ServerOptions options, String property,
+                                              BiFunction<ServerOptions, Integer, ServerOptions> setter) {
+        Integer value = Integer.getInteger(property);
+
+        return value == null ? options : setter.apply(options, value);
+    }
 
-        server.run();
+    private static ServerOptions withLongProperty(ServerOptions options, String property,
+                                                  BiFunction<ServerOptions, Long, ServerOptions> setter) {
+        Long value = Long.getLong(property);
 
+        return value == null ? options : setter.apply(options, value);
     }
 
 }
@@ -0,0 +1,17 @@
+package bg.fmi.mjt.splitwise.server;
+
+/**
+ * A client connection notifications can be pushed to.
+ */
+interface Session {
+
+    /**
+     * Thread-safe and never blocks.
+     *
+     * @return false if the session is already closed
+     */
+    boolean push(String message);
+
+    boolean isClosed();
+
+}
@@ -0,0 +1,86 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.service.NotificationChannel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Knows which session every logged in user is connected through. Requests are executed inside
+ * {@link #runAs}, so a login binds the user to the session that sent it. A user is bound to at most one
+ * session and a session to at most one user.
+ */
+public class Sessions implements NotificationChannel {
+
+    private final ThreadLocal<Session> current = new ThreadLocal<>();
+    private final Map<String, Session> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<Session, String> usersBySession = new ConcurrentHashMap<>();
+
+    @Override
+    public void bind(String userId) {
+        Session session = current.get();
+
+        if (session == null) {
+            unbind(userId);
+            return;
+        }
+
+        String previousUser = usersBySession.put(session, userId);
+        if (previousUser != null && !previousUser.equals(userId)) {
+            sessionsByUser.remove(previousUser, session);
+        }
+
+        Session previousSession = sessionsByUser.put(userId, session);
+        if (previousSession != null && previousSession != session) {
+            usersBySession.remove(previousSession, userId);
+        }
+
+        // the session may have closed while the login was executed
+        if (session.isClosed()) {
+            closed(session);
+        }
+    }
+
+    @Override
+    public void unbind(String userId) {
+        Session session = sessionsByUser.remove(userId);
+
+        if (session != null) {
+            usersBySession.remove(session, userId);
+        }
+    }
+
+    @Override
+    public boolean push(String userId, String message) {
+        Session session = sessionsByUser.get(userId);
+
+        return session != null && session.push(message);
+    }
+
+    int size() {
+        return sessionsByUser.size();
+    }
+
+    /**
+     * Runs the task with the session as the one {@link #bind} binds to.
+     */
+    <T> T runAs(Session session, Supplier<T> task) {
+        current.set(session);
+
+        try {
+            return task.get();
+        } finally {
+            current.remove();
+        }
+    }
+
+    void closed(Session session) {
+        String userId = usersBySession.remove(session);
+
+        if (userId != null) {
+            sessionsByUser.remove(userId, session);
+        }
+    }
+
+}
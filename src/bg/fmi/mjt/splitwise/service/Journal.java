@@ -0,0 +1,64 @@
+package bg.fmi.mjt.splitwise.service;
+
+import bg.fmi.mjt.splitwise.storage.dao.Dao;
+import bg.fmi.mjt.splitwise.storage.dao.Identifiable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo log of an atomic run of operations. Every write records how to revert it, and effects that cannot be
+ * reverted, like pushing a notification, wait for the commit.
+ */
+final class Journal {
+
+    private final Deque<Runnable> undoActions = new ArrayDeque<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    <T extends Identifiable> void inserted(Dao<T> dao, T object) {
+        undoActions.push(() -> dao.delete(object.id()));
+    }
+
+    <T extends Identifiable> void updated(Dao<T> dao, T previous) {
+        undoActions.push(() -> dao.update(previous));
+    }
+
+    void onRollback(Runnable action) {
+        undoActions.push(action);
+    }
+
+    void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    void commit() {
+        afterCommit.forEach(Runnable::run);
+    }
+
+    /**
+     * Reverts the writes in reverse order and forgets the effects waiting for the commit. A failing undo action
+     * does not stop the ones after it, the first failure is rethrown at the end with the others suppressed.
+     */
+    void rollback() {
+        RuntimeException failure = null;
+
+        while (!undoActions.isEmpty()) {
+            try {
+                undoActions.pop().run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package bg.fmi.mjt.splitwise.service;
+
+/**
+ * Delivers notifications to users that are connected right now. Notifications it does not deliver are stored
+ * by the {@link Service} until the user logs in again.
+ */
+public interface NotificationChannel {
+
+    /**
+     * A channel without connected users, every notification is stored.
+     */
+    NotificationChannel NONE = new NotificationChannel() {
+        @Override
+        public void bind(String userId) {
+        }
+
+        @Override
+        public void unbind(String userId) {
+        }
+
+        @Override
+        public boolean push(String userId, String message) {
+            return false;
+        }
+    };
+
+    /**
+     * Binds the user to the session that sent the request being executed by the calling thread. If that session
+     * does not accept pushed notifications, the user is left unbound.
+     */
+    void bind(String userId);
+
+    void unbind(String userId);
+
+    /**
+     * Called while the service is locked, so it must not block.
+     *
+     * @return whether a session of the user accepted the message
+     */
+    boolean push(String userId, String message);
+
+}
@@ -9,6 +9,7 @@ import bg.fmi.mjt.splitwise.service.exceptions.UnsuccessfulLoginException;
 import bg.fmi.mjt.splitwise.service.exceptions.UsernameAlreadyExistsException;
 import bg.fmi.mjt.splitwise.service.exceptions.UsernameNotFoundException;
 import bg.fmi.mjt.splitwise.storage.dao.Dao;
+import bg.fmi.mjt.splitwise.storage.dao.Identifiable;
 import bg.fmi.mjt.splitwise.storage.models.Group;
 import bg.fmi.mjt.splitwise.storage.models.Payment;
 import bg.fmi.mjt.splitwise.storage.models.User;
@@ -21,9 +22,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Commands are executed by a pool of workers, so every public operation is synchronized on the service.
+ */
 public class Service {
 
     private static final String FRIEND_ADD_TEMPLATE_MSG = "%s added you as friend!";
@@ -39,20 +44,34 @@ public class Service {
 
     private final Map<String, String> tokenToUserId = new HashMap<>();
     private final Map<String, String> userIdToToken = new HashMap<>();
+    private final Map<String, Long> userVersions = new HashMap<>();
 
     private final Supplier<String> idSupplier;
     private final Supplier<String> authTokenSupplier;
+    private final NotificationChannel notificationChannel;
+
+    private Journal journal;
 
     public Service(Dao<User> userDao, Dao<Group> groupDao, Dao<Payment> paymentDao,
                    Supplier<String> idSupplier, Supplier<String> authTokenSupplier) {
+        this(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, NotificationChannel.NONE);
+    }
+
+    /**
+     * @param notificationChannel pushes notifications to logged in users, only the rest are stored
+     */
+    public Service(Dao<User> userDao, Dao<Group> groupDao, Dao<Payment> paymentDao,
+                   Supplier<String> idSupplier, Supplier<String> authTokenSupplier,
+                   NotificationChannel notificationChannel) {
         this.userDao = userDao;
         this.groupDao = groupDao;
         this.paymentDao = paymentDao;
         this.idSupplier = idSupplier;
         this.authTokenSupplier = authTokenSupplier;
+        this.notificationChannel = notificationChannel;
     }
 
-    public void register(String username, String password) throws ServiceException {
+    public synchronized void register(String username, String password) throws ServiceException {
         checkNull(username, "username");
         checkNull(password, "password");
 
@@ -60,7 +79,7 @@ public class Service {
             throw new UsernameAlreadyExistsException("Username is already taken");
         }
 
-        userDao.insert(User.of(username, password));
+        insert(userDao, User.of(username, password));
     }
 
     private void checkNull(Object o, String arg) {
@@ -73,7 +92,7 @@ public class Service {
         }
     }
 
-    public String login(String username, String password) throws ServiceException {
+    public synchronized String login(String username, String password) throws ServiceException {
         checkNull(username, "username");
         checkNull(password, "password");
 
@@ -97,17 +116,21 @@ public class Service {
         }
 
         userIdToToken.put(userId, authToken);
+        notificationChannel.bind(userId);
 
         return authToken;
     }
 
-    public void logout(String token) {
+    public synchronized void logout(String token) {
         var id = tokenToUserId.get(token);
         tokenToUserId.remove(token);
-        userIdToToken.remove(id);
+
+        if (id != null && userIdToToken.remove(id) != null) {
+            notificationChannel.unbind(id);
+        }
     }
 
-    public void addFriend(String token, String friendUsername) throws ServiceException {
+    public synchronized void addFriend(String token, String friendUsername) throws ServiceException {
         checkNull(friendUsername, "friendUsername");
 
         var id = idTokenAuthFilter(token);
@@ -139,14 +162,31 @@ public class Service {
     }
 
     private void addToFriends(String userId, String friendId) {
-        userDao.update(userDao.find(userId).withAddedFriendId(friendId));
+        update(userDao, userDao.find(userId).withAddedFriendId(friendId));
     }
 
+    /**
+     * Notifications of an atomic run are delivered once it commits, a rolled back one never happened.
+     */
     private void notify(String id, String message) {
+        if (journal != null) {
+            journal.afterCommit(() -> deliver(id, message));
+        } else {
+            deliver(id, message);
+        }
+    }
+
+    private void deliver(String id, String message) {
+        if (userIdToToken.containsKey(id) && notificationChannel.push(id, message)) {
+            return;
+        }
+
         userDao.update(userDao.find(id).withNewUnreadNotification(message));
+        touch(userDao, id);
     }
 
-    public void createGroup(String token, String groupName, Set<String> friendUsernames) throws ServiceException {
+    public synchronized void createGroup(String token, String groupName, Set<String> friendUsernames)
+        throws ServiceException {
         checkNull(groupName, "groupName");
         checkNull(friendUsernames, "friendUsernames");
 
@@ -182,10 +222,10 @@ public class Service {
         var userIds = usersToAdd.stream()
                                 .map(User::id)
                                 .collect(Collectors.toSet());
-        groupDao.insert(Group.of(groupName, userIds));
+        insert(groupDao, Group.of(groupName, userIds));
 
         // update user group names
-        usersToAdd.forEach(u -> userDao.update(u.withAddedGroupName(groupName)));
+        usersToAdd.forEach(u -> update(userDao, u.withAddedGroupName(groupName)));
 
         // notify each user
         usersToAdd.stream()
@@ -194,7 +234,7 @@ public class Service {
 
     }
 
-    public void split(String token, String friendUsername, double amountInLevs, String reason)
+    public synchronized void split(String token, String friendUsername, double amountInLevs, String reason)
         throws ServiceException {
         checkNull(friendUsername, "friendUsername");
         checkNull(reason, "reason");
@@ -213,7 +253,7 @@ public class Service {
         splitBetweenAndNotifyUsers(user.id(), Set.of(friend.id()), amountInLevs, reason);
     }
 
-    public void splitGroup(String token, String groupName, double amountInLevs, String reason)
+    public synchronized void splitGroup(String token, String groupName, double amountInLevs, String reason)
         throws ServiceException {
         checkNull(groupName, "groupName");
         checkNull(reason, "reason");
@@ -246,7 +286,8 @@ public class Service {
         });
     }
 
-    public void payed(String token, String friendUsernameThatPayed, double amountInLevs) throws ServiceException {
+    public synchronized void payed(String token, String friendUsernameThatPayed, double amountInLevs)
+        throws ServiceException {
         checkNull(friendUsernameThatPayed, "friendUsernameThatPayed");
         validatePaymentAmount(amountInLevs);
 
@@ -263,9 +304,9 @@ public class Service {
         }
 
         String paymentId = idSupplier.get();
-        paymentDao.insert(Payment.of(paymentId, friend.id(), user.id(), amountInLevs, LocalDateTime.now()));
+        insert(paymentDao, Payment.of(paymentId, friend.id(), user.id(), amountInLevs, LocalDateTime.now()));
 
-        userDao.update(friend.withNewPaymentId(paymentId));
+        update(userDao, friend.withNewPaymentId(paymentId));
         updateOwedAmountBetween(user.id(), friend.id(), amountInLevs);
 
         notify(
@@ -289,10 +330,10 @@ public class Service {
         var owed = new HashMap<>(user.friendsIdsToLevsOwed());
         owed.merge(fromId, amountInLevs, (old, cur) -> old + cur == 0 ? null : old + cur);
 
-        userDao.update(user.withFriendsIdsToLevsOwed(owed));
+        update(userDao, user.withFriendsIdsToLevsOwed(owed));
     }
 
-    public Map<String, Double> getStatus(String token) throws ServiceException {
+    public synchronized Map<String, Double> getStatus(String token) throws ServiceException {
         var id = idTokenAuthFilter(token);
 
         return Collections.unmodifiableMap(
@@ -300,7 +341,7 @@ public class Service {
         );
     }
 
-    public List<Payment> getPaymentHistory(String token) throws ServiceException {
+    public synchronized List<Payment> getPaymentHistory(String token) throws ServiceException {
         var id = idTokenAuthFilter(token);
 
         return userDao.find(id).paymentIds().stream()
@@ -308,7 +349,7 @@ public class Service {
                       .toList();
     }
 
-    public List<String> getAndDeleteNotifications(String token) throws ServiceException {
+    public synchronized List<String> getAndDeleteNotifications(String token) throws ServiceException {
         var id = idTokenAuthFilter(token);
         var user =  userDao.find(id);
 
@@ -316,11 +357,28 @@ public class Service {
             user.unreadNotifications()
         );
 
-        userDao.update(user.withEmptyUnreadNotifications());
+        // a write would also make the cached reads of the user outdated
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+
+        update(userDao, user.withEmptyUnreadNotifications());
 
         return notifications;
     }
 
+    /**
+     * The version of a user's data changes with every write to the user, including the undoing of one, so data
+     * read at the same version is still current.
+     *
+     * @return the version of the user logged in with the token, -1 if the token is not valid
+     */
+    public synchronized long versionOf(String token) {
+        var id = tokenToUserId.get(token);
+
+        return id == null ? -1 : userVersions.getOrDefault(id, 0L);
+    }
+
     private String idTokenAuthFilter(String token) throws ServiceException {
         var id = tokenToUserId.get(token);
 
@@ -331,4 +389,75 @@ public class Service {
         return id;
     }
 
+    /**
+     * Runs the operations while holding the service's lock, so no other operation interleaves with them.
+     * Unless they return true, or if they throw, every change they made is undone.
+     *
+     * @return whether the changes were kept
+     */
+    public synchronized boolean runAtomically(BooleanSupplier operations) {
+        if (journal != null) {
+            throw new IllegalStateException("Atomic runs cannot be nested");
+        }
+
+        Journal current = new Journal();
+        journal = current;
+        boolean isCommitted = false;
+
+        try {
+            isCommitted = operations.getAsBoolean();
+        } finally {
+            journal = null;
+
+            if (isCommitted) {
+                current.commit();
+            } else {
+                current.rollback();
+            }
+        }
+
+        return isCommitted;
+    }
+
+    private <T extends Identifiable> void insert(Dao<T> dao, T object) {
+        dao.insert(object);
+        touch(dao, object.id());
+
+        if (journal != null) {
+            journal.inserted(dao, object);
+        }
+    }
+
+    private <T extends Identifiable> void update(Dao<T> dao, T object) {
+        T previous = journal == null ? null : dao.find(object.id());
+
+        dao.update(object);
+        touch(dao, object.id());
+
+        if (journal != null) {
+            journal.updated(dao, previous);
+        }
+    }
+
+    private void touch(Dao<?> dao, String id) {
+        if (dao != userDao) {
+            return;
+        }
+
+        userVersions.merge(id, 1L, Long::sum);
+
+        if (journal != null) {
+            journal.onRollback(() -> userVersions.merge(id, 1L, Long::sum));
+        }
+    }
+
+    /**
+     * Makes every change so far durable, called once no more commands are executed.
+     */
+    public synchronized void flush() {
+        userDao.flush();
+        groupDao.flush();
+        paymentDao.flush();
+    }
+
 }
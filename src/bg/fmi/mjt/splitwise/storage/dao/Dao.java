@@ -17,4 +17,10 @@ public interface Dao<T extends Identifiable> {
     void update(T object);
 
     void delete(String id);
+
+    /**
+     * Makes every change so far durable. Does nothing by default, for storages that are durable on every write.
+     */
+    default void flush() {
+    }
 }
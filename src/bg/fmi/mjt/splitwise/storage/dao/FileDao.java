@@ -1,17 +1,25 @@
 package bg.fmi.mjt.splitwise.storage.dao;
 
+import bg.fmi.mjt.splitwise.gson.Gsons;
 import bg.fmi.mjt.splitwise.storage.dao.exceptions.DaoException;
 import com.google.gson.Gson;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Keeps one JSON file per entry. Writes reach the operating system right away, but they are only forced to the
+ * disk by {@link #flush()}.
+ */
 public class FileDao<T extends Identifiable> implements Dao<T> {
 
     private final Gson gson;
@@ -19,12 +27,15 @@ public class FileDao<T extends Identifiable> implements Dao<T> {
     private final Class<T> clazz;
 
     private final Map<String, T> entries = new HashMap<>();
+    private final Set<Path> unsyncedFiles = new HashSet<>();
+
+    private boolean isDirectoryUnsynced = false;
 
     public FileDao(Path pathToDB, Class<T> clazz) {
         this.pathToDB = pathToDB;
         this.clazz = clazz;
 
-        gson = new Gson();
+        gson = Gsons.shared();
 
         init();
     }
@@ -80,6 +91,9 @@ public class FileDao<T extends Identifiable> implements Dao<T> {
         try {
             Path pathToFile = pathToDB.resolve(object.id());
             Files.writeString(pathToFile, gson.toJson(object), StandardOpenOption.CREATE_NEW);
+
+            unsyncedFiles.add(pathToFile);
+            isDirectoryUnsynced = true;
         } catch (IOException e) {
             throw new DaoException("Could not insert object due to file exception", e);
         }
@@ -99,6 +113,8 @@ public class FileDao<T extends Identifiable> implements Dao<T> {
                 StandardOpenOption.TRUNCATE_EXISTING,
                 StandardOpenOption.WRITE
             );
+
+            unsyncedFiles.add(pathToFile);
         } catch (IOException e) {
             throw new DaoException("Could not update object", e);
         }
@@ -113,10 +129,48 @@ public class FileDao<T extends Identifiable> implements Dao<T> {
         try {
             Path pathToFile = pathToDB.resolve(id);
             Files.delete(pathToFile);
+
+            unsyncedFiles.remove(pathToFile);
+            isDirectoryUnsynced = true;
         } catch (IOException e) {
             throw new DaoException("Could not delete object", e);
         }
 
         entries.remove(id);
     }
+
+    /**
+     * Forces every file written since the last flush to the disk, and the directory too if entries were
+     * inserted or deleted.
+     */
+    @Override
+    public void flush() {
+        try {
+            for (Path file : unsyncedFiles) {
+                force(file, StandardOpenOption.WRITE);
+            }
+            unsyncedFiles.clear();
+
+            if (isDirectoryUnsynced) {
+                forceDirectory();
+                isDirectoryUnsynced = false;
+            }
+        } catch (IOException e) {
+            throw new DaoException("Could not flush objects to the disk", e);
+        }
+    }
+
+    private void forceDirectory() {
+        try {
+            force(pathToDB, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // not every platform can open a directory as a channel, its files are synced anyway
+        }
+    }
+
+    private static void force(Path path, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+        }
+    }
 }
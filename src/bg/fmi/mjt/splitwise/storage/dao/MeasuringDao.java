@@ -0,0 +1,91 @@
+package bg.fmi.mjt.splitwise.storage.dao;
+
+import bg.fmi.mjt.splitwise.metrics.Histogram;
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how many entries a storage holds and how long its writes and flushes take. Reads are served from
+ * memory, so they are not timed. The entries are counted by the thread that writes them, so a scrape from
+ * another thread never reads the storage itself.
+ */
+public class MeasuringDao<T extends Identifiable> implements Dao<T> {
+
+    private static final String DURATION_METRIC = "splitwise_dao_operation_duration_seconds";
+    private static final String DURATION_HELP = "Time spent writing entries to the storage";
+
+    private final Dao<T> dao;
+    private final Histogram insertDurations;
+    private final Histogram updateDurations;
+    private final Histogram deleteDurations;
+    private final Histogram flushDurations;
+    private final AtomicInteger entries;
+
+    /**
+     * @param name labels the metrics of this storage
+     */
+    public MeasuringDao(Dao<T> dao, String name, Metrics metrics) {
+        this.dao = dao;
+        this.insertDurations = durations(metrics, name, "insert");
+        this.updateDurations = durations(metrics, name, "update");
+        this.deleteDurations = durations(metrics, name, "delete");
+        this.flushDurations = durations(metrics, name, "flush");
+
+        this.entries = new AtomicInteger(dao.findAll().size());
+
+        metrics.gauge("splitwise_dao_entries", "Entries held by the storage", entries::get, "dao", name);
+    }
+
+    private static Histogram durations(Metrics metrics, String name, String operation) {
+        return metrics.histogram(DURATION_METRIC, DURATION_HELP, "dao", name, "operation", operation);
+    }
+
+    @Override
+    public T find(String id) {
+        return dao.find(id);
+    }
+
+    @Override
+    public Map<String, T> findAll() {
+        return dao.findAll();
+    }
+
+    @Override
+    public void insert(T object) {
+        measure(insertDurations, () -> dao.insert(object));
+        countEntries();
+    }
+
+    @Override
+    public void update(T object) {
+        measure(updateDurations, () -> dao.update(object));
+    }
+
+    @Override
+    public void delete(String id) {
+        measure(deleteDurations, () -> dao.delete(id));
+        countEntries();
+    }
+
+    @Override
+    public void flush() {
+        measure(flushDurations, dao::flush);
+    }
+
+    private void countEntries() {
+        entries.set(dao.findAll().size());
+    }
+
+    private static void measure(Histogram histogram, Runnable operation) {
+        long start = System.nanoTime();
+
+        try {
+            operation.run();
+        } finally {
+            histogram.observeNanos(System.nanoTime() - start);
+        }
+    }
+
+}
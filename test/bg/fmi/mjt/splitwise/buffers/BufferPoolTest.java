@@ -0,0 +1,64 @@
+package bg.fmi.mjt.splitwise.buffers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BufferPoolTest {
+
+    BufferPool pool = new BufferPool();
+
+    @Test
+    void testAcquireReturnsSmallestFittingSizeClass() {
+        assertEquals(BufferPool.SMALL_BUFFER_SIZE, pool.acquire(100).capacity(), "Did not use the small class");
+        assertEquals(BufferPool.MEDIUM_BUFFER_SIZE, pool.acquire(5000).capacity(), "Did not use the medium class");
+        assertEquals(BufferPool.LARGE_BUFFER_SIZE, pool.acquire(20000).capacity(), "Did not use the large class");
+    }
+
+    @Test
+    void testAcquireReturnsDirectBuffersForPooledSizes() {
+        assertTrue(pool.acquire(100).isDirect(), "Pooled buffers should be direct");
+    }
+
+    @Test
+    void testAcquireReturnsUnpooledHeapBufferForOversizedRequests() {
+        var buffer = pool.acquire(BufferPool.LARGE_BUFFER_SIZE + 1);
+
+        assertFalse(buffer.isDirect(), "Oversized buffers should not be pooled");
+        assertEquals(0, pool.outstanding(), "Oversized buffers should not be tracked");
+    }
+
+    @Test
+    void testReleasedBufferIsReused() {
+        var buffer = pool.acquire(100);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        var reused = pool.acquire(200);
+
+        assertSame(buffer, reused, "Did not reuse the released buffer");
+        assertEquals(0, reused.position(), "Reused buffer was not cleared");
+        assertEquals(1, pool.allocated(), "Allocated a new buffer instead of reusing one");
+    }
+
+    @Test
+    void testOutstandingTracksUnreleasedBuffers() {
+        var first = pool.acquire(100);
+        pool.acquire(100);
+
+        assertEquals(2, pool.outstanding(), "Did not count the acquired buffers");
+
+        pool.release(first);
+
+        assertEquals(1, pool.outstanding(), "Did not count the released buffer");
+    }
+
+    @Test
+    void testReleaseThrowsOnNull() {
+        assertThrows(NullPointerException.class, () -> pool.release(null), "Did not throw on null");
+    }
+}
@@ -0,0 +1,67 @@
+package bg.fmi.mjt.splitwise.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VersionedCacheTest {
+
+    VersionedCache<String, String> cache = VersionedCache.ofText(10);
+
+    @Test
+    void testGetReturnsTextOfTheSameVersion() {
+        cache.put("ivan", 1, "status");
+
+        assertEquals("status", cache.get("ivan", 1), "Did not return the cached text");
+        assertNull(cache.get("ivan", 2), "Returned text of an older version");
+        assertNull(cache.get("petar", 1), "Returned text of another key");
+        assertEquals(1, cache.hits(), "Did not count the hit");
+        assertEquals(2, cache.misses(), "Did not count the misses");
+    }
+
+    @Test
+    void testPutReplacesOlderVersions() {
+        cache.put("ivan", 1, "old");
+        cache.put("ivan", 2, "new");
+
+        assertEquals("new", cache.get("ivan", 2), "Did not replace the older version");
+        assertEquals(3, cache.usedWeight(), "Did not account for the replaced text");
+    }
+
+    @Test
+    void testPutKeepsNewerVersions() {
+        cache.put("ivan", 2, "new");
+        cache.put("ivan", 1, "old");
+
+        assertEquals("new", cache.get("ivan", 2), "Replaced a newer version");
+    }
+
+    @Test
+    void testLeastRecentlyUsedTextIsEvicted() {
+        cache.put("ivan", 1, "aaaa");
+        cache.put("petar", 1, "bbbb");
+        cache.get("ivan", 1);
+        cache.put("georgi", 1, "cccc");
+
+        assertNull(cache.get("petar", 1), "Did not evict the least recently used text");
+        assertEquals("aaaa", cache.get("ivan", 1), "Evicted recently used text");
+        assertEquals(8, cache.usedWeight(), "Holds more than it may");
+    }
+
+    @Test
+    void testTextBiggerThanTheCacheIsNotKept() {
+        cache.put("ivan", 1, "a");
+        cache.put("ivan", 2, "01234567890");
+
+        assertEquals(0, cache.size(), "Kept text bigger than the cache or an outdated one");
+        assertEquals(0, cache.usedWeight(), "Did not account for the dropped text");
+    }
+
+    @Test
+    void testMaxWeightMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> VersionedCache.ofText(0), "Accepted an empty cache");
+    }
+
+}
@@ -2,20 +2,32 @@ package bg.fmi.mjt.splitwise.client;
 
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.Handshake;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
@@ -25,6 +37,8 @@ class ClientServerTest {
 
     static final String HOST = "localhost";
     static final int PORT = 51508;
+    static final int BINARY_PORT = 51507;
+    static final int PUSH_PORT = 51506;
 
     static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
 
@@ -54,12 +68,20 @@ class ClientServerTest {
                 var message = "the message to echo";
                 clientServer.send(message);
 
-                var in = clientConnection.getInputStream();
-                var out = clientConnection.getOutputStream();
+                var in = new DataInputStream(clientConnection.getInputStream());
+                var out = new DataOutputStream(clientConnection.getOutputStream());
 
-                byte[] bytes = new byte[64];
-                int bytesRead = in.read(bytes);
-                out.write(bytes, 0, bytesRead);
+                byte[] bytes = new byte[in.readInt()];
+                int correlationId = in.readInt();
+                in.readByte();
+                in.readFully(bytes);
+
+                // echo the frame back in two separate writes to simulate a split read
+                out.writeInt(bytes.length);
+                out.writeInt(correlationId);
+                out.writeByte(0);
+                out.flush();
+                out.write(bytes);
                 out.flush();
 
                 var receivedMessage = clientServer.recv();
@@ -73,4 +95,138 @@ class ClientServerTest {
         );
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void connectNegotiatesTheBinaryProtocol() throws IOException {
+        var socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(HOST, BINARY_PORT));
+
+        var clientServer = new ClientServer(HOST, BINARY_PORT, true);
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                var connecting = new Thread(() -> {
+                    try {
+                        clientServer.connect();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                connecting.start();
+
+                var clientConnection = socket.accept();
+                var in = new DataInputStream(clientConnection.getInputStream());
+                var out = new DataOutputStream(clientConnection.getOutputStream());
+
+                assertEquals(1, in.readInt(), "The handshake has an unexpected length");
+                assertEquals(0, in.readInt(), "The handshake has a correlation id");
+                assertEquals(1, in.readByte(), "The handshake is not flagged as one");
+                assertEquals(1, in.readByte(), "The client did not ask for the binary protocol");
+
+                out.writeInt(1);
+                out.writeInt(0);
+                out.writeByte(1);
+                out.writeByte(1);
+                out.flush();
+
+                connecting.join();
+                assertTrue(clientServer.isBinary(), "The client did not switch to the binary protocol");
+
+                clientServer.close();
+                clientConnection.close();
+                socket.close();
+            },
+            "Client did not finish the handshake in the specified time period"
+        );
+    }
+
+    @Test
+    void pushedNotificationsAreCollected() throws IOException {
+        var socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(HOST, PUSH_PORT));
+
+        var clientServer = new ClientServer(HOST, PUSH_PORT, (byte) 4);
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                var connecting = new Thread(() -> {
+                    try {
+                        clientServer.connect();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                connecting.start();
+
+                var clientConnection = socket.accept();
+                var in = new DataInputStream(clientConnection.getInputStream());
+                var out = new DataOutputStream(clientConnection.getOutputStream());
+
+                in.readFully(new byte[9]);
+                assertEquals(4, in.readByte(), "The client did not ask for pushes");
+                writeFrame(out, 0, (byte) 1, new byte[] {4});
+                connecting.join();
+
+                writeFrame(out, 0, (byte) 0, "before".getBytes());
+                int correlationId = clientServer.send("request");
+                writeFrame(out, correlationId, (byte) 0, "response".getBytes());
+                writeFrame(out, 0, (byte) 0, "after".getBytes());
+
+                assertEquals("response", clientServer.recv(correlationId), "Took a notification for the response");
+
+                List<String> notifications = new ArrayList<>(clientServer.pollNotifications());
+                while (notifications.size() < 2) {
+                    notifications.addAll(clientServer.pollNotifications());
+                }
+                assertEquals(List.of("before", "after"), notifications);
+
+                clientServer.close();
+                clientConnection.close();
+                socket.close();
+            },
+            "Client did not collect the notifications in the specified time period"
+        );
+    }
+
+    @Test
+    void connectsOverTheUnixSocket(@TempDir Path directory) throws IOException {
+        Path socketPath = directory.resolve("splitwise.sock");
+        var listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        listener.bind(UnixDomainSocketAddress.of(socketPath));
+
+        var clientServer = new ClientServer(socketPath, Handshake.NO_FEATURES);
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                clientServer.connect();
+
+                var clientConnection = listener.accept();
+                var in = new DataInputStream(Channels.newInputStream(clientConnection));
+                var out = new DataOutputStream(Channels.newOutputStream(clientConnection));
+
+                clientServer.send("over unix");
+
+                byte[] bytes = new byte[in.readInt()];
+                int correlationId = in.readInt();
+                in.readByte();
+                in.readFully(bytes);
+                writeFrame(out, correlationId, (byte) 0, bytes);
+
+                assertEquals("over unix", clientServer.recv(), "Did not receive over the Unix domain socket");
+
+                clientServer.close();
+                clientConnection.close();
+                listener.close();
+            },
+            "Client did not talk over the Unix domain socket in the specified time period"
+        );
+    }
+
+    static void writeFrame(DataOutputStream out, int correlationId, byte flags, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeInt(correlationId);
+        out.writeByte(flags);
+        out.write(payload);
+        out.flush();
+    }
+}
@@ -0,0 +1,62 @@
+package bg.fmi.mjt.splitwise.commands.arguments;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AmountTest {
+
+    @Test
+    void testParseWholeLevs() {
+        assertEquals(new Amount(1200), Amount.parse("12"), "Whole levs should be converted to stotinki");
+    }
+
+    @Test
+    void testParseOneFractionDigitIsTenthsOfALev() {
+        assertEquals(new Amount(1250), Amount.parse("12.5"), "A single fraction digit should be tenths");
+    }
+
+    @Test
+    void testParseTwoFractionDigits() {
+        assertEquals(new Amount(1205), Amount.parse("12.05"), "Two fraction digits should be stotinki");
+    }
+
+    @Test
+    void testParseIsExactWhereDoublesAreNot() {
+        assertEquals(new Amount(30), Amount.parse("0.30"), "The amount should be exact");
+        assertEquals(0.3, Amount.parse("0.30").levs(), "The levs should be the closest double");
+    }
+
+    @Test
+    void testParseAcceptsThirteenWholeDigits() {
+        assertEquals(new Amount(999_999_999_999_900L), Amount.parse("9999999999999"),
+            "Thirteen whole digits should be accepted");
+    }
+
+    @Test
+    void testParseReturnsNullOnTooManyWholeDigits() {
+        assertNull(Amount.parse("10000000000000"), "Fourteen whole digits should not be an amount");
+    }
+
+    @Test
+    void testParseReturnsNullOnInvalidText() {
+        for (var text : new String[]{"", ".5", "5.", "5.123", "-5", "+5", "5,50", "1e3", "abc", "5.5a", " 5"}) {
+            assertNull(Amount.parse(text), "This should not be an amount: " + text);
+        }
+    }
+
+    @Test
+    void testNegativeAmountThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new Amount(-1),
+            "A negative amount should not be created");
+    }
+
+    @Test
+    void testToStringAlwaysHasTwoFractionDigits() {
+        assertEquals("12.05", new Amount(1205).toString(), "The amount should be written with its stotinki");
+        assertEquals("0.00", new Amount(0).toString(), "Zero should be written with its stotinki");
+    }
+
+}
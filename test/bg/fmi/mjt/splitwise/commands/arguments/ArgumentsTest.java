@@ -0,0 +1,68 @@
+package bg.fmi.mjt.splitwise.commands.arguments;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ArgumentsTest {
+
+    @Test
+    void testParseSplit() {
+        var cmd = new Command("split", new String[]{"10.5", "ivan", "lunch"});
+
+        assertEquals(new Arguments.Split(new Amount(1050), "ivan", "lunch"), Arguments.parse(cmd),
+            "The arguments should be parsed by their position");
+    }
+
+    @Test
+    void testParseCreateGroupCollectsUsernames() {
+        var cmd = new Command("create-group", new String[]{"group", "ivan", "georgi", "ivan"});
+
+        assertEquals(new Arguments.CreateGroup("group", Set.of("ivan", "georgi")), Arguments.parse(cmd),
+            "The usernames after the group name should be collected");
+    }
+
+    @Test
+    void testParseCommandWithoutArguments() {
+        assertEquals(new Arguments.GetStatus(), Arguments.parse(new Command("get-status", new String[]{})),
+            "A command without arguments should be parsed");
+    }
+
+    @Test
+    void testParseReturnsNullOnUnknownCommand() {
+        assertNull(Arguments.parse(new Command("unknown", new String[]{})), "An unknown command should be invalid");
+    }
+
+    @Test
+    void testParseReturnsNullOnWrongArgumentCount() {
+        assertNull(Arguments.parse(new Command("login", new String[]{"username"})),
+            "A missing argument should make the command invalid");
+        assertNull(Arguments.parse(new Command("create-group", new String[]{"group", "ivan"})),
+            "A group needs at least two other users");
+    }
+
+    @Test
+    void testParseReturnsNullOnInvalidAmount() {
+        assertNull(Arguments.parse(new Command("payed", new String[]{"-5", "ivan"})),
+            "An invalid amount should make the command invalid");
+    }
+
+    @Test
+    void testParseReturnsNullOnBlankArgument() {
+        assertNull(Arguments.parse(new Command("add-friend", new String[]{" "})),
+            "A blank argument should make the command invalid");
+    }
+
+    @Test
+    void testCommandParsesItsArgumentsOnce() {
+        var cmd = new Command("add-friend", new String[]{"ivan"});
+
+        assertSame(cmd.arguments(), cmd.arguments(), "The arguments should be parsed only once");
+    }
+
+}
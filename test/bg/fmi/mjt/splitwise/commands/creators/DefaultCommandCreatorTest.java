@@ -3,8 +3,11 @@ package bg.fmi.mjt.splitwise.commands.creators;
 import bg.fmi.mjt.splitwise.commands.Command;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 class DefaultCommandCreatorTest {
 
@@ -39,4 +42,49 @@ class DefaultCommandCreatorTest {
     void testThrowsOnNull() {
         assertThrows(NullPointerException.class, () -> creator.create(null), "Did not throw on null");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCreateWithQuotesInsideArguments() {
+        var command = creator.create("  split  10 ivan lunch\" at \"\"the\"  place  ");
+
+        var expectedCommand = new Command("split", new String[] {"10", "ivan", "lunch at the", "place"});
+
+        assertEquals(expectedCommand, command, "Did not join the quoted parts of the arguments");
+    }
+
+    @Test
+    void testCreateKeepsEmptyQuotedArguments() {
+        var expectedCommand = new Command("split", new String[] {"", "ivan"});
+
+        assertEquals(expectedCommand, creator.create("split \"  \" ivan"), "Dropped the empty argument");
+        assertEquals(new Command("", new String[0]), creator.create("   "), "Did not create an empty command");
+    }
+
+    @Test
+    void testCreateWithEscapedQuotes() {
+        var command = creator.create("split 10 ivan \"the \\\"best\\\" pizza\" C:\\\\temp \\n");
+
+        var expectedCommand =
+            new Command("split", new String[] {"10", "ivan", "the \"best\" pizza", "C:\\temp", "\\n"});
+
+        assertEquals(expectedCommand, command, "Did not unescape the quotes and backslashes");
+    }
+
+    @Test
+    void testCreateWithUnterminatedQuote() {
+        var expectedCommand = new Command("split", new String[] {"10", "ivan for the  pizza"});
+
+        assertEquals(expectedCommand, creator.create("split 10 \"ivan for the  pizza"),
+            "Did not run the quote to the end of the input");
+    }
+
+    @Test
+    void testCreateWithManyQuotedArgumentsIsLinear() {
+        String members = "\"member name\" ".repeat(100_000);
+
+        Command command = assertTimeoutPreemptively(Duration.ofSeconds(5),
+            () -> creator.create("create-group \"group\" " + members));
+
+        assertEquals(100_001, command.args().length, "Did not split every argument");
+    }
+}
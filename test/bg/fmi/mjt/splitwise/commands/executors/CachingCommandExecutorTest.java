@@ -0,0 +1,159 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.cache.VersionedCache;
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.OwesResponse;
+import bg.fmi.mjt.splitwise.service.Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCommandExecutorTest {
+
+    static final String TOKEN = "token";
+    static final Command GET_STATUS = new Command(TOKEN, CommandType.GET_STATUS.cmdName(), new String[0]);
+    static final CommandResult STATUS = CommandResult.ofSuccess(new OwesResponse(Map.of("ivan", 1.0)));
+
+    @Mock
+    ResultCommandExecutor executor;
+
+    @Mock
+    Service service;
+
+    CachingCommandExecutor cachingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        cachingExecutor = new CachingCommandExecutor(executor, service, VersionedCache.ofText(1024),
+            new VersionedCache<>(16, result -> 1));
+    }
+
+    @Test
+    void testReadIsServedFromTheCacheWhileTheVersionHolds() {
+        when(service.versionOf(TOKEN)).thenReturn(1L);
+        when(executor.execute(GET_STATUS)).thenReturn("status");
+
+        cachingExecutor.execute(GET_STATUS);
+
+        assertEquals("status", cachingExecutor.execute(GET_STATUS), "Did not return the cached response");
+        verify(executor, times(1)).execute(GET_STATUS);
+    }
+
+    @Test
+    void testReadRunsAgainOnceTheVersionChanges() {
+        when(service.versionOf(TOKEN)).thenReturn(1L, 2L);
+        when(executor.execute(GET_STATUS)).thenReturn("old", "new");
+
+        cachingExecutor.execute(GET_STATUS);
+
+        assertEquals("new", cachingExecutor.execute(GET_STATUS), "Returned an outdated response");
+    }
+
+    @Test
+    void testInvalidTokenIsNotCached() {
+        when(service.versionOf(TOKEN)).thenReturn(-1L);
+        when(executor.execute(GET_STATUS)).thenReturn("unauthorized");
+
+        cachingExecutor.execute(GET_STATUS);
+        cachingExecutor.execute(GET_STATUS);
+
+        verify(executor, times(2)).execute(GET_STATUS);
+    }
+
+    @Test
+    void testWritesAreNotCached() {
+        var payed = new Command(TOKEN, CommandType.PAYED.cmdName(), new String[] {"10", "ivan"});
+        when(executor.execute(payed)).thenReturn("ok");
+
+        cachingExecutor.execute(payed);
+        cachingExecutor.execute(payed);
+
+        verify(executor, times(2)).execute(payed);
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void testStreamedReadIsCachedPerDataFormat() throws IOException {
+        when(service.versionOf(TOKEN)).thenReturn(1L);
+        when(executor.executeForResult(GET_STATUS)).thenReturn(STATUS);
+
+        String embedded = stream(true);
+        String legacy = stream(false);
+
+        assertEquals(embedded, stream(true), "Did not return the cached response");
+        assertEquals(legacy, stream(false), "Did not return the cached response");
+        assertEquals("{\"wasSuccessful\":true,\"data\":{\"userToLevs\":{\"ivan\":1.0}}}", embedded,
+            "Did not embed the data");
+        verify(executor, times(2)).executeForResult(GET_STATUS);
+    }
+
+    @Test
+    void testStreamedReadIsCachedUnderADecorator() throws IOException {
+        when(service.versionOf(TOKEN)).thenReturn(1L);
+        when(executor.executeForResult(GET_STATUS)).thenReturn(STATUS);
+        var measuring = new MeasuringCommandExecutor(cachingExecutor, new Metrics());
+
+        String first = stream(measuring, true);
+
+        assertEquals(first, stream(measuring, true), "Did not return the cached response");
+        verify(executor, times(1)).executeForResult(GET_STATUS);
+    }
+
+    @Test
+    void testResultIsServedFromTheCacheWhileTheVersionHolds() {
+        when(service.versionOf(TOKEN)).thenReturn(1L, 1L, 2L);
+        when(executor.executeForResult(GET_STATUS)).thenReturn(STATUS);
+
+        cachingExecutor.executeForResult(GET_STATUS);
+
+        assertEquals(STATUS, cachingExecutor.executeForResult(GET_STATUS), "Did not return the cached result");
+        verify(executor, times(1)).executeForResult(GET_STATUS);
+
+        cachingExecutor.executeForResult(GET_STATUS);
+        verify(executor, times(2)).executeForResult(GET_STATUS);
+    }
+
+    @Test
+    void testBatchesAreNotCached() {
+        when(executor.executeBatch(List.of(GET_STATUS), false)).thenReturn("[]");
+
+        cachingExecutor.executeBatch(List.of(GET_STATUS), false);
+
+        verify(executor).executeBatch(List.of(GET_STATUS), false);
+        verify(service, never()).versionOf(TOKEN);
+    }
+
+    private String stream(boolean embedsData) throws IOException {
+        return stream(cachingExecutor, embedsData);
+    }
+
+    private static String stream(ResultCommandExecutor executor, boolean embedsData) throws IOException {
+        var out = new StringWriter();
+        var writer = Gsons.shared().newJsonWriter(out);
+
+        executor.execute(GET_STATUS, embedsData, writer);
+        writer.flush();
+
+        return out.toString();
+    }
+
+}
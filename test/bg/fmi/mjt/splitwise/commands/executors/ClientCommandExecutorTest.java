@@ -5,6 +5,7 @@ import bg.fmi.mjt.splitwise.commands.Command;
 import bg.fmi.mjt.splitwise.commands.CommandType;
 import bg.fmi.mjt.splitwise.commands.validators.CommandValidator;
 import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import bg.fmi.mjt.splitwise.responses.OwesResponse;
 import com.google.gson.Gson;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,15 +14,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ClientCommandExecutorTest {
 
     private static final String SUCCESSFUL_OPERATION_MSG = "***Success***";
+    private static final String USER_OWES_YOU_TEMPLATE = "User %s owes you an amount of %.2f levs";
     private static final String SERIALIZED_SUCCESS_RESPONSE = new Gson().toJson(CommandResponse.ofSuccess());
 
     @Mock
@@ -40,7 +46,7 @@ class ClientCommandExecutorTest {
 
     @Test
     void testExecuteRegisterReturnsSuccess() throws IOException {
-        when(clientServer.recv()).thenReturn(SERIALIZED_SUCCESS_RESPONSE);
+        when(clientServer.recv(anyInt())).thenReturn(SERIALIZED_SUCCESS_RESPONSE);
         when(validator.isValid(any())).thenReturn(true);
 
         Command addFriend = new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"ivan"});
@@ -48,4 +54,37 @@ class ClientCommandExecutorTest {
         var result = executor.execute(addFriend);
         assertEquals(SUCCESSFUL_OPERATION_MSG, result, "Did not return success message on successful operation");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExecuteReadsEmbeddedData() throws IOException {
+        var data = new Gson().toJsonTree(new OwesResponse(Map.of("ivan", 2.5)));
+        when(clientServer.recv(anyInt())).thenReturn(new Gson().toJson(CommandResponse.ofEmbedded(data)));
+        when(validator.isValid(any())).thenReturn(true);
+
+        var result = executor.execute(new Command(CommandType.GET_STATUS.cmdName(), new String[0]));
+
+        assertEquals(String.format(USER_OWES_YOU_TEMPLATE, "ivan", 2.5), result, "Did not read the embedded data");
+    }
+
+    @Test
+    void testExecuteReadsDataSentAsString() throws IOException {
+        var data = new Gson().toJson(new OwesResponse(Map.of("ivan", 2.5)));
+        when(clientServer.recv(anyInt())).thenReturn(new Gson().toJson(CommandResponse.ofSuccess(data)));
+        when(validator.isValid(any())).thenReturn(true);
+
+        var result = executor.execute(new Command(CommandType.GET_STATUS.cmdName(), new String[0]));
+
+        assertEquals(String.format(USER_OWES_YOU_TEMPLATE, "ivan", 2.5), result,
+            "Did not read the data of older servers");
+    }
+
+    @Test
+    void testRequestsAskForEmbeddedData() throws IOException {
+        when(clientServer.recv(anyInt())).thenReturn(SERIALIZED_SUCCESS_RESPONSE);
+        when(validator.isValid(any())).thenReturn(true);
+
+        executor.execute(new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"ivan"}));
+
+        verify(clientServer).send(contains("\"embedsData\":true"));
+    }
+}
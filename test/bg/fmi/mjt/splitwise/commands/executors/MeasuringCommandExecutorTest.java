@@ -0,0 +1,89 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.metrics.Histogram;
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MeasuringCommandExecutorTest {
+
+    @Mock
+    ResultCommandExecutor delegate;
+
+    Metrics metrics;
+    MeasuringCommandExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+        executor = new MeasuringCommandExecutor(delegate, metrics);
+    }
+
+    @Test
+    void testExecuteThrowsOnNull() {
+        assertThrows(NullPointerException.class, () -> executor.execute(null), "Did not throw on null");
+    }
+
+    @Test
+    void testExecuteIsMeasuredByCommandType() {
+        var cmd = new Command("token", CommandType.SPLIT.cmdName(), new String[0]);
+        when(delegate.execute(cmd)).thenReturn("result");
+
+        assertEquals("result", executor.execute(cmd), "Did not return the delegate's result");
+        assertEquals(1, durationsOf("split").count(), "Did not measure the command");
+        assertEquals(0, durationsOf("payed").count(), "Measured another command type");
+    }
+
+    @Test
+    void testUnknownCommandsAreMeasuredTogether() {
+        var cmd = new Command("token", "dance", new String[0]);
+        when(delegate.executeForResult(cmd)).thenReturn(CommandResult.ofSuccess());
+
+        executor.executeForResult(cmd);
+
+        assertEquals(1, durationsOf("unknown").count(), "Did not measure the unknown command");
+    }
+
+    @Test
+    void testStreamingExecuteIsForwardedAndMeasured() throws IOException {
+        var cmd = new Command("token", CommandType.SPLIT.cmdName(), new String[0]);
+        var writer = Gsons.shared().newJsonWriter(new StringWriter());
+
+        executor.execute(cmd, true, writer);
+
+        verify(delegate).execute(cmd, true, writer);
+        assertEquals(1, durationsOf("split").count(), "Did not measure the command");
+    }
+
+    @Test
+    void testBatchIsMeasuredAsAWhole() {
+        var batch = List.of(new Command("token", CommandType.SPLIT.cmdName(), new String[0]));
+        when(delegate.executeBatch(batch, true)).thenReturn("[]");
+
+        executor.executeBatch(batch, true);
+
+        assertEquals(1, durationsOf("batch").count(), "Did not measure the batch");
+        assertEquals(0, durationsOf("split").count(), "Measured the commands of the batch one by one");
+    }
+
+    private Histogram durationsOf(String command) {
+        return metrics.histogram("splitwise_command_duration_seconds", "", "command", command);
+    }
+}
@@ -0,0 +1,169 @@
+package bg.fmi.mjt.splitwise.commands.executors;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimitedResponses;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimiter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitingCommandExecutorTest {
+
+    private static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
+
+    @Mock
+    ResultCommandExecutor delegate;
+
+    @Mock
+    RateLimiter<String> limiter;
+
+    RateLimitingCommandExecutor executor;
+
+    @BeforeAll
+    static void beforeAll() {
+        loggerMock.when(() -> LoggerFactory.getLogger(ArgumentMatchers.any())).thenReturn(mock(Logger.class));
+    }
+
+    @AfterAll
+    static void afterAll() {
+        loggerMock.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        executor = new RateLimitingCommandExecutor(delegate, limiter);
+    }
+
+    @Test
+    void testExecuteThrowsOnNull() {
+        assertThrows(NullPointerException.class, () -> executor.execute(null), "Did not throw on null");
+    }
+
+    @Test
+    void testExecuteDelegatesWhenAllowed() {
+        var cmd = new Command("token", "get-status", new String[0]);
+        when(limiter.tryAcquire("token")).thenReturn(0L);
+        when(delegate.execute(cmd)).thenReturn("result");
+
+        assertEquals("result", executor.execute(cmd), "Did not return the delegate's result");
+    }
+
+    @Test
+    void testExecuteAnswersWithoutRunningWhenLimited() {
+        var cmd = new Command("token", "get-status", new String[0]);
+        when(limiter.tryAcquire("token")).thenReturn(250L);
+
+        assertEquals(RateLimitedResponses.of(250), executor.execute(cmd), "Did not answer with the rejection");
+        verify(delegate, never()).execute(cmd);
+    }
+
+    @Test
+    void testExecuteForResultAnswersWithoutRunningWhenLimited() {
+        var cmd = new Command("token", "get-status", new String[0]);
+        when(limiter.tryAcquire("token")).thenReturn(250L);
+
+        var result = executor.executeForResult(cmd);
+
+        assertFalse(result.wasSuccessful(), "Did not answer with an error");
+        assertEquals(RateLimitedResponses.message(250), result.errorMessage(), "Did not give the retry delay");
+        verify(delegate, never()).executeForResult(cmd);
+    }
+
+    @Test
+    void testStreamingExecuteDelegatesWhenAllowed() throws IOException {
+        var cmd = new Command("token", "get-status", new String[0]);
+        var writer = Gsons.shared().newJsonWriter(new StringWriter());
+        when(limiter.tryAcquire("token")).thenReturn(0L);
+
+        executor.execute(cmd, true, writer);
+
+        verify(delegate).execute(cmd, true, writer);
+    }
+
+    @Test
+    void testStreamingExecuteAnswersWithoutRunningWhenLimited() throws IOException {
+        var cmd = new Command("token", "get-status", new String[0]);
+        var out = new StringWriter();
+        var writer = Gsons.shared().newJsonWriter(out);
+        when(limiter.tryAcquire("token")).thenReturn(250L);
+
+        executor.execute(cmd, true, writer);
+        writer.flush();
+
+        assertEquals(RateLimitedResponses.of(250), out.toString(), "Did not answer with the rejection");
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testExecuteDoesNotLimitCommandsWithoutOwner() {
+        var cmd = new Command("login", new String[] {"user", "pass"});
+        when(delegate.execute(cmd)).thenReturn("result");
+
+        assertEquals("result", executor.execute(cmd), "Did not run a command without owner");
+        verifyNoInteractions(limiter);
+    }
+
+    @Test
+    void testExecuteBatchIsRejectedAsAWhole() {
+        var batch = List.of(new Command("token", "get-status", new String[0]),
+                            new Command("token", "get-status", new String[0]));
+        when(limiter.burst()).thenReturn(10);
+        when(limiter.tryAcquire("token", 2)).thenReturn(250L);
+
+        var results = executor.executeBatchForResults(batch, false);
+
+        assertEquals(2, results.size(), "Did not answer every command");
+        assertEquals(RateLimitedResponses.message(250), results.get(0).errorMessage(), "Did not give the retry delay");
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testExecuteBatchChargesEveryCommandAtOnce() {
+        var batch = List.of(new Command("token", "get-status", new String[0]),
+                            new Command("token", "get-status", new String[0]));
+        when(limiter.burst()).thenReturn(10);
+        when(limiter.tryAcquire("token", 2)).thenReturn(0L);
+        when(delegate.executeBatchForResults(batch, true)).thenReturn(List.of());
+
+        executor.executeBatchForResults(batch, true);
+
+        verify(limiter, never()).tryAcquire("token");
+    }
+
+    @Test
+    void testExecuteBatchOverTheBurstIsRejectedWithoutCharging() {
+        var batch = List.of(new Command("token", "get-status", new String[0]),
+                            new Command("token", "get-status", new String[0]));
+        when(limiter.burst()).thenReturn(1);
+
+        var results = executor.executeBatchForResults(batch, false);
+
+        assertFalse(results.get(0).wasSuccessful(), "Did not reject the batch");
+        verify(limiter, never()).tryAcquire("token", 2);
+        verifyNoInteractions(delegate);
+    }
+}
@@ -5,8 +5,11 @@ import bg.fmi.mjt.splitwise.commands.CommandType;
 import bg.fmi.mjt.splitwise.commands.validators.CommandValidator;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
 import bg.fmi.mjt.splitwise.service.Service;
 import bg.fmi.mjt.splitwise.service.exceptions.ServiceException;
+import com.google.gson.Gson;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -17,13 +20,24 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
@@ -158,5 +172,63 @@ class ServerCommandExecutorTest {
         verifyNoMoreInteractions(service);
     }
 
+    @Test
+    void testExecuteBatchRunsEveryCommand() throws ServiceException {
+        when(validator.isValid(any())).thenReturn(true);
+        doThrow(new ServiceException("No such user")).when(service).addFriend(any(), eq("missing"));
+
+        var results = executor.executeBatchForResults(List.of(
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"missing"}),
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"ivan"})
+        ), false);
+
+        assertFalse(results.get(0).wasSuccessful(), "Did not report the failing command");
+        assertTrue(results.get(1).wasSuccessful(), "Did not run the command after the failing one");
+        verify(service, times(2)).addFriend(any(), any());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void testExecuteBatchAtomicallyStopsAtFirstFailure() throws ServiceException {
+        when(validator.isValid(any())).thenReturn(true);
+        when(service.runAtomically(any())).thenAnswer(inv -> inv.<BooleanSupplier>getArgument(0).getAsBoolean());
+        doNothing().when(service).addFriend(any(), eq("ivan"));
+        doThrow(new ServiceException("No such user")).when(service).addFriend(any(), eq("missing"));
+
+        var results = executor.executeBatchForResults(List.of(
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"ivan"}),
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"missing"}),
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"petar"})
+        ), true);
+
+        assertEquals(List.of("Rolled back because command 2 of the batch failed", "No such user",
+                             "Not executed because command 2 of the batch failed"),
+                     results.stream().map(CommandResult::errorMessage).toList(), "Did not explain every result");
+        verify(service, never()).addFriend(any(), eq("petar"));
+    }
+
+    @Test
+    void testExecuteBatchRejectsLogin() {
+        when(validator.isValid(any())).thenReturn(true);
+
+        var results = executor.executeBatchForResults(List.of(
+            new Command(CommandType.LOGIN.cmdName(), new String[]{"username", "password"})
+        ), false);
+
+        assertFalse(results.get(0).wasSuccessful(), "Ran a login in a batch");
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void testExecuteBatchSerializesAnArray() {
+        when(validator.isValid(any())).thenReturn(true);
+
+        String json = executor.executeBatch(List.of(
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"ivan"}),
+            new Command(CommandType.ADD_FRIEND.cmdName(), new String[]{"petar"})
+        ), false);
+
+        var responses = new Gson().fromJson(json, CommandResponse[].class);
+        assertEquals(2, responses.length, "Did not answer every command");
+        assertTrue(responses[1].wasSuccessful(), "Did not serialize the result");
+    }
+}
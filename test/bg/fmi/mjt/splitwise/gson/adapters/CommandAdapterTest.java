@@ -0,0 +1,55 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CommandAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final Command COMMAND = new Command("ivan", "add-friend", new String[] {"petar"});
+
+    @Test
+    void testCommandRoundTrips() {
+        assertEquals(COMMAND, GSON.fromJson(GSON.toJson(COMMAND), Command.class), "The command changed");
+    }
+
+    @Test
+    void testCommandIsReadFromReflectiveJson() {
+        var json = new Gson().toJson(COMMAND);
+
+        assertEquals(COMMAND, GSON.fromJson(json, Command.class), "Did not read the reflective format");
+    }
+
+    @Test
+    void testCommandIsWrittenLikeReflectiveJson() {
+        assertEquals(new Gson().toJson(COMMAND), GSON.toJson(COMMAND), "The format changed");
+    }
+
+    @Test
+    void testMissingOwnerIsNotWritten() {
+        var command = new Command("help", new String[0]);
+
+        assertEquals("{\"name\":\"help\",\"args\":[]}", GSON.toJson(command), "Wrote the missing owner");
+    }
+
+    @Test
+    void testUnknownFieldsAreSkipped() {
+        var command = GSON.fromJson("{\"name\":\"help\",\"extra\":{\"a\":[1]}}", Command.class);
+
+        assertEquals("help", command.name(), "Did not read the name");
+        assertNull(command.args(), "Read args that were not there");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        assertEquals(Fields.declaredBy(Command.class), Fields.writtenIn(GSON.toJson(COMMAND)),
+            "The adapter is out of sync with the fields of Command");
+    }
+
+}
@@ -0,0 +1,88 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandRequestAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final Command COMMAND = new Command("add-friend", new String[] {"petar"});
+    private static final Command OTHER_COMMAND = new Command("create-group", new String[] {"g", "petar"});
+
+    @Test
+    void testSingleRequestRoundTrips() {
+        var request = GSON.fromJson(GSON.toJson(new CommandRequest(COMMAND, "token")), CommandRequest.class);
+
+        assertFalse(request.isBatch(), "Read a single command as a batch");
+        assertEquals(COMMAND, request.getCommand(), "The command changed");
+        assertEquals("token", request.getAuthToken(), "The auth token changed");
+    }
+
+    @Test
+    void testBatchRequestRoundTrips() {
+        var batch = CommandRequest.ofBatch(List.of(COMMAND, OTHER_COMMAND), true, "token");
+        var request = GSON.fromJson(GSON.toJson(batch), CommandRequest.class);
+
+        assertTrue(request.isBatch(), "Did not read the batch");
+        assertTrue(request.isAtomic(), "Did not read the atomicity");
+        assertEquals(List.of(COMMAND, OTHER_COMMAND), request.getBatch(), "The batch changed");
+        assertEquals("token", request.getAuthToken(), "The auth token changed");
+    }
+
+    @Test
+    void testRequestIsReadFromReflectiveJson() {
+        var json = new Gson().toJson(CommandRequest.ofBatch(List.of(COMMAND), false, null));
+        var request = GSON.fromJson(json, CommandRequest.class);
+
+        assertEquals(List.of(COMMAND), request.getBatch(), "Did not read the reflective format");
+        assertNull(request.getAuthToken(), "Read an auth token that was not there");
+    }
+
+    @Test
+    void testRequestIsWrittenLikeReflectiveJson() {
+        var request = new CommandRequest(COMMAND, "token");
+
+        assertEquals(new Gson().toJson(request), GSON.toJson(request), "The format changed");
+    }
+
+    @Test
+    void testNullCommandsOfBatchAreKept() {
+        var batch = new ArrayList<Command>();
+        batch.add(null);
+
+        var request = GSON.fromJson(GSON.toJson(CommandRequest.ofBatch(batch, false, "t")), CommandRequest.class);
+
+        assertEquals(batch, request.getBatch(), "Did not keep the null command");
+    }
+
+    @Test
+    void testEmbeddedDataIsRead() {
+        var request = new CommandRequest(COMMAND, "token").withEmbeddedData(true);
+
+        assertTrue(GSON.fromJson(GSON.toJson(request), CommandRequest.class).embedsData(), "Lost the flag");
+        assertFalse(GSON.fromJson("{\"command\":{}}", CommandRequest.class).embedsData(),
+            "Requests of older clients embedded data");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        var adapter = new CommandRequestAdapter(new CommandAdapter());
+        var written = Fields.writtenBy(adapter, CommandRequest.class, new CommandRequest(COMMAND, "token"));
+
+        assertEquals(Fields.declaredBy(CommandRequest.class), written,
+            "The adapter is out of sync with the fields of CommandRequest");
+    }
+
+}
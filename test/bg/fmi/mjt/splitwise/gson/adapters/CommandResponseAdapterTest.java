@@ -0,0 +1,78 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.responses.CommandResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandResponseAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    @Test
+    void testSuccessRoundTrips() {
+        var response = GSON.fromJson(GSON.toJson(CommandResponse.ofSuccess("data")), CommandResponse.class);
+
+        assertTrue(response.wasSuccessful(), "The success was lost");
+        assertEquals("data", response.getData(), "The data changed");
+        assertNull(response.getErrorMessage(), "Read an error message that was not there");
+    }
+
+    @Test
+    void testErrorRoundTrips() {
+        var response = GSON.fromJson(GSON.toJson(CommandResponse.ofError("failed")), CommandResponse.class);
+
+        assertFalse(response.wasSuccessful(), "The error was lost");
+        assertEquals("failed", response.getErrorMessage(), "The error message changed");
+    }
+
+    @Test
+    void testResponseIsWrittenLikeReflectiveJson() {
+        var response = CommandResponse.ofError("failed");
+
+        assertEquals(new Gson().toJson(response), GSON.toJson(response), "The format changed");
+    }
+
+    @Test
+    void testResponseIsReadFromReflectiveJson() {
+        var response = GSON.fromJson(new Gson().toJson(CommandResponse.ofSuccess("x")), CommandResponse.class);
+
+        assertEquals("x", response.getData(), "Did not read the reflective format");
+    }
+
+    @Test
+    void testEmbeddedDataRoundTrips() {
+        var data = JsonParser.parseString("{\"userToLevs\":{\"ivan\":1.0}}");
+        var json = GSON.toJson(CommandResponse.ofEmbedded(data));
+        var response = GSON.fromJson(json, CommandResponse.class);
+
+        assertEquals("{\"wasSuccessful\":true,\"data\":{\"userToLevs\":{\"ivan\":1.0}}}", json,
+            "Did not nest the data");
+        assertTrue(response.isDataEmbedded(), "Read the nested data as a string");
+        assertEquals(data, response.getDataElement(), "The data changed");
+    }
+
+    @Test
+    void testDataSentAsStringIsNotEmbedded() {
+        var response = GSON.fromJson(GSON.toJson(CommandResponse.ofSuccess("{}")), CommandResponse.class);
+
+        assertFalse(response.isDataEmbedded(), "Read a string as nested data");
+        assertEquals("{}", response.getData(), "The data changed");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        var adapter = new CommandResponseAdapter();
+        var written = Fields.writtenBy(adapter, CommandResponse.class, CommandResponse.ofSuccess());
+
+        assertEquals(Fields.declaredBy(CommandResponse.class), written,
+            "The adapter is out of sync with the fields of CommandResponse");
+    }
+
+}
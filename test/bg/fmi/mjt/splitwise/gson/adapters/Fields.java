@@ -0,0 +1,41 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the hand-written adapters in sync with the fields of the classes they serialize.
+ */
+final class Fields {
+
+    private Fields() {
+    }
+
+    static Set<String> declaredBy(Class<?> clazz) {
+        return Arrays.stream(clazz.getDeclaredFields())
+            .filter(field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()))
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+    }
+
+    static Set<String> writtenIn(String json) {
+        return JsonParser.parseString(json).getAsJsonObject().keySet();
+    }
+
+    /**
+     * The keys the adapter writes for the value, including the ones whose values are null.
+     */
+    static <T> Set<String> writtenBy(TypeAdapter<T> adapter, Class<T> clazz, T value) {
+        var gson = new GsonBuilder().serializeNulls().registerTypeAdapter(clazz, adapter).create();
+
+        return writtenIn(gson.toJson(value));
+    }
+
+}
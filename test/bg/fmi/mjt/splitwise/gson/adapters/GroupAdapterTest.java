@@ -0,0 +1,44 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.storage.models.Group;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GroupAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final Group GROUP = Group.of("trip", Set.of("ivan", "petar"));
+
+    @Test
+    void testGroupRoundTrips() {
+        var group = GSON.fromJson(GSON.toJson(GROUP), Group.class);
+
+        assertEquals(GROUP.groupName(), group.groupName(), "The group name changed");
+        assertEquals(GROUP.participantIds(), group.participantIds(), "The participants changed");
+    }
+
+    @Test
+    void testGroupIsReadFromReflectiveJson() {
+        var group = GSON.fromJson(new Gson().toJson(GROUP), Group.class);
+
+        assertEquals(GROUP.participantIds(), group.participantIds(), "Did not read the reflective format");
+    }
+
+    @Test
+    void testGroupIsWrittenLikeReflectiveJson() {
+        assertEquals(new Gson().toJson(GROUP), GSON.toJson(GROUP), "The format changed");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        assertEquals(Fields.declaredBy(Group.class), Fields.writtenIn(GSON.toJson(GROUP)),
+            "The adapter is out of sync with the fields of Group");
+    }
+
+}
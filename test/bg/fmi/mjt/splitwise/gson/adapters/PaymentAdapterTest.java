@@ -0,0 +1,56 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.storage.models.Payment;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaymentAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+    private static final Gson REFLECTIVE_GSON =
+        new GsonBuilder().registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter()).create();
+
+    private static final Payment PAYMENT =
+        Payment.of("id", "ivan", "petar", 12.5, LocalDateTime.of(2021, Month.AUGUST, 12, 13, 0));
+
+    @Test
+    void testPaymentRoundTrips() {
+        var payment = GSON.fromJson(GSON.toJson(PAYMENT), Payment.class);
+
+        assertEquals(PAYMENT.toString(), payment.toString(), "The payment changed");
+    }
+
+    @Test
+    void testPaymentIsReadFromReflectiveJson() {
+        var payment = GSON.fromJson(REFLECTIVE_GSON.toJson(PAYMENT), Payment.class);
+
+        assertEquals(PAYMENT.toString(), payment.toString(), "Did not read the reflective format");
+    }
+
+    @Test
+    void testPaymentIsWrittenLikeReflectiveJson() {
+        assertEquals(REFLECTIVE_GSON.toJson(PAYMENT), GSON.toJson(PAYMENT), "The format changed");
+    }
+
+    @Test
+    void testMissingDateIsReadAsNull() {
+        var payment = GSON.fromJson("{\"id\":\"id\",\"levs\":1.0}", Payment.class);
+
+        assertNull(payment.datePayed(), "Read a date that was not there");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        assertEquals(Fields.declaredBy(Payment.class), Fields.writtenIn(GSON.toJson(PAYMENT)),
+            "The adapter is out of sync with the fields of Payment");
+    }
+
+}
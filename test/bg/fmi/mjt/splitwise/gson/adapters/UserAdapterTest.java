@@ -0,0 +1,63 @@
+package bg.fmi.mjt.splitwise.gson.adapters;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import bg.fmi.mjt.splitwise.storage.models.User;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserAdapterTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final User USER = new User(
+        "ivan",
+        "hash",
+        Set.of("petar"),
+        Set.of("trip"),
+        Set.of("payment"),
+        List.of("first", "second"),
+        Map.of("petar", -2.5)
+    );
+
+    @Test
+    void testUserRoundTrips() {
+        var user = GSON.fromJson(GSON.toJson(USER), User.class);
+
+        assertEquals(USER.toString(), user.toString(), "The user changed");
+    }
+
+    @Test
+    void testUserIsReadFromReflectiveJson() {
+        var user = GSON.fromJson(new Gson().toJson(USER), User.class);
+
+        assertEquals(USER.toString(), user.toString(), "Did not read the reflective format");
+    }
+
+    @Test
+    void testUserIsWrittenLikeReflectiveJson() {
+        assertEquals(new Gson().toJson(USER), GSON.toJson(USER), "The format changed");
+    }
+
+    @Test
+    void testReadCollectionsAreMutableCopies() {
+        var user = GSON.fromJson(GSON.toJson(User.of("ivan", "hash")), User.class);
+
+        user.friendIds().add("petar");
+        user.friendsIdsToLevsOwed().put("petar", 1.0);
+
+        assertEquals(Set.of("petar"), user.friendIds(), "Did not read a mutable set");
+    }
+
+    @Test
+    void testAllFieldsAreWritten() {
+        assertEquals(Fields.declaredBy(User.class), Fields.writtenIn(GSON.toJson(USER)),
+            "The adapter is out of sync with the fields of User");
+    }
+
+}
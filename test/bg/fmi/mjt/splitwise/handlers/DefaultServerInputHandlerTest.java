@@ -1,17 +1,35 @@
 package bg.fmi.mjt.splitwise.handlers;
 
+import bg.fmi.mjt.splitwise.cache.VersionedCache;
 import bg.fmi.mjt.splitwise.commands.Command;
-import bg.fmi.mjt.splitwise.commands.executors.CommandExecutor;
+import bg.fmi.mjt.splitwise.commands.CommandType;
+import bg.fmi.mjt.splitwise.commands.executors.CachingCommandExecutor;
+import bg.fmi.mjt.splitwise.commands.executors.ResultCommandExecutor;
 import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.OwesResponse;
+import bg.fmi.mjt.splitwise.service.Service;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,7 +45,7 @@ class DefaultServerInputHandlerTest {
     static final String SERIALIZED_COMMAND_REQUEST = new Gson().toJson(COMMAND_REQUEST);
 
     @Mock
-    CommandExecutor executor;
+    ResultCommandExecutor executor;
 
     @InjectMocks
     DefaultServerInputHandler handler;
@@ -41,8 +59,90 @@ class DefaultServerInputHandlerTest {
         assertEquals("output", output, "Did not return correct result");
     }
 
+    @Test
+    void testHandleRequest() {
+        var result = CommandResult.ofSuccess("data");
+        when(executor.executeForResult(Command.ofNewOwner(COMMAND, AUTH_TOKEN))).thenReturn(result);
+
+        assertEquals(result, handler.handleRequest(COMMAND_REQUEST), "Did not return correct result");
+    }
+
     @Test
     void testNullThrows() {
         assertThrows(NullPointerException.class, () -> handler.handle(null), "Did not throw on null argument");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHandleBatch() {
+        var request = CommandRequest.ofBatch(List.of(COMMAND, COMMAND), true, AUTH_TOKEN);
+        var ownedCommand = Command.ofNewOwner(COMMAND, AUTH_TOKEN);
+        when(executor.executeBatch(List.of(ownedCommand, ownedCommand), true)).thenReturn("[]");
+
+        assertEquals("[]", handler.handle(new Gson().toJson(request)), "Did not run the batch");
+    }
+
+    @Test
+    void testHandleEmbedsData() throws IOException {
+        var request = COMMAND_REQUEST.withEmbeddedData(true);
+        var cmd = Command.ofNewOwner(COMMAND, AUTH_TOKEN);
+        var result = CommandResult.ofSuccess(new OwesResponse(Map.of("ivan", 1.0)));
+        when(executor.executeForResult(cmd)).thenReturn(result);
+        doCallRealMethod().when(executor).execute(eq(cmd), eq(true), any(JsonWriter.class));
+
+        assertEquals("{\"wasSuccessful\":true,\"data\":{\"userToLevs\":{\"ivan\":1.0}}}",
+            handler.handle(new Gson().toJson(request)), "Did not embed the data");
+    }
+
+    @Test
+    void testHandleServesRepeatedReadsFromTheCache() {
+        var getStatus = new Command(CommandType.GET_STATUS.cmdName(), new String[0]);
+        var cmd = Command.ofNewOwner(getStatus, AUTH_TOKEN);
+        var service = mock(Service.class);
+        when(service.versionOf(AUTH_TOKEN)).thenReturn(1L);
+        when(executor.executeForResult(cmd)).thenReturn(CommandResult.ofSuccess(new OwesResponse(Map.of())));
+        var cachingHandler = new DefaultServerInputHandler(new CachingCommandExecutor(executor, service,
+            VersionedCache.ofText(1024), new VersionedCache<>(16, result -> 1)));
+
+        String input = new Gson().toJson(new CommandRequest(getStatus, AUTH_TOKEN).withEmbeddedData(true));
+        String first = cachingHandler.handle(input);
+
+        assertEquals(first, cachingHandler.handle(input), "Did not return the cached response");
+        verify(executor, times(1)).executeForResult(cmd);
+    }
+
+    @Test
+    void testHandleBatchEmbedsData() {
+        var request = CommandRequest.ofBatch(List.of(COMMAND), false, AUTH_TOKEN).withEmbeddedData(true);
+        when(executor.executeBatchForResults(List.of(Command.ofNewOwner(COMMAND, AUTH_TOKEN)), false))
+            .thenReturn(List.of(CommandResult.ofError("failed")));
+
+        assertEquals("[{\"wasSuccessful\":false,\"errorMessage\":\"failed\"}]",
+            handler.handle(new Gson().toJson(request)), "Did not serialize the results of the batch");
+    }
+
+    @Test
+    void testHandleStreamsTheResponse() throws IOException {
+        var cmd = Command.ofNewOwner(COMMAND, AUTH_TOKEN);
+        when(executor.executeForResult(cmd)).thenReturn(CommandResult.ofError("failed"));
+        doCallRealMethod().when(executor).execute(eq(cmd), eq(false), any(JsonWriter.class));
+
+        var out = new StringWriter();
+        handler.handle(SERIALIZED_COMMAND_REQUEST, out);
+
+        assertEquals("{\"wasSuccessful\":false,\"errorMessage\":\"failed\"}", out.toString(),
+            "Did not write the response");
+    }
+
+    @Test
+    void testHandleStreamsTheBatch() throws IOException {
+        var request = CommandRequest.ofBatch(List.of(COMMAND), true, AUTH_TOKEN).withEmbeddedData(true);
+        var batch = List.of(Command.ofNewOwner(COMMAND, AUTH_TOKEN));
+        when(executor.executeBatchForResults(batch, true)).thenReturn(List.of(CommandResult.ofSuccess()));
+        doCallRealMethod().when(executor).executeBatch(eq(batch), eq(true), eq(true), any(JsonWriter.class));
+
+        var out = new StringWriter();
+        handler.handle(new Gson().toJson(request), out);
+
+        assertEquals("[{\"wasSuccessful\":true}]", out.toString(), "Did not write the responses of the batch");
+    }
+}
@@ -0,0 +1,84 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.MockedStatic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+class AdminEndpointTest {
+
+    private static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
+
+    Metrics metrics;
+    AdminEndpoint endpoint;
+
+    @BeforeAll
+    static void beforeAll() {
+        loggerMock.when(() -> LoggerFactory.getLogger(ArgumentMatchers.any())).thenReturn(mock(Logger.class));
+    }
+
+    @AfterAll
+    static void afterAll() {
+        loggerMock.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+        endpoint = new AdminEndpoint("localhost", 0, metrics);
+        endpoint.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    void metricsAreServedInTheTextFormat() throws IOException {
+        metrics.counter("requests_total", "Requests").add(5);
+        JvmMetrics.register(metrics);
+
+        HttpURLConnection connection = open();
+
+        assertEquals(200, connection.getResponseCode(), "Did not answer the scrape");
+        assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"), "Not the text format");
+
+        String body;
+        try (InputStream in = connection.getInputStream()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        assertTrue(body.contains("requests_total 5\n"), "Did not serve the registered metrics");
+        assertTrue(body.contains("jvm_threads_live "), "Did not serve the JVM metrics");
+    }
+
+    @Test
+    void onlyGetIsAllowed() throws IOException {
+        HttpURLConnection connection = open();
+        connection.setRequestMethod("POST");
+
+        assertEquals(405, connection.getResponseCode(), "Answered a POST");
+    }
+
+    private HttpURLConnection open() throws IOException {
+        var url = new URL("http://localhost:" + endpoint.port() + AdminEndpoint.METRICS_PATH);
+        return (HttpURLConnection) url.openConnection();
+    }
+}
@@ -0,0 +1,95 @@
+package bg.fmi.mjt.splitwise.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void countersAreScrapedWithTheirLabels() {
+        var metrics = new Metrics();
+        metrics.counter("requests_total", "Requests", "host", "a").add(3);
+
+        assertEquals(
+            "# HELP requests_total Requests\n# TYPE requests_total counter\nrequests_total{host=\"a\"} 3\n",
+            metrics.scrape(),
+            "Did not scrape the counter"
+        );
+    }
+
+    @Test
+    void theSameSeriesIsReturnedTwice() {
+        var metrics = new Metrics();
+
+        assertSame(
+            metrics.counter("requests_total", "Requests", "host", "a"),
+            metrics.counter("requests_total", "Requests", "host", "a"),
+            "Created a second counter for the same labels"
+        );
+    }
+
+    @Test
+    void gaugesAreReadOnEveryScrape() {
+        var metrics = new Metrics();
+        int[] value = {1};
+        metrics.gauge("open", "Open", () -> value[0]);
+
+        value[0] = 7;
+
+        assertTrue(metrics.scrape().contains("open 7\n"), "Did not read the current value");
+    }
+
+    @Test
+    void histogramBucketsAreCumulative() {
+        var metrics = new Metrics();
+        var histogram = metrics.histogram("duration_seconds", "Duration", "command", "split");
+
+        histogram.observeNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.observeNanos(TimeUnit.SECONDS.toNanos(10));
+
+        String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("duration_seconds_bucket{command=\"split\",le=\"0.0005\"} 1\n"), scrape);
+        assertTrue(scrape.contains("duration_seconds_bucket{command=\"split\",le=\"0.005\"} 2\n"), scrape);
+        assertTrue(scrape.contains("duration_seconds_bucket{command=\"split\",le=\"+Inf\"} 3\n"), scrape);
+        assertTrue(scrape.contains("duration_seconds_count{command=\"split\"} 3\n"), scrape);
+        assertEquals(3, histogram.count(), "Did not count every observation");
+    }
+
+    @Test
+    void labelValuesAreEscaped() {
+        var metrics = new Metrics();
+        metrics.counter("errors_total", "Errors", "message", "a \"quoted\" \\ value");
+
+        assertTrue(
+            metrics.scrape().contains("errors_total{message=\"a \\\"quoted\\\" \\\\ value\"} 0\n"),
+            "Did not escape the label value"
+        );
+    }
+
+    @Test
+    void aNameCannotBeReusedForAnotherType() {
+        var metrics = new Metrics();
+        metrics.counter("requests", "Requests");
+
+        assertThrows(
+            IllegalArgumentException.class, () -> metrics.gauge("requests", "Requests", () -> 1),
+            "Registered a gauge under the name of a counter"
+        );
+    }
+
+    @Test
+    void labelsMustComeInPairs() {
+        assertThrows(
+            IllegalArgumentException.class, () -> new Metrics().counter("requests", "Requests", "host"),
+            "Accepted a label without value"
+        );
+    }
+}
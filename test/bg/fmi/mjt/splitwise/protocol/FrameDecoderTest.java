@@ -0,0 +1,109 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameDecoderTest {
+
+    FrameDecoder decoder = new FrameDecoder();
+
+    @Test
+    void testNextReturnsNullOnPartialHeader() {
+        decoder.feed(ByteBuffer.wrap(new byte[] {0, 0}));
+
+        assertNull(decoder.next(), "Returned a frame before the header was complete");
+    }
+
+    @Test
+    void testNextReassemblesSplitFrame() {
+        ByteBuffer frame = Frames.encode(1, "split message");
+
+        decoder.feed(frame.slice(0, 6));
+        assertNull(decoder.next(), "Returned a frame before the payload was complete");
+
+        decoder.feed(frame.slice(6, frame.remaining() - 6));
+        assertEquals("split message", decode(decoder.next()), "Did not reassemble the split frame");
+    }
+
+    @Test
+    void testNextReturnsEveryCoalescedFrame() {
+        ByteBuffer first = Frames.encode(1, "first");
+        ByteBuffer second = Frames.encode(1, "second");
+
+        ByteBuffer both = ByteBuffer.allocate(first.remaining() + second.remaining());
+        both.put(first).put(second).flip();
+
+        decoder.feed(both);
+
+        assertEquals("first", decode(decoder.next()), "Did not return the first frame");
+        assertEquals("second", decode(decoder.next()), "Did not return the second frame");
+        assertNull(decoder.next(), "Returned a frame that was never sent");
+        assertEquals(0, decoder.buffered(), "Kept bytes of already returned frames");
+    }
+
+    @Test
+    void testNextGrowsForLargeFrames() {
+        byte[] large = new byte[100_000];
+        Arrays.fill(large, (byte) 'a');
+
+        decoder.feed(Frames.encode(1, large));
+
+        assertEquals(large.length, decoder.next().payload().remaining(), "Did not return the whole large frame");
+    }
+
+    @Test
+    void testPendingFrameSizeIsAnnouncedByTheHeader() {
+        ByteBuffer frame = Frames.encode(1, "announced");
+
+        decoder.feed(frame.slice(0, 2));
+        assertEquals(2, decoder.pendingFrameSize(), "Guessed a size before the length was complete");
+
+        decoder.feed(frame.slice(2, Frames.HEADER_SIZE));
+        assertEquals(frame.remaining(), decoder.pendingFrameSize(), "Did not take the size from the header");
+    }
+
+    @Test
+    void testNextThrowsOnTooLargeLength() {
+        var limited = new FrameDecoder(10);
+        limited.feed(ByteBuffer.allocate(Frames.HEADER_SIZE).putInt(11).flip());
+
+        assertThrows(ProtocolException.class, limited::next, "Did not reject a frame over the size limit");
+    }
+
+    @Test
+    void testFeedThrowsOnNull() {
+        assertThrows(NullPointerException.class, () -> decoder.feed(null), "Did not throw on null");
+    }
+
+    @Test
+    void testAccumulatorIsReturnedToThePoolOnceDrained() {
+        var pool = new BufferPool();
+        var pooledDecoder = new FrameDecoder(pool, Frames.MAX_PAYLOAD_SIZE);
+
+        pooledDecoder.feed(Frames.encode(1, "message"));
+        assertEquals(1, pool.outstanding(), "Did not take the accumulator from the pool");
+
+        assertEquals("message", decode(pooledDecoder.next()), "Did not return the frame");
+        assertNull(pooledDecoder.next(), "Returned a frame that was never sent");
+        assertEquals(0, pool.outstanding(), "Did not return the drained accumulator to the pool");
+    }
+
+    @Test
+    void testNextKeepsTheCorrelationId() {
+        decoder.feed(Frames.encode(42, "message"));
+
+        assertEquals(42, decoder.next().correlationId(), "Did not keep the correlation id of the frame");
+    }
+
+    private static String decode(Frame frame) {
+        return Frames.decode(frame.payload());
+    }
+}
@@ -0,0 +1,102 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.buffers.BufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameWriterTest {
+
+    // two, three and four byte characters
+    static final String TEXT =
+        "\u0418\u0432\u0430\u043D split 12.50 \u043B\u0432 for \u043A\u0430\u0444\u0435 \u20AC \uD83D\uDE00";
+
+    BufferPool pool = new BufferPool();
+
+    @Test
+    void testToFrameEncodesLikeFrames() {
+        var out = new FrameWriter(7, pool);
+        out.write(TEXT);
+
+        assertEquals(Frames.encode(7, TEXT), out.toFrame(), "Did not encode the same frame");
+    }
+
+    @Test
+    void testWritesOfEveryKindAreEncoded() {
+        var out = new FrameWriter(1, pool);
+        out.write('{');
+        out.write(TEXT.toCharArray(), 0, 5);
+        out.write(TEXT, 5, TEXT.length() - 5);
+        out.append(null).append("}");
+
+        assertArrayEquals(("{" + TEXT + "null}").getBytes(StandardCharsets.UTF_8), out.toPayloadBytes(),
+            "Did not encode every write");
+    }
+
+    @Test
+    void testSurrogatePairSplitAcrossWritesIsEncoded() {
+        var out = new FrameWriter(1, pool);
+        out.write('\uD83D');
+        out.write('\uDE00');
+
+        assertArrayEquals("\uD83D\uDE00".getBytes(StandardCharsets.UTF_8), out.toPayloadBytes(),
+            "Broke the surrogate pair");
+    }
+
+    @Test
+    void testUnpairedSurrogatesAreReplaced() {
+        var out = new FrameWriter(1, pool);
+        out.write("a\uDE00b\uD83Dc\uD83D");
+
+        assertArrayEquals("a?b?c?".getBytes(StandardCharsets.UTF_8), out.toPayloadBytes(),
+            "Did not replace the unpaired surrogates");
+    }
+
+    @Test
+    void testFrameGrowsBeyondThePooledBuffers() {
+        String text = TEXT.repeat(BufferPool.maxPooledCapacity() / TEXT.length() + 1);
+        var out = new FrameWriter(3, pool);
+        out.write(text);
+
+        ByteBuffer frame = out.toFrame();
+
+        assertEquals(Frames.encode(3, text), frame, "Did not keep the text written before growing");
+        assertEquals(0, pool.outstanding(), "Did not release the outgrown buffers");
+    }
+
+    @Test
+    void testCloseReleasesTheFrame() {
+        var out = new FrameWriter(1, pool);
+        out.write(TEXT);
+        out.toPayloadBytes();
+        out.close();
+
+        assertEquals(0, pool.outstanding(), "Did not release the frame");
+    }
+
+    @Test
+    void testHandedOverFrameIsNotReleasedOnClose() {
+        var out = new FrameWriter(1, pool);
+        ByteBuffer frame = out.toFrame();
+        out.close();
+
+        assertEquals(1, pool.outstanding(), "Released a frame that was handed over");
+        assertThrows(IllegalStateException.class, () -> out.write('a'), "Wrote into a handed over frame");
+
+        pool.release(frame);
+    }
+
+    @Test
+    void testPayloadSize() {
+        var out = new FrameWriter(1, pool);
+        out.write(TEXT);
+
+        assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length, out.payloadSize(), "Wrong payload size");
+    }
+
+}
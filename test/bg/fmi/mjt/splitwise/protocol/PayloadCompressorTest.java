@@ -0,0 +1,98 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCompressorTest {
+
+    PayloadCompressor compressor = new PayloadCompressor(100);
+    PayloadDecompressor decompressor = new PayloadDecompressor();
+
+    @AfterEach
+    void tearDown() {
+        compressor.close();
+        decompressor.close();
+    }
+
+    @Test
+    void testCompressRoundTrip() {
+        byte[] payload = repeated(10_000);
+
+        byte[] compressed = compressor.compress(payload);
+
+        assertNotNull(compressed, "Did not compress a repetitive payload");
+        assertTrue(compressed.length < payload.length, "The compressed payload is not smaller");
+        assertArrayEquals(payload, decompressor.decompress(ByteBuffer.wrap(compressed)), "Did not restore the payload");
+    }
+
+    @Test
+    void testCompressorIsReusable() {
+        byte[] first = repeated(1_000);
+        byte[] second = repeated(2_000);
+
+        byte[] compressedFirst = compressor.compress(first);
+        byte[] compressedSecond = compressor.compress(second);
+
+        assertArrayEquals(second, decompressor.decompress(ByteBuffer.wrap(compressedSecond)),
+            "Did not restore the later payload");
+        assertArrayEquals(first, decompressor.decompress(ByteBuffer.wrap(compressedFirst)),
+            "Did not restore an earlier payload after a later one");
+    }
+
+    @Test
+    void testCompressSkipsPayloadsUnderTheThreshold() {
+        assertNull(compressor.compress(repeated(99)), "Compressed a payload under the threshold");
+    }
+
+    @Test
+    void testIsWorthCompressingFromTheThreshold() {
+        assertFalse(compressor.isWorthCompressing(99), "A payload under the threshold is worth compressing");
+        assertTrue(compressor.isWorthCompressing(100), "A payload at the threshold is not worth compressing");
+    }
+
+    @Test
+    void testCompressSkipsIncompressiblePayloads() {
+        byte[] random = new byte[1_000];
+        new Random(42).nextBytes(random);
+
+        assertNull(compressor.compress(random), "Sent a compressed payload that is not smaller");
+    }
+
+    @Test
+    void testDecompressThrowsOnCorruptPayload() {
+        byte[] compressed = compressor.compress(repeated(1_000));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        assertThrows(ProtocolException.class, () -> decompressor.decompress(ByteBuffer.wrap(truncated)),
+            "Did not reject a truncated payload");
+    }
+
+    @Test
+    void testDecompressThrowsOverTheMaximumSize() {
+        byte[] compressed = compressor.compress(repeated(100_000));
+
+        try (var limited = new PayloadDecompressor(1_000)) {
+            assertThrows(ProtocolException.class, () -> limited.decompress(ByteBuffer.wrap(compressed)),
+                "Did not stop inflating at the maximum payload size");
+        }
+    }
+
+    private static byte[] repeated(int size) {
+        byte[] payload = new byte[size];
+        Arrays.fill(payload, (byte) 'a');
+
+        return payload;
+    }
+}
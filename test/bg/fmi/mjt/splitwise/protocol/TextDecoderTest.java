@@ -0,0 +1,84 @@
+package bg.fmi.mjt.splitwise.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TextDecoderTest {
+
+    // two, three and four byte characters
+    static final String TEXT =
+        "\u0418\u0432\u0430\u043D split 12.50 \u043B\u0432 for \u043A\u0430\u0444\u0435 \u20AC \uD83D\uDE00";
+
+    TextDecoder decoder = new TextDecoder(4);
+
+    @Test
+    void testDecodeConsumesThePayload() {
+        ByteBuffer payload = ByteBuffer.wrap(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(TEXT, decoder.decode(payload), "Did not decode the whole payload");
+        assertFalse(payload.hasRemaining(), "Did not consume the payload");
+    }
+
+    @Test
+    void testDecodeReusesTheDecoder() {
+        assertEquals(TEXT, decoder.decode(utf8(TEXT)));
+        assertEquals("second", decoder.decode(utf8("second")), "Kept text of the previous payload");
+        assertEquals("", decoder.decode(utf8("")));
+    }
+
+    @Test
+    void testFeedHandlesCharactersSplitAtEveryPosition() {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+
+        for (int split = 0; split <= bytes.length; split++) {
+            decoder.feed(ByteBuffer.wrap(bytes, 0, split));
+            decoder.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+
+            assertEquals(TEXT, decoder.finish(), "Broke a character split at byte " + split);
+        }
+    }
+
+    @Test
+    void testFeedHandlesSingleByteChunks() {
+        for (byte b : TEXT.getBytes(StandardCharsets.UTF_8)) {
+            decoder.feed(ByteBuffer.wrap(new byte[] {b}));
+        }
+
+        assertEquals(TEXT, decoder.finish(), "Broke characters fed one byte at a time");
+    }
+
+    @Test
+    void testFinishReplacesAnIncompleteCharacter() {
+        byte[] euro = "\u20AC".getBytes(StandardCharsets.UTF_8);
+
+        decoder.feed(ByteBuffer.wrap(euro, 0, 2));
+
+        assertEquals("\uFFFD", decoder.finish(), "Did not replace the incomplete character");
+        assertEquals("ok", decoder.decode(utf8("ok")), "The incomplete character leaked into the next payload");
+    }
+
+    @Test
+    void testDecodeReplacesMalformedInput() {
+        ByteBuffer malformed = ByteBuffer.wrap(new byte[] {'a', (byte) 0xFF, 'b'});
+
+        assertEquals("a\uFFFDb", decoder.decode(malformed));
+    }
+
+    @Test
+    void testDecodeLargePayloads() {
+        String large = TEXT.repeat(10_000);
+
+        assertEquals(large, decoder.decode(utf8(large)));
+        assertEquals(TEXT, decoder.decode(utf8(TEXT)), "Could not decode after shrinking the buffer");
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
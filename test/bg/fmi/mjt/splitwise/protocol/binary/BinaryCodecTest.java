@@ -0,0 +1,164 @@
+package bg.fmi.mjt.splitwise.protocol.binary;
+
+import bg.fmi.mjt.splitwise.commands.Command;
+import bg.fmi.mjt.splitwise.protocol.exceptions.ProtocolException;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
+import bg.fmi.mjt.splitwise.responses.LoginSuccessResponse;
+import bg.fmi.mjt.splitwise.responses.OwesResponse;
+import bg.fmi.mjt.splitwise.responses.Payment;
+import bg.fmi.mjt.splitwise.responses.PaymentHistoryResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCodecTest {
+
+    @Test
+    void testRequestRoundTripKeepsAmountsExact() {
+        var request = new CommandRequest(new Command("split", new String[] {"12.5", "ivan", "pizza"}), "token");
+
+        CommandRequest decoded = roundTrip(request);
+
+        assertEquals("split", decoded.getCommand().name(), "Did not keep the command type");
+        assertEquals("token", decoded.getAuthToken(), "Did not keep the auth token");
+        assertArrayEquals(new String[] {"12.50", "ivan", "pizza"}, decoded.getCommand().args(),
+            "Did not keep the arguments");
+    }
+
+    @Test
+    void testRequestRoundTripKeepsUnknownCommandsAndMissingToken() {
+        var request = new CommandRequest(new Command("unknown", new String[] {"a"}), null);
+
+        CommandRequest decoded = roundTrip(request);
+
+        assertEquals("unknown", decoded.getCommand().name(), "Did not keep the name of an unknown command");
+        assertNull(decoded.getAuthToken(), "Invented an auth token");
+    }
+
+    @Test
+    void testRequestIsSmallerThanJson() {
+        var request = new CommandRequest(new Command("payed", new String[] {"10.00", "ivan"}), "token");
+
+        assertTrue(BinaryCodec.encodeRequest(request).length < 20, "The binary request is not compact");
+    }
+
+    @Test
+    void testEncodeRequestThrowsOnAmountWithTooManyDecimals() {
+        var request = new CommandRequest(new Command("payed", new String[] {"1.234", "ivan"}), "token");
+
+        assertThrows(ProtocolException.class, () -> BinaryCodec.encodeRequest(request),
+            "Did not reject an amount that is not fixed-point");
+    }
+
+    @Test
+    void testErrorResultRoundTrip() {
+        CommandResult decoded = roundTrip(CommandResult.ofError("No such user"));
+
+        assertFalse(decoded.wasSuccessful(), "Did not keep the status");
+        assertEquals("No such user", decoded.errorMessage(), "Did not keep the error message");
+    }
+
+    @Test
+    void testLoginResultRoundTrip() {
+        var login = new LoginSuccessResponse("token", List.of("first", "second"));
+
+        LoginSuccessResponse decoded = roundTrip(CommandResult.ofSuccess(login)).data(LoginSuccessResponse.class);
+
+        assertEquals("token", decoded.getAuthToken(), "Did not keep the auth token");
+        assertEquals(List.of("first", "second"), decoded.getNotifications(), "Did not keep the notifications");
+    }
+
+    @Test
+    void testOwesResultRoundTrip() {
+        var owes = new OwesResponse(Map.of("ivan", 10.25, "maria", -3.5));
+
+        OwesResponse decoded = roundTrip(CommandResult.ofSuccess(owes)).data(OwesResponse.class);
+
+        assertEquals(owes.getUserToLevs(), decoded.getUserToLevs(), "Did not keep the amounts");
+    }
+
+    @Test
+    void testPaymentHistoryResultRoundTrip() {
+        var payedOn = LocalDateTime.of(2022, 1, 15, 10, 30, 5, 123_000_000);
+        var history = new PaymentHistoryResponse(List.of(new Payment("ivan", 7.1, payedOn)));
+
+        Payment decoded = roundTrip(CommandResult.ofSuccess(history)).data(PaymentHistoryResponse.class)
+                                                                      .getPaymentHistory()
+                                                                      .get(0);
+
+        assertEquals("ivan", decoded.getPayedTo(), "Did not keep the receiver");
+        assertEquals(7.1, decoded.getLevs(), "Did not keep the amount");
+        assertEquals(payedOn, decoded.getPayedOn(), "Did not keep the date");
+    }
+
+    @Test
+    void testSuccessWithoutDataRoundTrip() {
+        CommandResult decoded = roundTrip(CommandResult.ofSuccess());
+
+        assertTrue(decoded.wasSuccessful(), "Did not keep the status");
+        assertNull(decoded.data(), "Invented data");
+    }
+
+    @Test
+    void testEncodeRequestRejectsWhatTheTextProtocolRejects() {
+        for (var amount : new String[] {"1e3", "-5", "+5", ".5"}) {
+            var request = new CommandRequest(new Command("payed", new String[] {amount, "ivan"}), "token");
+
+            assertThrows(ProtocolException.class, () -> BinaryCodec.encodeRequest(request),
+                "Accepted an amount the text protocol rejects: " + amount);
+        }
+    }
+
+    @Test
+    void testDecodeThrowsOnTruncatedInput() {
+        byte[] encoded = BinaryCodec.encodeResult(CommandResult.ofError("No such user"));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+
+        assertThrows(ProtocolException.class, () -> BinaryCodec.decodeResult(ByteBuffer.wrap(truncated)),
+            "Did not reject a truncated message");
+    }
+
+    @Test
+    void testDecodeRequestThrowsOnArgumentCountBiggerThanThePayload() {
+        byte[] payload = {0x01, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+        assertThrows(ProtocolException.class, () -> BinaryCodec.decodeRequest(ByteBuffer.wrap(payload)),
+            "Did not reject an argument count the payload cannot hold");
+    }
+
+    @Test
+    void testSignedVarLongRoundTrip() {
+        long[] values = {0, 1, -1, 63, -64, Long.MAX_VALUE, Long.MIN_VALUE};
+        var writer = new BinaryWriter();
+
+        for (long value : values) {
+            writer.writeSignedVarLong(value);
+        }
+
+        var reader = new BinaryReader(writer.toByteArray());
+        for (long value : values) {
+            assertEquals(value, reader.readSignedVarLong(), "Did not read back the written value");
+        }
+        assertFalse(reader.hasRemaining(), "Wrote more bytes than were read");
+    }
+
+    private static CommandRequest roundTrip(CommandRequest request) {
+        return BinaryCodec.decodeRequest(ByteBuffer.wrap(BinaryCodec.encodeRequest(request)));
+    }
+
+    private static CommandResult roundTrip(CommandResult result) {
+        return BinaryCodec.decodeResult(ByteBuffer.wrap(BinaryCodec.encodeResult(result)));
+    }
+}
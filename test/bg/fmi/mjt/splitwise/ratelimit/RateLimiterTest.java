@@ -0,0 +1,85 @@
+package bg.fmi.mjt.splitwise.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    long nowNanos = 0;
+    RateLimiter<String> limiter = new RateLimiter<>(new RateLimit(2, 10), () -> nowNanos);
+
+    @Test
+    void testTryAcquireAllowsTheBurst() {
+        assertEquals(0, limiter.tryAcquire("a"), "Did not allow the first request");
+        assertEquals(0, limiter.tryAcquire("a"), "Did not allow the whole burst");
+    }
+
+    @Test
+    void testTryAcquireReturnsTheRetryDelayOnceExhausted() {
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+
+        assertEquals(100, limiter.tryAcquire("a"), "Did not return the time until the next token");
+    }
+
+    @Test
+    void testTryAcquireRefillsWithTime() {
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(100);
+
+        assertEquals(0, limiter.tryAcquire("a"), "Did not refill the bucket");
+        assertTrue(limiter.tryAcquire("a") > 0, "Refilled more than the elapsed time allows");
+    }
+
+    @Test
+    void testTryAcquireOfSeveralTakesAllTokensOrNone() {
+        limiter.tryAcquire("a");
+
+        assertEquals(100, limiter.tryAcquire("a", 2), "Did not return the time until enough tokens");
+        assertEquals(0, limiter.tryAcquire("a"), "Took tokens although the request was rejected");
+    }
+
+    @Test
+    void testTryAcquireThrowsOnCountOverTheBurst() {
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire("a", 3),
+            "Accepted a count no wait could satisfy");
+    }
+
+    @Test
+    void testTryAcquireLimitsKeysSeparately() {
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+
+        assertEquals(0, limiter.tryAcquire("b"), "Limited a key by the requests of another one");
+    }
+
+    @Test
+    void testIdleBucketsAreEvicted() {
+        for (int i = 0; i <= 10_000; i++) {
+            limiter.tryAcquire("key" + i);
+        }
+
+        nowNanos += TimeUnit.SECONDS.toNanos(1);
+        limiter.tryAcquire("last");
+
+        assertEquals(1, limiter.size(), "Did not evict the refilled buckets");
+    }
+
+    @Test
+    void testTryAcquireThrowsOnNull() {
+        assertThrows(NullPointerException.class, () -> limiter.tryAcquire(null), "Did not throw on null");
+    }
+
+    @Test
+    void testRateLimitThrowsOnNonPositiveValues() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(0, 1), "Did not throw on empty burst");
+        assertThrows(IllegalArgumentException.class, () -> new RateLimit(1, 0), "Did not throw on zero rate");
+    }
+}
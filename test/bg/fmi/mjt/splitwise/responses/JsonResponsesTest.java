@@ -0,0 +1,67 @@
+package bg.fmi.mjt.splitwise.responses;
+
+import bg.fmi.mjt.splitwise.gson.Gsons;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonResponsesTest {
+
+    private static final Gson GSON = Gsons.shared();
+
+    private static final OwesResponse DATA = new OwesResponse(Map.of("ivan", 1.5));
+
+    @Test
+    void testDataIsEmbedded() {
+        var json = JsonResponses.of(CommandResult.ofSuccess(DATA), true);
+
+        assertEquals("{\"wasSuccessful\":true,\"data\":{\"userToLevs\":{\"ivan\":1.5}}}", json,
+            "Did not nest the data");
+    }
+
+    @Test
+    void testDataIsSentAsStringToOlderClients() {
+        var json = JsonResponses.of(CommandResult.ofSuccess(DATA), false);
+
+        assertEquals(GSON.toJson(CommandResponse.ofSuccess(GSON.toJson(DATA))), json, "The format changed");
+    }
+
+    @Test
+    void testEmbeddedDataIsSmaller() {
+        var result = CommandResult.ofSuccess(DATA);
+
+        assertTrue(JsonResponses.of(result, true).length() < JsonResponses.of(result, false).length(),
+            "The embedded data was escaped");
+    }
+
+    @Test
+    void testErrorsAreTheSameForEveryClient() {
+        var result = CommandResult.ofError("failed");
+
+        assertEquals(GSON.toJson(CommandResponse.ofError("failed")), JsonResponses.of(result, true),
+            "The format changed");
+        assertEquals(JsonResponses.of(result, true), JsonResponses.of(result, false), "Errors differ");
+    }
+
+    @Test
+    void testSuccessWithoutData() {
+        assertEquals("{\"wasSuccessful\":true}", JsonResponses.of(CommandResult.ofSuccess(), true),
+            "The format changed");
+    }
+
+    @Test
+    void testBatchIsAnArrayOfResponses() {
+        var json = JsonResponses.ofBatch(List.of(CommandResult.ofSuccess(DATA), CommandResult.ofError("e")), true);
+        var responses = GSON.fromJson(json, CommandResponse[].class);
+
+        assertEquals(2, responses.length, "Did not write a response per result");
+        assertEquals(GSON.toJson(DATA), responses[0].getData(), "The data changed");
+        assertEquals("e", responses[1].getErrorMessage(), "The error changed");
+    }
+
+}
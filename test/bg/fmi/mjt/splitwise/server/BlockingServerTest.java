@@ -0,0 +1,327 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.handlers.InputHander;
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BlockingServerTest {
+
+    static final Charset TRANSPORTATION_CHARSET = StandardCharsets.UTF_8;
+
+    static final String HOST = "localhost";
+    static final int PORT = 51520;
+    static final int READ_PORT = 51521;
+    static final int SLOW_COMMAND_PORT = 51522;
+    static final int DRAIN_PORT = 51523;
+    static final int COMPRESSION_THRESHOLD_PORT = 51524;
+    static final int MAX_CONNECTIONS_PORT = 51525;
+    static final int HOST_RATE_LIMIT_PORT = 51526;
+
+    static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
+
+    @Mock
+    InputHander hander;
+
+    @BeforeAll
+    static void setUp() {
+        loggerMock.when(() -> LoggerFactory.getLogger(any())).thenReturn(mock(Logger.class));
+    }
+
+    @AfterAll
+    static void afterAll() {
+        loggerMock.close();
+    }
+
+    @Test
+    void serverStartsAndStopsSuccessfully() {
+        var server = new BlockingServer(HOST, PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+                server.stop();
+                thread.join();
+            },
+            "Server did not start and stop in the specified time period"
+        );
+    }
+
+    @Test
+    void serverAnswersEveryRequestOfAConnection() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var server = new BlockingServer(HOST, READ_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, READ_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, "first");
+                writeFrame(out, "second");
+                out.flush();
+
+                assertEquals("first", readFrame(in));
+                assertEquals("second", readFrame(in));
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer the requests in the specified time period"
+        );
+    }
+
+    @Test
+    void connectionsAboveTheLimitAreRefused() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withMaxConnections(1);
+        var server = new BlockingServer(HOST, MAX_CONNECTIONS_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var admitted = new Socket(HOST, MAX_CONNECTIONS_PORT);
+                var out = new DataOutputStream(admitted.getOutputStream());
+                writeFrame(out, "hello");
+                out.flush();
+                assertEquals("hello", readFrame(new DataInputStream(admitted.getInputStream())));
+
+                var refused = new Socket(HOST, MAX_CONNECTIONS_PORT);
+                assertEquals(-1, refused.getInputStream().read(), "The connection over the limit was not closed");
+                assertEquals(1, server.rejectedConnections(), "Did not count the refused connection");
+
+                server.stop();
+
+                admitted.close();
+                refused.close();
+                thread.join();
+            },
+            "Server did not refuse the connection in the specified time period"
+        );
+    }
+
+    @Test
+    void requestsOverTheHostRateAreAnsweredWithoutRunning() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withHostRateLimit(new RateLimit(1, 1));
+        var server = new BlockingServer(HOST, HOST_RATE_LIMIT_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, HOST_RATE_LIMIT_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, "first");
+                out.flush();
+                assertEquals("first", readFrame(in));
+
+                writeFrame(out, "second");
+                out.flush();
+                assertTrue(readFrame(in).contains("Rate limited"), "Did not reject the request over the rate");
+                verify(hander, never()).handle("second");
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer the rate limited request in the specified time period"
+        );
+    }
+
+    @Test
+    void responsesUnderTheConfiguredThresholdAreNotCompressed() {
+        String large = "a".repeat(10_000);
+        when(hander.handle("large")).thenReturn(large);
+
+        var options = ServerOptions.defaults().withCompressionThreshold(20_000);
+        var server = new BlockingServer(HOST, COMPRESSION_THRESHOLD_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, COMPRESSION_THRESHOLD_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                assertEquals(2, handshake(out, in, (byte) 2), "The server did not agree to compression");
+
+                writeFrame(out, "large");
+                out.flush();
+                assertEquals(large, readFrame(in), "Compressed a response under the configured threshold");
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer in the specified time period"
+        );
+    }
+
+    @Test
+    void drainAnswersRequestsInFlight() {
+        var commandStarted = new CountDownLatch(1);
+        var commandReleased = new CountDownLatch(1);
+        when(hander.handle("slow")).then(invocation -> {
+            commandStarted.countDown();
+            commandReleased.await();
+            return "slow";
+        });
+
+        var server = new BlockingServer(HOST, DRAIN_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var idleSocket = new Socket(HOST, DRAIN_PORT);
+                var socket = new Socket(HOST, DRAIN_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "slow");
+                out.flush();
+                commandStarted.await();
+
+                server.drain(Duration.ofSeconds(5));
+                Thread.sleep(100);
+                commandReleased.countDown();
+
+                assertEquals("slow", readFrame(new DataInputStream(socket.getInputStream())),
+                    "Did not answer the request in flight");
+                thread.join();
+
+                assertEquals(-1, idleSocket.getInputStream().read(), "Did not close the idle connection");
+
+                idleSocket.close();
+                socket.close();
+            },
+            "Server did not drain in the specified time period"
+        );
+    }
+
+    @Test
+    void slowCommandDoesNotBlockOtherClients() {
+        var slowCommandReleased = new CountDownLatch(1);
+        when(hander.handle("fast")).thenReturn("fast");
+        when(hander.handle("slow")).then(invocation -> {
+            slowCommandReleased.await();
+            return "slow";
+        });
+
+        var server = new BlockingServer(HOST, SLOW_COMMAND_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var slowSocket = new Socket(HOST, SLOW_COMMAND_PORT);
+                var slowOut = new DataOutputStream(slowSocket.getOutputStream());
+                writeFrame(slowOut, "slow");
+                slowOut.flush();
+
+                var fastSocket = new Socket(HOST, SLOW_COMMAND_PORT);
+                var fastOut = new DataOutputStream(fastSocket.getOutputStream());
+                writeFrame(fastOut, "fast");
+                fastOut.flush();
+
+                assertEquals("fast", readFrame(new DataInputStream(fastSocket.getInputStream())));
+
+                slowCommandReleased.countDown();
+                assertEquals("slow", readFrame(new DataInputStream(slowSocket.getInputStream())));
+                server.stop();
+
+                slowSocket.close();
+                fastSocket.close();
+                thread.join();
+            },
+            "A slow command blocked the other clients"
+        );
+    }
+
+    static void writeFrame(DataOutputStream out, String payload) throws IOException {
+        writeFrame(out, 1, payload);
+    }
+
+    static void writeFrame(DataOutputStream out, int correlationId, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(TRANSPORTATION_CHARSET);
+        out.writeInt(bytes.length);
+        out.writeInt(correlationId);
+        out.writeByte(0);
+        out.write(bytes);
+    }
+
+    static byte handshake(DataOutputStream out, DataInputStream in, byte features) throws IOException {
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeByte(1);
+        out.writeByte(features);
+        out.flush();
+
+        in.readInt();
+        in.readInt();
+        in.readByte();
+
+        return in.readByte();
+    }
+
+    static String readFrame(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readInt();
+        in.readByte();
+        in.readFully(bytes);
+        return new String(bytes, TRANSPORTATION_CHARSET);
+    }
+}
@@ -0,0 +1,80 @@
+package bg.fmi.mjt.splitwise.server;
+
+import bg.fmi.mjt.splitwise.logger.Logger;
+import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+class HandoverTest {
+
+    static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void setUp() {
+        loggerMock.when(() -> LoggerFactory.getLogger(any())).thenReturn(mock(Logger.class));
+    }
+
+    @AfterAll
+    static void afterAll() {
+        loggerMock.close();
+    }
+
+    @Test
+    void testAnnounceReadyWritesThePid() throws IOException {
+        var readyFile = directory.resolve("ready");
+
+        new Handover(readyFile, 42, POLL_INTERVAL).announceReady();
+
+        assertEquals("42", Files.readString(readyFile));
+    }
+
+    @Test
+    void testSuccessorTriggersTheAction() throws InterruptedException {
+        var readyFile = directory.resolve("ready");
+        var predecessor = new Handover(readyFile, 1, POLL_INTERVAL);
+        var successor = new Handover(readyFile, 2, POLL_INTERVAL);
+        var handedOver = new CountDownLatch(1);
+
+        predecessor.announceReady();
+        predecessor.onSuccessor(handedOver::countDown);
+        successor.announceReady();
+
+        assertTrue(handedOver.await(5, TimeUnit.SECONDS), "Did not hand over to the successor");
+    }
+
+    @Test
+    void testOwnAnnouncementDoesNotTriggerTheAction() throws InterruptedException {
+        var readyFile = directory.resolve("ready");
+        var handover = new Handover(readyFile, 1, POLL_INTERVAL);
+        var handedOver = new CountDownLatch(1);
+
+        handover.announceReady();
+        handover.onSuccessor(handedOver::countDown);
+
+        assertFalse(handedOver.await(100, TimeUnit.MILLISECONDS), "Handed over to itself");
+        handover.stopWatching();
+    }
+
+}
@@ -0,0 +1,86 @@
+package bg.fmi.mjt.splitwise.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    HashedTimingWheel<String> wheel = new HashedTimingWheel<>(8, 10, 0);
+    List<String> expired = new ArrayList<>();
+
+    @Test
+    void testAdvanceDoesNotExpireBeforeTheDeadline() {
+        wheel.schedule("a", 50);
+        wheel.advance(49, expired::add);
+
+        assertTrue(expired.isEmpty(), "Expired an item before its deadline");
+        assertEquals(1, wheel.size(), "Lost a scheduled item");
+    }
+
+    @Test
+    void testAdvanceExpiresOnTheDeadlineTick() {
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 70);
+        wheel.advance(50, expired::add);
+
+        assertEquals(List.of("a"), expired, "Did not expire exactly the items whose deadline passed");
+        assertEquals(1, wheel.size(), "Did not remove the expired item");
+    }
+
+    @Test
+    void testAdvanceKeepsDeadlinesBeyondOneRevolution() {
+        wheel.schedule("far", 250);
+
+        wheel.advance(80, expired::add);
+        wheel.advance(160, expired::add);
+        assertTrue(expired.isEmpty(), "Expired an item one revolution too early");
+
+        wheel.advance(250, expired::add);
+        assertEquals(List.of("far"), expired, "Did not expire the item after enough revolutions");
+    }
+
+    @Test
+    void testAdvanceOverSeveralRevolutionsExpiresEverything() {
+        wheel.schedule("a", 30);
+        wheel.schedule("b", 130);
+        wheel.schedule("c", 500);
+        wheel.advance(1000, expired::add);
+
+        assertEquals(3, expired.size(), "Did not expire every item after a long pause");
+        assertEquals(0, wheel.size(), "Kept expired items");
+    }
+
+    @Test
+    void testExpiredItemCanBeScheduledAgain() {
+        wheel.schedule("a", 20);
+        wheel.advance(20, item -> wheel.schedule(item, 60));
+
+        assertEquals(1, wheel.size(), "Did not keep the rescheduled item");
+
+        wheel.advance(60, expired::add);
+        assertEquals(List.of("a"), expired, "Did not expire the rescheduled item");
+    }
+
+    @Test
+    void testScheduleInThePastExpiresOnTheNextTick() {
+        wheel.advance(100, expired::add);
+        wheel.schedule("late", 10);
+        wheel.advance(110, expired::add);
+
+        assertEquals(List.of("late"), expired, "Did not expire an item scheduled in the past");
+    }
+
+    @Test
+    void testConstructorThrowsOnInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<>(0, 10, 0),
+            "Did not throw on an empty wheel");
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<>(8, 0, 0),
+            "Did not throw on a zero tick");
+    }
+}
@@ -1,27 +1,51 @@
 package bg.fmi.mjt.splitwise.server;
 
+import bg.fmi.mjt.splitwise.commands.Command;
 import bg.fmi.mjt.splitwise.handlers.InputHander;
+import bg.fmi.mjt.splitwise.handlers.RequestHandler;
 import bg.fmi.mjt.splitwise.logger.Logger;
 import bg.fmi.mjt.splitwise.logger.LoggerFactory;
+import bg.fmi.mjt.splitwise.protocol.PayloadDecompressor;
+import bg.fmi.mjt.splitwise.protocol.binary.BinaryCodec;
+import bg.fmi.mjt.splitwise.ratelimit.RateLimit;
+import bg.fmi.mjt.splitwise.requests.CommandRequest;
+import bg.fmi.mjt.splitwise.responses.CommandResult;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +57,27 @@ class ServerTest {
     static final int PORT = 51509;
 
     static final int READ_PORT = 51510;
+    static final int COALESCED_PORT = 51511;
+    static final int LARGE_RESPONSE_PORT = 51512;
+    static final int SLOW_COMMAND_PORT = 51513;
+    static final int MULTI_REACTOR_PORT = 51514;
+    static final int SLOW_READER_PORT = 51515;
+    static final int PIPELINED_PORT = 51516;
+    static final int IDLE_PORT = 51517;
+    static final int MAX_CONNECTIONS_PORT = 51518;
+    static final int HOST_RATE_LIMIT_PORT = 51519;
+    static final int BINARY_PORT = 51530;
+    static final int JSON_ONLY_PORT = 51531;
+    static final int COMPRESSION_PORT = 51532;
+    static final int PUSH_PORT = 51533;
+    static final int DRAIN_PORT = 51534;
+    static final int DRAIN_DEADLINE_PORT = 51535;
+    static final int REUSED_PORT = 51536;
+    static final int OVERSIZE_FRAME_PORT = 51537;
+    static final int GLOBAL_BUDGET_PORT = 51538;
+    static final int UNIX_SOCKET_PORT = 51539;
+    static final int PARTIAL_FRAME_BUDGET_PORT = 51540;
+    static final int STOP_WORKERS_PORT = 51541;
 
     static MockedStatic<LoggerFactory> loggerMock = mockStatic(LoggerFactory.class);
 
@@ -79,16 +124,13 @@ class ServerTest {
                 thread.start();
 
                 var socket = new Socket(HOST, READ_PORT);
-                var out = socket.getOutputStream();
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
 
-                out.write(sended.getBytes(TRANSPORTATION_CHARSET));
+                writeFrame(out, sended);
                 out.flush();
 
-                var in = socket.getInputStream();
-
-                var bytes = new byte[64];
-                var r = in.read(bytes);
-                String read = new String(bytes, 0, r, TRANSPORTATION_CHARSET);
+                String read = readFrame(in);
                 server.stop();
 
                 assertEquals(sended, read);
@@ -101,4 +143,847 @@ class ServerTest {
             "Server did not echo the data in the specified time period"
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void serverHandlesSeveralFramesInOneWrite() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var server = new Server(HOST, COALESCED_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, COALESCED_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, "first");
+                writeFrame(out, "second");
+                out.flush();
+
+                assertEquals("first", readFrame(in));
+                assertEquals("second", readFrame(in));
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer both requests in the specified time period"
+        );
+    }
+
+    @Test
+    void serverSendsResponsesLargerThanItsReadBuffer() {
+        String large = "x".repeat(100_000);
+        when(hander.handle("large")).thenReturn(large);
+
+        var server = new Server(HOST, LARGE_RESPONSE_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, LARGE_RESPONSE_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, "large");
+                out.flush();
+
+                assertEquals(large, readFrame(in));
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not send the large response in the specified time period"
+        );
+    }
+
+    @Test
+    void slowCommandDoesNotBlockOtherClients() {
+        var slowCommandReleased = new CountDownLatch(1);
+        when(hander.handle("fast")).thenReturn("fast");
+        when(hander.handle("slow")).then(invocation -> {
+            slowCommandReleased.await();
+            return "slow";
+        });
+
+        var server = new Server(HOST, SLOW_COMMAND_PORT, hander, ServerOptions.defaults().withWorkerCount(2));
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var slowSocket = new Socket(HOST, SLOW_COMMAND_PORT);
+                var slowOut = new DataOutputStream(slowSocket.getOutputStream());
+                writeFrame(slowOut, "slow");
+                slowOut.flush();
+
+                var fastSocket = new Socket(HOST, SLOW_COMMAND_PORT);
+                var fastOut = new DataOutputStream(fastSocket.getOutputStream());
+                writeFrame(fastOut, "fast");
+                fastOut.flush();
+
+                assertEquals("fast", readFrame(new DataInputStream(fastSocket.getInputStream())));
+
+                slowCommandReleased.countDown();
+                assertEquals("slow", readFrame(new DataInputStream(slowSocket.getInputStream())));
+                server.stop();
+
+                slowSocket.close();
+                fastSocket.close();
+                thread.join();
+            },
+            "A slow command blocked the other clients"
+        );
+    }
+
+    @Test
+    void pipelinedResponsesCarryTheirCorrelationIds() {
+        var slowCommandReleased = new CountDownLatch(1);
+        when(hander.handle("fast")).thenReturn("fast");
+        when(hander.handle("slow")).then(invocation -> {
+            slowCommandReleased.await();
+            return "slow";
+        });
+
+        var server = new Server(HOST, PIPELINED_PORT, hander, ServerOptions.defaults().withWorkerCount(2));
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, PIPELINED_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, 1, "slow");
+                writeFrame(out, 2, "fast");
+                out.flush();
+
+                assertEquals(4, in.readInt());
+                assertEquals(2, in.readInt(), "The fast response did not overtake the slow one");
+                in.readByte();
+                assertEquals("fast", new String(in.readNBytes(4), TRANSPORTATION_CHARSET));
+
+                slowCommandReleased.countDown();
+                assertEquals(4, in.readInt());
+                assertEquals(1, in.readInt(), "The slow response lost its correlation id");
+                in.readByte();
+                assertEquals("slow", new String(in.readNBytes(4), TRANSPORTATION_CHARSET));
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Pipelined requests were not answered in the specified time period"
+        );
+    }
+
+    @Test
+    void idleConnectionsAreReapedWhileActiveOnesStayOpen() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withIdleTimeout(Duration.ofMillis(300));
+        var server = new Server(HOST, IDLE_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var idleSocket = new Socket(HOST, IDLE_PORT);
+                var activeSocket = new Socket(HOST, IDLE_PORT);
+                var activeOut = new DataOutputStream(activeSocket.getOutputStream());
+                var activeIn = new DataInputStream(activeSocket.getInputStream());
+
+                for (int i = 0; i < 8; i++) {
+                    writeFrame(activeOut, "ping" + i);
+                    activeOut.flush();
+                    assertEquals("ping" + i, readFrame(activeIn), "An active connection was closed");
+                    Thread.sleep(100);
+                }
+
+                assertEquals(-1, idleSocket.getInputStream().read(), "The idle connection was not closed");
+                assertEquals(1, server.reapedConnections(), "Did not count the reaped connection");
+
+                server.stop();
+
+                idleSocket.close();
+                activeSocket.close();
+                thread.join();
+            },
+            "Server did not reap the idle connection in the specified time period"
+        );
+    }
+
+    @Test
+    void connectionsAboveTheLimitAreRefused() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withMaxConnections(1);
+        var server = new Server(HOST, MAX_CONNECTIONS_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var admitted = new Socket(HOST, MAX_CONNECTIONS_PORT);
+                var out = new DataOutputStream(admitted.getOutputStream());
+                writeFrame(out, "hello");
+                out.flush();
+                assertEquals("hello", readFrame(new DataInputStream(admitted.getInputStream())));
+
+                var refused = new Socket(HOST, MAX_CONNECTIONS_PORT);
+                assertEquals(-1, refused.getInputStream().read(), "The connection over the limit was not closed");
+                assertEquals(1, server.rejectedConnections(), "Did not count the refused connection");
+                assertEquals(1, server.openConnections(), "Did not count the admitted connection");
+
+                server.stop();
+
+                admitted.close();
+                refused.close();
+                thread.join();
+            },
+            "Server did not refuse the connection in the specified time period"
+        );
+    }
+
+    @Test
+    void requestsOverTheHostRateAreAnsweredWithoutRunning() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withHostRateLimit(new RateLimit(1, 1));
+        var server = new Server(HOST, HOST_RATE_LIMIT_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, HOST_RATE_LIMIT_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                writeFrame(out, "first");
+                out.flush();
+                assertEquals("first", readFrame(in));
+
+                writeFrame(out, "second");
+                out.flush();
+                assertTrue(readFrame(in).contains("Rate limited"), "Did not reject the request over the rate");
+                verify(hander, never()).handle("second");
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer the rate limited request in the specified time period"
+        );
+    }
+
+    @Test
+    void binaryProtocolIsUsedAfterTheHandshake() {
+        var binaryHandler = mock(InputHander.class, withSettings().extraInterfaces(RequestHandler.class));
+        when(((RequestHandler) binaryHandler).handleRequest(any())).thenReturn(CommandResult.ofError("binary"));
+
+        var server = new Server(HOST, BINARY_PORT, binaryHandler);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, BINARY_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                assertEquals(1, handshake(out, in, (byte) 1), "The server did not agree to the binary protocol");
+
+                var request = new CommandRequest(new Command("get-status", new String[0]), "token");
+                byte[] encoded = BinaryCodec.encodeRequest(request);
+                out.writeInt(encoded.length);
+                out.writeInt(1);
+                out.writeByte(0);
+                out.write(encoded);
+                out.flush();
+
+                byte[] response = new byte[in.readInt()];
+                in.readInt();
+                in.readByte();
+                in.readFully(response);
+
+                var result = BinaryCodec.decodeResult(ByteBuffer.wrap(response));
+                assertEquals("binary", result.errorMessage(), "Did not answer in the binary format");
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer the binary request in the specified time period"
+        );
+    }
+
+    @Test
+    void handlersWithoutRequestSupportKeepJson() {
+        var server = new Server(HOST, JSON_ONLY_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, JSON_ONLY_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                assertEquals(0, handshake(out, in, (byte) 1), "The server agreed to a protocol it cannot serve");
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer the handshake in the specified time period"
+        );
+    }
+
+    @Test
+    void largeResponsesAreCompressedOnceAgreed() {
+        String large = "a".repeat(10_000);
+        when(hander.handle("small")).thenReturn("small");
+        when(hander.handle("large")).thenReturn(large);
+
+        var server = new Server(HOST, COMPRESSION_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, COMPRESSION_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                assertEquals(2, handshake(out, in, (byte) 2), "The server did not agree to compression");
+
+                writeFrame(out, 1, "small");
+                out.flush();
+                assertEquals("small", readFrame(in), "Compressed a small response");
+
+                writeFrame(out, 2, "large");
+                out.flush();
+
+                byte[] compressed = new byte[in.readInt()];
+                assertEquals(2, in.readInt());
+                assertEquals(2, in.readByte(), "Did not flag the large response as compressed");
+                in.readFully(compressed);
+
+                try (var decompressor = new PayloadDecompressor()) {
+                    byte[] response = decompressor.decompress(ByteBuffer.wrap(compressed));
+                    assertEquals(large, new String(response, TRANSPORTATION_CHARSET), "Did not restore the response");
+                }
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not answer in the specified time period"
+        );
+    }
+
+    @Test
+    void notificationsArePushedToTheBoundSession() {
+        var sessions = new Sessions();
+        when(hander.handle("login")).then(invocation -> {
+            sessions.bind("user");
+            return "logged in";
+        });
+        when(hander.handle("notify")).then(invocation -> sessions.push("user", "hello") ? "pushed" : "stored");
+
+        var server = new Server(HOST, PUSH_PORT, hander, ServerOptions.defaults(), sessions);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var receiver = new Socket(HOST, PUSH_PORT);
+                var receiverOut = new DataOutputStream(receiver.getOutputStream());
+                var receiverIn = new DataInputStream(receiver.getInputStream());
+
+                var sender = new Socket(HOST, PUSH_PORT);
+                var senderOut = new DataOutputStream(sender.getOutputStream());
+                var senderIn = new DataInputStream(sender.getInputStream());
+
+                assertEquals(4, handshake(receiverOut, receiverIn, (byte) 4), "The server did not agree to pushes");
+                writeFrame(receiverOut, 1, "login");
+                receiverOut.flush();
+                assertEquals("logged in", readFrame(receiverIn));
+
+                writeFrame(senderOut, 1, "notify");
+                senderOut.flush();
+                assertEquals("pushed", readFrame(senderIn), "The notification was not pushed");
+
+                byte[] notification = new byte[receiverIn.readInt()];
+                assertEquals(0, receiverIn.readInt(), "The notification has a correlation id");
+                assertEquals(0, receiverIn.readByte(), "The notification has flags");
+                receiverIn.readFully(notification);
+                assertEquals("hello", new String(notification, TRANSPORTATION_CHARSET));
+
+                receiver.close();
+                sender.close();
+
+                server.stop();
+                thread.join();
+            },
+            "Server did not push in the specified time period"
+        );
+    }
+
+    @Test
+    void drainAnswersRequestsInFlight() {
+        var commandStarted = new CountDownLatch(1);
+        var commandReleased = new CountDownLatch(1);
+        when(hander.handle("slow")).then(invocation -> {
+            commandStarted.countDown();
+            commandReleased.await();
+            return "slow";
+        });
+
+        var server = new Server(HOST, DRAIN_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var idleSocket = new Socket(HOST, DRAIN_PORT);
+                var socket = new Socket(HOST, DRAIN_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "slow");
+                out.flush();
+                commandStarted.await();
+
+                server.drain(Duration.ofSeconds(5));
+                Thread.sleep(100);
+                commandReleased.countDown();
+
+                assertEquals("slow", readFrame(new DataInputStream(socket.getInputStream())),
+                    "Did not answer the request in flight");
+                thread.join();
+
+                assertEquals(-1, idleSocket.getInputStream().read(), "Did not close the idle connection");
+
+                idleSocket.close();
+                socket.close();
+            },
+            "Server did not drain in the specified time period"
+        );
+    }
+
+    @Test
+    void drainClosesBusyConnectionsAfterTheDeadline() {
+        var commandStarted = new CountDownLatch(1);
+        var commandReleased = new CountDownLatch(1);
+        when(hander.handle("stuck")).then(invocation -> {
+            commandStarted.countDown();
+
+            try {
+                commandReleased.await();
+            } catch (InterruptedException e) {
+                // stopping the server interrupts the workers
+                Thread.currentThread().interrupt();
+            }
+
+            return "stuck";
+        });
+
+        var server = new Server(HOST, DRAIN_DEADLINE_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, DRAIN_DEADLINE_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "stuck");
+                out.flush();
+                commandStarted.await();
+
+                server.drain(Duration.ofMillis(200));
+                thread.join();
+
+                assertEquals(-1, socket.getInputStream().read(), "Did not close the busy connection");
+
+                commandReleased.countDown();
+                socket.close();
+            },
+            "Server did not stop after the drain deadline"
+        );
+    }
+
+    @Test
+    void stopLetsRunningCommandsFinish() {
+        var commandStarted = new CountDownLatch(1);
+        var wasInterrupted = new AtomicBoolean(false);
+        when(hander.handle("slow")).then(invocation -> {
+            commandStarted.countDown();
+
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                wasInterrupted.set(true);
+            }
+
+            return "slow";
+        });
+
+        var server = new Server(HOST, STOP_WORKERS_PORT, hander);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, STOP_WORKERS_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "slow");
+                out.flush();
+                commandStarted.await();
+
+                server.stop();
+                thread.join();
+
+                assertFalse(wasInterrupted.get(), "Interrupted a command that was about to finish");
+                socket.close();
+            },
+            "Server did not stop in the specified time period"
+        );
+    }
+
+    @Test
+    void successorListensOnThePortBeforeThePredecessorStops() {
+        when(hander.handle("ping")).thenReturn("pong");
+
+        var options = ServerOptions.defaults().withReusePort(true);
+        var predecessor = new Server(HOST, REUSED_PORT, hander, options);
+        var successor = new Server(HOST, REUSED_PORT, hander, options);
+        var predecessorThread = new Thread(predecessor);
+        var successorThread = new Thread(successor);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                predecessorThread.start();
+                successorThread.start();
+
+                predecessor.drain(Duration.ofSeconds(1));
+                predecessorThread.join();
+
+                var socket = new Socket(HOST, REUSED_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "ping");
+                out.flush();
+                assertEquals("pong", readFrame(new DataInputStream(socket.getInputStream())),
+                    "The successor did not answer");
+
+                successor.stop();
+                socket.close();
+                successorThread.join();
+            },
+            "The port was not handed over in the specified time period"
+        );
+    }
+
+    @Test
+    void serverWithSubReactorsServesEveryClient() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var server = new Server(HOST, MULTI_REACTOR_PORT, hander, ServerOptions.defaults().withReactorCount(2));
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var sockets = new Socket[3];
+                for (int i = 0; i < sockets.length; i++) {
+                    sockets[i] = new Socket(HOST, MULTI_REACTOR_PORT);
+
+                    var out = new DataOutputStream(sockets[i].getOutputStream());
+                    writeFrame(out, "client" + i);
+                    out.flush();
+                }
+
+                for (int i = 0; i < sockets.length; i++) {
+                    assertEquals("client" + i, readFrame(new DataInputStream(sockets[i].getInputStream())));
+                    sockets[i].close();
+                }
+
+                server.stop();
+                thread.join();
+            },
+            "Server with sub-reactors did not answer every client in the specified time period"
+        );
+    }
+
+    @Test
+    void slowReaderReceivesEveryResponseAfterBackpressure() {
+        String large = "y".repeat(64 * 1024);
+        int requestCount = 50;
+        when(hander.handle(any())).thenReturn(large);
+
+        var options = ServerOptions.defaults().withOutboundHighWaterMark(128 * 1024);
+        var server = new Server(HOST, SLOW_READER_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, SLOW_READER_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                for (int i = 0; i < requestCount; i++) {
+                    writeFrame(out, "request" + i);
+                }
+                out.flush();
+
+                for (int i = 0; i < requestCount; i++) {
+                    assertEquals(large, readFrame(in));
+                }
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not deliver every response to a slow reader in the specified time period"
+        );
+    }
+
+    @Test
+    void framesOverTheConnectionBudgetAreRejectedByTheirHeader() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        var options = ServerOptions.defaults().withConnectionMemoryBudget(1024);
+        var server = new Server(HOST, OVERSIZE_FRAME_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var oversized = new Socket(HOST, OVERSIZE_FRAME_PORT);
+                var oversizedOut = new DataOutputStream(oversized.getOutputStream());
+                oversizedOut.writeInt(4096);
+                oversizedOut.writeInt(1);
+                oversizedOut.writeByte(0);
+                oversizedOut.flush();
+                assertEquals(-1, oversized.getInputStream().read(), "Waited for the payload of an oversized frame");
+
+                var socket = new Socket(HOST, OVERSIZE_FRAME_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "hello");
+                out.flush();
+                assertEquals("hello", readFrame(new DataInputStream(socket.getInputStream())));
+
+                server.stop();
+
+                oversized.close();
+                socket.close();
+                thread.join();
+            },
+            "Server did not reject the oversized frame in the specified time period"
+        );
+    }
+
+    @Test
+    void slowReaderReceivesEveryResponseOverTheGlobalBudget() {
+        String large = "z".repeat(64 * 1024);
+        int requestCount = 50;
+        when(hander.handle(any())).thenReturn(large);
+
+        var options = ServerOptions.defaults().withGlobalMemoryBudget(128 * 1024);
+        var server = new Server(HOST, GLOBAL_BUDGET_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, GLOBAL_BUDGET_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                var in = new DataInputStream(socket.getInputStream());
+
+                for (int i = 0; i < requestCount; i++) {
+                    writeFrame(out, "request" + i);
+                }
+                out.flush();
+
+                for (int i = 0; i < requestCount; i++) {
+                    assertEquals(large, readFrame(in));
+                }
+
+                while (server.heldBytes() > 0) {
+                    Thread.sleep(10);
+                }
+
+                server.stop();
+
+                socket.close();
+                thread.join();
+            },
+            "Server did not release the held bytes in the specified time period"
+        );
+    }
+
+    @Test
+    void partialFramesOverTheGlobalBudgetAreRefusedByTheirHeader() {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        String large = "p".repeat(40 * 1024);
+        var options = ServerOptions.defaults().withGlobalMemoryBudget(64 * 1024);
+        var server = new Server(HOST, PARTIAL_FRAME_BUDGET_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var socket = new Socket(HOST, PARTIAL_FRAME_BUDGET_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(large.length());
+                out.writeInt(1);
+                out.writeByte(0);
+                out.writeBytes(large.substring(0, 100));
+                out.flush();
+
+                while (server.heldBytes() < large.length()) {
+                    Thread.sleep(10);
+                }
+
+                var greedy = new Socket(HOST, PARTIAL_FRAME_BUDGET_PORT);
+                // the whole header in one write, the server refuses it as soon as it sees the length
+                var greedyOut = new DataOutputStream(new BufferedOutputStream(greedy.getOutputStream()));
+                greedyOut.writeInt(large.length());
+                greedyOut.writeInt(1);
+                greedyOut.writeByte(0);
+                greedyOut.flush();
+                assertEquals(-1, greedy.getInputStream().read(), "Waited for a payload over the global budget");
+
+                out.writeBytes(large.substring(100));
+                out.flush();
+                assertEquals(large, readFrame(new DataInputStream(socket.getInputStream())));
+
+                server.stop();
+
+                greedy.close();
+                socket.close();
+                thread.join();
+            },
+            "Server did not refuse the partial frame in the specified time period"
+        );
+    }
+
+    @Test
+    void clientsOfTheUnixSocketAreServedNextToTcpOnes(@TempDir Path directory) {
+        when(hander.handle(any())).then(invocation -> invocation.getArgument(0));
+
+        Path socketPath = directory.resolve("splitwise.sock");
+        var options = ServerOptions.defaults().withUnixSocket(socketPath);
+        var server = new Server(HOST, UNIX_SOCKET_PORT, hander, options);
+        var thread = new Thread(server);
+
+        assertTimeoutPreemptively(
+            Duration.ofSeconds(10),
+            () -> {
+                thread.start();
+
+                var unixChannel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+                var unixOut = new DataOutputStream(Channels.newOutputStream(unixChannel));
+                writeFrame(unixOut, "over unix");
+                unixOut.flush();
+                assertEquals("over unix", readFrame(new DataInputStream(Channels.newInputStream(unixChannel))));
+
+                var socket = new Socket(HOST, UNIX_SOCKET_PORT);
+                var out = new DataOutputStream(socket.getOutputStream());
+                writeFrame(out, "over tcp");
+                out.flush();
+                assertEquals("over tcp", readFrame(new DataInputStream(socket.getInputStream())));
+
+                server.stop();
+
+                unixChannel.close();
+                socket.close();
+                thread.join();
+            },
+            "Server did not serve the Unix domain socket in the specified time period"
+        );
+    }
+
+    static void writeFrame(DataOutputStream out, String payload) throws IOException {
+        writeFrame(out, 1, payload);
+    }
+
+    static void writeFrame(DataOutputStream out, int correlationId, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(TRANSPORTATION_CHARSET);
+        out.writeInt(bytes.length);
+        out.writeInt(correlationId);
+        out.writeByte(0);
+        out.write(bytes);
+    }
+
+    static byte handshake(DataOutputStream out, DataInputStream in, byte features) throws IOException {
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeByte(1);
+        out.writeByte(features);
+        out.flush();
+
+        assertEquals(1, in.readInt(), "The handshake answer has an unexpected length");
+        assertEquals(0, in.readInt(), "The handshake answer has a correlation id");
+        assertEquals(1, in.readByte(), "The handshake answer is not flagged as one");
+
+        return in.readByte();
+    }
+
+    static String readFrame(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readInt();
+        in.readByte();
+        in.readFully(bytes);
+        return new String(bytes, TRANSPORTATION_CHARSET);
+    }
+}
@@ -0,0 +1,113 @@
+package bg.fmi.mjt.splitwise.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionsTest {
+
+    Sessions sessions = new Sessions();
+
+    @Test
+    void testBindOutsideOfASessionDoesNothing() {
+        sessions.bind("user");
+
+        assertFalse(sessions.push("user", "message"), "Pushed to a user without a session");
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void testPushReachesTheBoundSession() {
+        var session = new RecordingSession();
+
+        bindAs(session, "user");
+
+        assertTrue(sessions.push("user", "message"), "Did not push to the bound session");
+        assertFalse(sessions.push("other", "message"), "Pushed to an unbound user");
+        assertEquals(List.of("message"), session.pushed);
+    }
+
+    @Test
+    void testLoginFromAnotherSessionMovesTheUser() {
+        var first = new RecordingSession();
+        var second = new RecordingSession();
+
+        bindAs(first, "user");
+        bindAs(second, "user");
+        sessions.push("user", "message");
+        sessions.closed(first);
+
+        assertTrue(first.pushed.isEmpty(), "Pushed to the previous session");
+        assertEquals(List.of("message"), second.pushed);
+        assertTrue(sessions.push("user", "message"), "Closing the previous session unbound the user");
+    }
+
+    @Test
+    void testLoginAsAnotherUserUnbindsThePreviousOne() {
+        var session = new RecordingSession();
+
+        bindAs(session, "user");
+        bindAs(session, "other");
+
+        assertFalse(sessions.push("user", "message"), "The session is still bound to the previous user");
+        assertTrue(sessions.push("other", "message"), "The session is not bound to the new user");
+    }
+
+    @Test
+    void testLoginOutsideOfASessionUnbindsTheUser() {
+        bindAs(new RecordingSession(), "user");
+
+        sessions.bind("user");
+
+        assertFalse(sessions.push("user", "message"), "Pushed to the session the user logged in before");
+    }
+
+    @Test
+    void testClosedSessionsAreUnbound() {
+        var session = new RecordingSession();
+
+        bindAs(session, "user");
+        sessions.closed(session);
+
+        assertFalse(sessions.push("user", "message"), "Pushed to a closed session");
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    void testUnbind() {
+        bindAs(new RecordingSession(), "user");
+
+        sessions.unbind("user");
+
+        assertFalse(sessions.push("user", "message"), "Pushed to an unbound user");
+    }
+
+    private void bindAs(Session session, String userId) {
+        sessions.runAs(session, () -> {
+            sessions.bind(userId);
+            return null;
+        });
+    }
+
+    private static class RecordingSession implements Session {
+
+        private final List<String> pushed = new ArrayList<>();
+
+        @Override
+        public boolean push(String message) {
+            pushed.add(message);
+            return true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+
+}
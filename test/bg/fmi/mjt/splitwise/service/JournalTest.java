@@ -0,0 +1,48 @@
+package bg.fmi.mjt.splitwise.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JournalTest {
+
+    Journal journal = new Journal();
+    List<String> undone = new ArrayList<>();
+
+    @Test
+    void testRollbackUndoesInReverseOrder() {
+        journal.onRollback(() -> undone.add("first"));
+        journal.onRollback(() -> undone.add("second"));
+
+        journal.rollback();
+
+        assertEquals(List.of("second", "first"), undone, "Did not undo in reverse order");
+    }
+
+    @Test
+    void testRollbackRunsEveryUndoActionWhenOneFails() {
+        var first = new IllegalStateException("first");
+        var second = new IllegalStateException("second");
+        journal.onRollback(() -> undone.add("first"));
+        journal.onRollback(() -> {
+            throw second;
+        });
+        journal.onRollback(() -> undone.add("second"));
+        journal.onRollback(() -> {
+            throw first;
+        });
+
+        var thrown = assertThrows(IllegalStateException.class, journal::rollback, "Swallowed a failed undo");
+
+        assertEquals(List.of("second", "first"), undone, "Skipped undo actions after a failing one");
+        assertSame(first, thrown, "Did not rethrow the first failure");
+        assertArrayEquals(new Throwable[] {second}, thrown.getSuppressed(), "Did not keep the other failures");
+    }
+
+}
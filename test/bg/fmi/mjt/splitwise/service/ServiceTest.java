@@ -10,13 +10,20 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 class ServiceTest {
 
@@ -428,8 +435,198 @@ class ServiceTest {
         assertEquals(List.of(), expectedDeletedNotifications, "Did not delete notifications");
     }
 
+    @Test
+    void testGetAndDeleteNotificationsDoesNotWriteWithoutNotifications() throws ServiceException {
+        userDao = spy(userDao);
+        service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier);
+        var token = service.login(USER_1, USER_1_PASSWORD);
+        long version = service.versionOf(token);
+
+        assertEquals(List.of(), service.getAndDeleteNotifications(token), "Invented notifications");
+        verify(userDao, never()).update(any());
+        assertEquals(version, service.versionOf(token), "Changed the version of the user");
+    }
+
     @Test
     void testGetAndDeleteNotificationsThrowsOnInvalidToken() {
         assertThrows(ServiceException.class, () -> service.getAndDeleteNotifications(INVALID_TOKEN), "Did not throw on invalid token");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNotificationsArePushedToLoggedInUsers() throws ServiceException {
+        var channel = new RecordingChannel(true);
+        service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, channel);
+
+        service.login(USER_3, USER_3_PASSWORD);
+        var token = service.login(USER_4, USER_4_PASSWORD);
+        service.split(token, USER_3, 100, "beer");
+
+        assertEquals(Set.of(USER_3, USER_4), channel.boundUsers, "Did not bind the logged in users");
+        assertEquals(1, channel.pushed.size(), "Did not push the notification");
+        assertEquals(List.of(USER_3_NOTIFICATION_MESSAGE), userDao.find(USER_3).unreadNotifications(),
+            "Stored a pushed notification");
+    }
+
+    @Test
+    void testNotificationsAreStoredForLoggedOutUsers() throws ServiceException {
+        var channel = new RecordingChannel(true);
+        service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, channel);
+
+        service.logout(service.login(USER_3, USER_3_PASSWORD));
+        var token = service.login(USER_4, USER_4_PASSWORD);
+        service.split(token, USER_3, 100, "beer");
+
+        assertEquals(Set.of(USER_4), channel.boundUsers, "Did not unbind the logged out user");
+        assertTrue(channel.pushed.isEmpty(), "Pushed a notification to a logged out user");
+        assertEquals(2, userDao.find(USER_3).unreadNotifications().size(), "Did not store the notification");
+    }
+
+    @Test
+    void testNotificationsAreStoredWhenThePushFails() throws ServiceException {
+        var channel = new RecordingChannel(false);
+        service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, channel);
+
+        service.login(USER_3, USER_3_PASSWORD);
+        var token = service.login(USER_4, USER_4_PASSWORD);
+        service.split(token, USER_3, 100, "beer");
+
+        assertEquals(2, userDao.find(USER_3).unreadNotifications().size(), "Did not store the notification");
+    }
+
+    @Test
+    void testRunAtomicallyKeepsCommittedChanges() {
+        boolean isCommitted = service.runAtomically(run(() -> service.register("username", "password"), true));
+
+        assertTrue(isCommitted, "Did not report the commit");
+        assertNotNull(userDao.find("username"), "Did not keep the inserted user");
+    }
+
+    @Test
+    void testRunAtomicallyUndoesRolledBackChanges() throws ServiceException {
+        var token = service.login(USER_4, USER_4_PASSWORD);
+
+        boolean isCommitted = service.runAtomically(run(() -> {
+            service.register("username", "password");
+            service.split(token, USER_3, 100, "beer");
+        }, false));
+
+        assertFalse(isCommitted, "Did not report the rollback");
+        assertNull(userDao.find("username"), "Did not undo the insert");
+        assertNull(userDao.find(USER_4).friendsIdsToLevsOwed().get(USER_3), "Did not undo the update");
+        assertEquals(List.of(USER_3_NOTIFICATION_MESSAGE), userDao.find(USER_3).unreadNotifications(),
+            "Delivered the notification of a rolled back change");
+    }
+
+    @Test
+    void testRunAtomicallyUndoesChangesWhenThrowing() {
+        assertThrows(IllegalStateException.class, () -> service.runAtomically(run(() -> {
+            service.register("username", "password");
+            throw new IllegalStateException();
+        }, true)), "Did not rethrow");
+
+        assertNull(userDao.find("username"), "Did not undo the insert");
+    }
+
+    @Test
+    void testRunAtomicallyPushesNotificationsOnCommit() throws ServiceException {
+        var channel = new RecordingChannel(true);
+        service = new Service(userDao, groupDao, paymentDao, idSupplier, authTokenSupplier, channel);
+        service.login(USER_3, USER_3_PASSWORD);
+        var token = service.login(USER_4, USER_4_PASSWORD);
+
+        service.runAtomically(run(() -> {
+            service.split(token, USER_3, 100, "beer");
+            assertTrue(channel.pushed.isEmpty(), "Pushed before the commit");
+        }, true));
+
+        assertEquals(1, channel.pushed.size(), "Did not push the notification on commit");
+    }
+
+    @Test
+    void testVersionOfInvalidToken() {
+        assertEquals(-1, service.versionOf(INVALID_TOKEN), "Versioned an invalid token");
+    }
+
+    @Test
+    void testVersionChangesWithWritesToTheUser() throws ServiceException {
+        var token = service.login(USER_4, USER_4_PASSWORD);
+        long version = service.versionOf(token);
+
+        service.getStatus(token);
+        assertEquals(version, service.versionOf(token), "Reading changed the version");
+
+        service.split(token, USER_3, 100, "beer");
+        assertNotEquals(version, service.versionOf(token), "Writing did not change the version");
+    }
+
+    @Test
+    void testVersionChangesWithWritesByOtherUsers() throws ServiceException {
+        var token = service.login(USER_3, USER_3_PASSWORD);
+        long version = service.versionOf(token);
+
+        service.split(service.login(USER_4, USER_4_PASSWORD), USER_3, 100, "beer");
+
+        assertNotEquals(version, service.versionOf(token), "A debt of the user did not change its version");
+    }
+
+    @Test
+    void testVersionChangesWhenWritesAreUndone() throws ServiceException {
+        var token = service.login(USER_4, USER_4_PASSWORD);
+        long[] versionInRun = new long[1];
+
+        service.runAtomically(run(() -> {
+            service.split(token, USER_3, 100, "beer");
+            versionInRun[0] = service.versionOf(token);
+        }, false));
+
+        assertNotEquals(versionInRun[0], service.versionOf(token),
+            "Data read before the rollback would still look current");
+    }
+
+    private static BooleanSupplier run(ServiceOperations operations, boolean commit) {
+        return () -> {
+            try {
+                operations.run();
+            } catch (ServiceException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return commit;
+        };
+    }
+
+    @FunctionalInterface
+    private interface ServiceOperations {
+        void run() throws ServiceException;
+    }
+
+    private static class RecordingChannel implements NotificationChannel {
+
+        private final boolean acceptsPushes;
+        private final Set<String> boundUsers = new HashSet<>();
+        private final List<String> pushed = new ArrayList<>();
+
+        RecordingChannel(boolean acceptsPushes) {
+            this.acceptsPushes = acceptsPushes;
+        }
+
+        @Override
+        public void bind(String userId) {
+            boundUsers.add(userId);
+        }
+
+        @Override
+        public void unbind(String userId) {
+            boundUsers.remove(userId);
+        }
+
+        @Override
+        public boolean push(String userId, String message) {
+            if (acceptsPushes) {
+                pushed.add(message);
+            }
+
+            return acceptsPushes;
+        }
+    }
+}
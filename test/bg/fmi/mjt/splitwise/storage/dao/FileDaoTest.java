@@ -204,4 +204,27 @@ class FileDaoTest {
         assertEquals(toUpdate, fromFile, "Updated object is not equal to the one expected one");
     }
 
-}
\ No newline at end of file
+    @Test
+    void testFlushAfterEveryKindOfWrite() {
+        var updated = new IdentifiableStub(22);
+        var deleted = new IdentifiableStub(33);
+
+        dao.insert(updated);
+        dao.insert(deleted);
+        dao.update(updated);
+        dao.delete(deleted.id());
+
+        assertDoesNotThrow(dao::flush, "Could not flush the written files");
+        assertDoesNotThrow(dao::flush, "Could not flush twice");
+    }
+
+    @Test
+    void testFlushThrowsOnMissingFile() throws IOException {
+        var inserted = new IdentifiableStub(22);
+
+        dao.insert(inserted);
+        Files.delete(PATH_TO_DB.resolve(inserted.id()));
+
+        assertThrows(DaoException.class, dao::flush, "Did not throw when a written file could not be synced");
+    }
+}
@@ -0,0 +1,81 @@
+package bg.fmi.mjt.splitwise.storage.dao;
+
+import bg.fmi.mjt.splitwise.metrics.Metrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MeasuringDaoTest {
+
+    @Mock
+    Dao<IdentifiableStub> delegate;
+
+    Metrics metrics;
+    MeasuringDao<IdentifiableStub> dao;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+        dao = new MeasuringDao<>(delegate, "stubs", metrics);
+    }
+
+    @Test
+    void testWritesAreDelegatedAndMeasured() {
+        var object = new IdentifiableStub(1);
+
+        dao.insert(object);
+        dao.update(object);
+
+        verify(delegate).insert(object);
+        verify(delegate).update(object);
+        assertEquals(1, durationsOf("insert"), "Did not measure the insert");
+        assertEquals(1, durationsOf("update"), "Did not measure the update");
+    }
+
+    @Test
+    void testFlushIsDelegated() {
+        dao.flush();
+
+        verify(delegate).flush();
+        assertEquals(1, durationsOf("flush"), "Did not measure the flush");
+    }
+
+    @Test
+    void testEntriesAreCounted() {
+        when(delegate.findAll()).thenReturn(Map.of("1", new IdentifiableStub(1), "2", new IdentifiableStub(2)));
+        var counted = new Metrics();
+        new MeasuringDao<>(delegate, "stubs", counted);
+
+        assertTrue(counted.scrape().contains("splitwise_dao_entries{dao=\"stubs\"} 2\n"), "Did not count the entries");
+    }
+
+    @Test
+    void testEntriesAreRecountedOnWritesOnly() {
+        var object = new IdentifiableStub(1);
+        when(delegate.findAll()).thenReturn(Map.of("1", object));
+
+        dao.insert(object);
+        metrics.scrape();
+        metrics.scrape();
+
+        assertTrue(metrics.scrape().contains("splitwise_dao_entries{dao=\"stubs\"} 1\n"),
+            "Did not recount the entries");
+        verify(delegate, times(2)).findAll();
+    }
+
+    private long durationsOf(String operation) {
+        return metrics.histogram("splitwise_dao_operation_duration_seconds", "", "dao", "stubs", "operation", operation)
+                      .count();
+    }
+}